@@ -0,0 +1,39 @@
+#!/bin/sh
+# Arranque (hasta que responde /actuator/health) y RSS en ese momento de un modo del servicio.
+# Uso: scripts/startup-bench.sh <etiqueta> <comando...>      (PORT, por defecto 8080)
+#   scripts/startup-bench.sh jar      java -jar app.jar
+#   scripts/startup-bench.sh aot-cds  java -XX:SharedArchiveFile=app.jsa -Dspring.aot.enabled=true -jar app.jar
+#   scripts/startup-bench.sh native   ./prod-service
+# Variables de la app (PGHOST, JWT_SECRET, ...) como en producción; RUNS=n repite y da la mediana.
+set -eu
+
+label=$1; shift
+port=${PORT:-8080}
+runs=${RUNS:-3}
+times=""
+rsss=""
+
+now_ms() { date +%s%3N; }
+
+i=0
+while [ "$i" -lt "$runs" ]; do
+    start=$(now_ms)
+    "$@" --server.port="$port" >/tmp/startup-bench.log 2>&1 &
+    pid=$!
+    # Listo = health responde (UP o DOWN: un SMTP inalcanzable no es tiempo de arranque)
+    until [ "$(curl -s -o /dev/null -w '%{http_code}' "http://127.0.0.1:$port/actuator/health")" != 000 ]; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "$label: el proceso terminó antes de estar UP (ver /tmp/startup-bench.log)" >&2
+            exit 1
+        fi
+        sleep 0.05
+    done
+    elapsed=$(( $(now_ms) - start ))
+    rss=$(awk '/VmRSS/ {print int($2 / 1024)}' "/proc/$pid/status")
+    kill "$pid"; wait "$pid" 2>/dev/null || true
+    times="$times $elapsed"; rsss="$rsss $rss"
+    i=$((i + 1))
+done
+
+median() { echo "$@" | tr ' ' '\n' | sort -n | awk '{a[NR]=$1} END {print a[int((NR + 1) / 2)]}'; }
+printf '%-10s arranque %6s ms   RSS %5s MiB   (corridas: %s)\n' "$label" "$(median $times)" "$(median $rsss)" "$times"
@@ -0,0 +1,45 @@
+package com.aec.prodsrv.security;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo por request de la autenticación: JwtAuthenticationFilter valida el
+ * token y luego vuelve a parsearlo para obtener el username.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JwtUtilsBenchmark {
+
+    private JwtUtils jwt;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwt = new JwtUtils("benchmark-secret-de-al-menos-32-bytes!!", 3_600_000L);
+        token = jwt.generateToken("colab");
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwt.validateToken(token);
+    }
+
+    @Benchmark
+    public String getUsernameFromToken() {
+        return jwt.getUsernameFromToken(token);
+    }
+
+    @Benchmark
+    public String filterPath() {
+        return jwt.validateToken(token) ? jwt.getUsernameFromToken(token) : null;
+    }
+}
@@ -0,0 +1,138 @@
+package com.aec.prodsrv.service;
+
+import ch.qos.logback.classic.Level;
+import com.aec.prodsrv.client.dto.FileInfoDto;
+import com.aec.prodsrv.dto.ProductDto;
+import com.aec.prodsrv.model.Category;
+import com.aec.prodsrv.model.Product;
+import com.aec.prodsrv.model.ProductStatus;
+import com.aec.prodsrv.repository.CategoryRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * toDto (URLs, variantes, formatos), resolución de categorías contra un
+ * repositorio en memoria y serialización JSON de una página de ProductDto.
+ * Sin red ni BD: sólo el costo de CPU y de asignación del propio servicio.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ProductServiceBenchmark {
+
+    /** Fotos y archivos AUT por producto. */
+    @Param({ "1", "8" })
+    int files;
+
+    private ProductService service;
+    private Product product;
+    private List<FileInfoDto> metas;
+    private List<String> categoryNames;
+    private PageImpl<ProductDto> page;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Setup
+    public void setUp() {
+        // toDto loguea en INFO por producto; aquí medimos el mapeo, no el appender
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(ProductService.class)).setLevel(Level.WARN);
+
+        service = new ProductService(null, categoryRepository(), null, null, null, null, null, null, null);
+        ReflectionTestUtils.setField(service, "gatewayBaseUrl", "https://gateway.example.com");
+
+        List<String> fotos = new ArrayList<>();
+        List<String> aut = new ArrayList<>();
+        metas = new ArrayList<>();
+        for (int i = 0; i < files; i++) {
+            fotos.add("foto-" + i);
+            aut.add("aut-" + i);
+            metas.add(meta("foto-" + i, "foto" + i + ".png", "image/png"));
+            metas.add(meta("aut-" + i, "modelo" + i + (i % 2 == 0 ? ".rvt" : ".dwg"), "application/octet-stream"));
+        }
+        Set<Category> cats = new HashSet<>();
+        categoryNames = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            cats.add(Category.builder().id((long) i).nombre("Categoria " + i).build());
+            categoryNames.add("categoria " + i);
+        }
+        product = Product.builder()
+                .idProducto(42L)
+                .nombre("Puente atirantado")
+                .descripcionProd("Modelo BIM completo")
+                .precioIndividual(120.0)
+                .pais("EC")
+                .estado(ProductStatus.APROBADO)
+                .uploaderUsername("colab")
+                .fotografiaProd(fotos)
+                .archivosAut(aut)
+                .categorias(cats)
+                .especialidades(Set.of())
+                .build();
+
+        List<ProductDto> content = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            content.add(service.toDto(product, metas));
+        page = new PageImpl<>(content, PageRequest.of(0, 20), 500);
+    }
+
+    @Benchmark
+    public ProductDto toDto() {
+        return service.toDto(product, metas);
+    }
+
+    @Benchmark
+    public Set<Category> namesToCategorySet() {
+        return service.namesToCategorySet(categoryNames);
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws Exception {
+        return mapper.writeValueAsBytes(page);
+    }
+
+    private static FileInfoDto meta(String driveId, String name, String type) {
+        FileInfoDto m = new FileInfoDto();
+        m.setDriveFileId(driveId);
+        m.setOriginalName(name);
+        m.setFileType(type);
+        return m;
+    }
+
+    /** Sólo findByNombreIgnoreCase/save, sobre un mapa: el costo es el del servicio. */
+    private static CategoryRepository categoryRepository() {
+        Map<String, Category> byName = new ConcurrentHashMap<>();
+        for (int i = 0; i < 4; i++)
+            byName.put("categoria " + i, Category.builder().id((long) i).nombre("Categoria " + i).build());
+        return (CategoryRepository) Proxy.newProxyInstance(CategoryRepository.class.getClassLoader(),
+                new Class<?>[] { CategoryRepository.class }, (proxy, method, args) -> switch (method.getName()) {
+                    case "findByNombreIgnoreCase" ->
+                        Optional.ofNullable(byName.get(((String) args[0]).toLowerCase(Locale.ROOT)));
+                    case "save" -> args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "CategoryRepositoryStub";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,51 @@
+package com.aec.prodsrv.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Ida y vuelta de las listas de driveFileId que JPA guarda como JSON. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StringListConverterBenchmark {
+
+    @Param({ "1", "8", "32" })
+    int size;
+
+    private final StringListConverter converter = new StringListConverter();
+    private List<String> ids;
+    private String column;
+
+    @Setup
+    public void setUp() {
+        ids = new ArrayList<>();
+        for (int i = 0; i < size; i++)
+            ids.add("1AbCdEfGhIjKlMnOpQrStUvWxYz" + i); // largo típico de un ID de Drive
+        column = converter.convertToDatabaseColumn(ids);
+    }
+
+    @Benchmark
+    public String toColumn() {
+        return converter.convertToDatabaseColumn(ids);
+    }
+
+    @Benchmark
+    public List<String> toAttribute() {
+        return converter.convertToEntityAttribute(column);
+    }
+
+    @Benchmark
+    public List<String> roundTrip() {
+        return converter.convertToEntityAttribute(converter.convertToDatabaseColumn(ids));
+    }
+}
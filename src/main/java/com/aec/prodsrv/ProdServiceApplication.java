@@ -2,8 +2,10 @@ package com.aec.prodsrv;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class ProdServiceApplication {
     public static void main(String[] args) {
         SpringApplication.run(ProdServiceApplication.class, args);
@@ -0,0 +1,18 @@
+package com.aec.prodsrv.client;
+
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.util.function.Predicate;
+
+/**
+ * Los 4xx de file-service (404 al borrar algo ya borrado, 401/403, etc.) son
+ * errores del llamador, no síntomas de un servicio caído: el circuit breaker
+ * los ignora.
+ */
+public class ClientErrorPredicate implements Predicate<Throwable> {
+
+    @Override
+    public boolean test(Throwable ex) {
+        return ex instanceof WebClientResponseException wcre && wcre.getStatusCode().is4xxClientError();
+    }
+}
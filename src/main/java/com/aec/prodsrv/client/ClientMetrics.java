@@ -0,0 +1,79 @@
+package com.aec.prodsrv.client;
+
+import com.aec.prodsrv.observability.ServerTiming;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Timer por operación y resultado de un cliente downstream
+ * ({name}{op=...,outcome=success|client_error|server_error|rejected|timeout|error|cancelled}).
+ * Los histogramas de percentiles se activan por nombre en management.metrics.distribution.
+ * Cada llamada cuenta además como fase {@link ServerTiming} del request (op o
+ * {@code phase} fijo).
+ */
+final class ClientMetrics {
+
+    private final MeterRegistry registry;
+    private final String name;
+    private final String phase;
+
+    ClientMetrics(MeterRegistry registry, String name) {
+        this(registry, name, null);
+    }
+
+    ClientMetrics(MeterRegistry registry, String name, String phase) {
+        this.registry = registry;
+        this.name = name;
+        this.phase = phase;
+    }
+
+    <T> Mono<T> timed(String op, Mono<T> call) {
+        return ServerTiming.timed(phase != null ? phase : op, Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(registry);
+            return call
+                    .doOnSuccess(v -> stop(sample, op, "success"))
+                    .doOnError(e -> stop(sample, op, outcome(e)))
+                    .doOnCancel(() -> stop(sample, op, "cancelled"));
+        }));
+    }
+
+    <T> T timed(String op, Supplier<T> call) {
+        Timer.Sample sample = Timer.start(registry);
+        try (ServerTiming.Span ignored = ServerTiming.phase(phase != null ? phase : op)) {
+            T result = call.get();
+            stop(sample, op, "success");
+            return result;
+        } catch (RuntimeException e) {
+            stop(sample, op, outcome(e));
+            throw e;
+        }
+    }
+
+    private void stop(Timer.Sample sample, String op, String outcome) {
+        sample.stop(Timer.builder(name)
+                .tag("op", op)
+                .tag("outcome", outcome)
+                .register(registry));
+    }
+
+    static String outcome(Throwable e) {
+        if (e instanceof FileServiceUnavailableException)
+            return "rejected";
+        if (e instanceof DeadlineExceededException || e instanceof TimeoutException)
+            return "timeout";
+        int status = e instanceof WebClientResponseException w ? w.getStatusCode().value()
+                : e instanceof RestClientResponseException r ? r.getStatusCode().value()
+                : 0;
+        if (status >= 400 && status < 500)
+            return "client_error";
+        if (status >= 500)
+            return "server_error";
+        return "error";
+    }
+}
@@ -0,0 +1,79 @@
+package com.aec.prodsrv.client;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * InputStream bloqueante sobre un Flux de DataBuffer con demanda acotada:
+ * como mucho {@code prefetch} bloques esperan en memoria, el resto lo retiene
+ * la contrapresión de Netty. Cerrarlo cancela la suscripción (y la descarga).
+ */
+final class DataBufferInputStream extends InputStream {
+
+    private final Stream<byte[]> stream;
+    private final Iterator<byte[]> chunks;
+    private byte[] current = new byte[0];
+    private int pos;
+
+    DataBufferInputStream(Flux<DataBuffer> body, int prefetch) {
+        this.stream = body.map(DataBufferInputStream::drain).toStream(prefetch);
+        this.chunks = stream.iterator();
+    }
+
+    private static byte[] drain(DataBuffer buf) {
+        try {
+            byte[] bytes = new byte[buf.readableByteCount()];
+            buf.read(bytes);
+            return bytes;
+        } finally {
+            DataBufferUtils.release(buf);
+        }
+    }
+
+    private boolean fill() throws IOException {
+        try {
+            while (pos >= current.length) {
+                if (!chunks.hasNext())
+                    return false;
+                current = chunks.next();
+                pos = 0;
+            }
+            return true;
+        } catch (RuntimeException e) {
+            throw new IOException("Descarga interrumpida: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        return fill() ? current[pos++] & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+        if (!fill())
+            return -1;
+        int n = Math.min(len, current.length - pos);
+        System.arraycopy(current, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current.length - pos;
+    }
+
+    @Override
+    public void close() {
+        stream.close();
+    }
+}
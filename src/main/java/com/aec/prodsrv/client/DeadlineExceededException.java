@@ -0,0 +1,12 @@
+package com.aec.prodsrv.client;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/** Se agotó el presupuesto de latencia del request antes de completar la llamada. */
+public class DeadlineExceededException extends ResponseStatusException {
+
+    public DeadlineExceededException(String operation) {
+        super(HttpStatus.GATEWAY_TIMEOUT, "Tiempo del request agotado esperando " + operation);
+    }
+}
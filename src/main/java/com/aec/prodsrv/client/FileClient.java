@@ -5,43 +5,149 @@ import com.aec.prodsrv.security.JwtAuthenticationFilter.CustomWebAuthenticationD
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.Data;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple2;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.MultipartBodyBuilder;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.stereotype.Component;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Component
 public class FileClient {
 
     private static final Logger log = LoggerFactory.getLogger(FileClient.class);
 
+    /** Tamaño de bloque al leer el multipart que se reenvía a file-service. */
+    private static final int UPLOAD_CHUNK_SIZE = 64 * 1024;
+
+    /** DataBuffers pedidos por adelantado al leer una descarga como InputStream. */
+    private static final int DOWNLOAD_DEMAND = 8;
+
+    // Un circuit breaker + bulkhead por tipo de operación (resilience4j.*.instances)
+    static final String OP_META = "file-meta";
+    static final String OP_UPLOAD = "file-upload";
+    static final String OP_STAGING = "file-staging";
+    static final String OP_DELETE = "file-delete";
+    static final String OP_DOWNLOAD = "file-download"; // sin breaker: sólo métricas
+
     private final WebClient webClient;
+    private final CircuitBreakerRegistry breakers;
+    private final BulkheadRegistry bulkheads;
+    private final FileMetaCache metaCache;
+    private final FileDownloadCache downloadCache;
+    private final LatencyTracker metaLatency;
+    private final ClientMetrics metrics;
+
+    @Value("${file-service.hedge.enabled:true}")
+    private boolean hedgeEnabled;
+
+    @Value("${file-service.hedge.min-delay:50ms}")
+    private Duration hedgeMinDelay;
+
+    @Value("${file-service.hedge.max-delay:1s}")
+    private Duration hedgeMaxDelay;
     private final ObjectMapper mapper = new ObjectMapper()
             .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 
-    public FileClient(@Value("${file-service.base-url}") String baseUrl,
-            WebClient.Builder builder) {
-        this.webClient = builder.baseUrl(baseUrl).build();
+    public FileClient(@Qualifier("fileServiceWebClient") WebClient webClient,
+            CircuitBreakerRegistry breakers,
+            BulkheadRegistry bulkheads,
+            FileMetaCache metaCache,
+            FileDownloadCache downloadCache,
+            MeterRegistry meterRegistry,
+            @Value("${file-service.hedge.window:512}") int hedgeWindow,
+            @Value("${file-service.hedge.min-samples:50}") int hedgeMinSamples) {
+        this.webClient = webClient;
+        this.breakers = breakers;
+        this.bulkheads = bulkheads;
+        this.metaCache = metaCache;
+        this.downloadCache = downloadCache;
+        this.metaLatency = new LatencyTracker(hedgeWindow, hedgeMinSamples);
+        this.metrics = new ClientMetrics(meterRegistry, "file.client");
+    }
+
+    /**
+     * Envuelve la llamada con el bulkhead y el circuit breaker de la operación.
+     * Si cualquiera de los dos rechaza la llamada se emite
+     * {@link FileServiceUnavailableException} (503) sin tocar la red.
+     */
+    private <T> Mono<T> guarded(String op, Mono<T> call) {
+        return metrics.timed(op, withDeadline(op, call)
+                .transformDeferred(BulkheadOperator.of(bulkheads.bulkhead(op)))
+                .transformDeferred(CircuitBreakerOperator.of(breakers.circuitBreaker(op)))
+                .onErrorMap(FileClient::isRejection, ex -> new FileServiceUnavailableException(op, ex)));
+    }
+
+    private <T> Flux<T> guarded(String op, Flux<T> call) {
+        return guarded(op, call.collectList())
+                .flatMapIterable(list -> list);
+    }
+
+    /**
+     * Acota la llamada al plazo del request. El plazo absoluto se captura aquí
+     * (hilo del request) y lo que queda se calcula al suscribirse, así las
+     * llamadas encoladas detrás de otras no reciben el presupuesto completo.
+     */
+    private <T> Mono<T> withDeadline(String op, Mono<T> call) {
+        OptionalLong deadline = RequestDeadline.current();
+        if (deadline.isEmpty())
+            return call;
+        long at = deadline.getAsLong();
+        return Mono.defer(() -> {
+            Duration left = RequestDeadline.remaining(at);
+            if (left.isNegative() || left.isZero())
+                return Mono.error(new DeadlineExceededException(op));
+            return call.timeout(left)
+                    .onErrorMap(TimeoutException.class, ex -> new DeadlineExceededException(op));
+        });
+    }
+
+    private static boolean isRejection(Throwable ex) {
+        return ex instanceof CallNotPermittedException || ex instanceof BulkheadFullException;
     }
 
     private String getAuthToken() {
@@ -58,66 +164,60 @@ public class FileClient {
     }
 
     public FileInfoDto uploadProductFile(MultipartFile file, String uploader, Long productId) {
-        return upload(file, uploader, productId, true);
+        return uploadProductFileReactive(file, uploader, productId).block();
     }
 
     public FileInfoDto uploadReceiptFile(MultipartFile file, String uploader, Long orderId) {
-        return upload(file, uploader, orderId, false);
+        return upload(file, uploader, orderId, false).block();
     }
 
-    private FileInfoDto upload(MultipartFile file, String uploader, Long entityId, boolean isProduct) {
+    /**
+     * Variante reactiva de {@link #uploadProductFile}. El token se resuelve al
+     * invocar (en el hilo del request); el cuerpo multipart se lee por bloques
+     * bajo demanda, sin cargar el fichero completo en memoria.
+     */
+    public Mono<FileInfoDto> uploadProductFileReactive(MultipartFile file, String uploader, Long productId) {
+        return upload(file, uploader, productId, true);
+    }
+
+    private Mono<FileInfoDto> upload(MultipartFile file, String uploader, Long entityId, boolean isProduct) {
         if (file == null) {
             log.warn("upload() llamado con file = null (entityId={}, isProduct={})", entityId, isProduct);
-            return null;
+            return Mono.empty();
         }
         if (file.isEmpty()) {
             log.warn("upload() MultipartFile vacío: originalFilename={}, size=0 (entityId={}, isProduct={})",
                     file.getOriginalFilename(), entityId, isProduct);
-            return null;
+            return Mono.empty();
         }
 
         log.info(
                 "Preparando subida a file-service. originalFilename={}, contentType={}, size={} bytes, entityId={}, isProduct={}",
                 file.getOriginalFilename(), file.getContentType(), file.getSize(), entityId, isProduct);
 
-        ByteArrayResource resource;
-        try {
-            byte[] bytes = file.getBytes();
-            resource = new ByteArrayResource(bytes) {
-                @Override
-                public String getFilename() {
-                    return file.getOriginalFilename();
-                }
-            };
-            log.info("Bytes listos para enviar: {} bytes", bytes.length);
-        } catch (IOException e) {
-            throw new RuntimeException("Error leyendo bytes del fichero: " + e.getMessage(), e);
-        }
-
-        MultiValueMap<String, Object> form = new LinkedMultiValueMap<>();
-        form.add("file", resource);
-        form.add("uploader", uploader);
+        MultipartBodyBuilder form = filePart(file);
+        form.part("uploader", uploader);
 
         String token = getAuthToken();
         String uri = String.format("/api/files/public/%d?type=%s", entityId, isProduct ? "product" : "receipt");
 
-        return webClient.post()
+        return guarded(OP_UPLOAD, webClient.post()
                 .uri(uri)
                 .contentType(MediaType.MULTIPART_FORM_DATA)
                 .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
-                .body(BodyInserters.fromMultipartData(form))
+                .body(BodyInserters.fromMultipartData(form.build()))
                 .exchangeToMono(resp -> {
                     HttpStatusCode status = resp.statusCode();
                     return resp.bodyToMono(String.class)
                             .defaultIfEmpty("")
                             .map(body -> {
-                                log.info("FileService {} -> status={}, body={}", uri, status.value(), body);
+                                log.debug("FileService {} -> status={}, {} bytes", uri, status.value(), body.length());
                                 if (!status.is2xxSuccessful()) {
                                     throw new IllegalStateException("FileService " + uri + " -> " + status.value());
                                 }
                                 try {
                                     FileInfoDto dto = mapper.readValue(body, FileInfoDto.class);
-                                    log.info("DTO deserializado: driveFileId={}, filename={}",
+                                    log.debug("DTO deserializado: driveFileId={}, filename={}",
                                             dto.getDriveFileId(), dto.getFilename());
                                     return dto;
                                 } catch (Exception ex) {
@@ -125,31 +225,54 @@ public class FileClient {
                                     throw new IllegalStateException("No se pudo parsear respuesta de file-service", ex);
                                 }
                             });
-                })
-                .block();
+                }));
     }
 
     public void deleteFile(String driveFileId) {
+        deleteFileReactive(driveFileId).block();
+    }
+
+    public Mono<Void> deleteFileReactive(String driveFileId) {
         String token = getAuthToken();
-        webClient.delete()
+        return guarded(OP_DELETE, webClient.delete()
                 .uri("/api/files/{driveId}", driveFileId)
                 .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
                 .retrieve()
                 .toBodilessEntity()
-                .block();
+                .then())
+                .doOnSuccess(v -> downloadCache.invalidate(driveFileId));
     }
 
-    public void deleteProductFolder(Long productId) {
+    /**
+     * Borra la carpeta del producto. La caché de disco va por driveFileId, así
+     * que se invalidan los IDs que se pasan (los del producto) más los que
+     * figuran en los últimos metadatos conocidos de la carpeta.
+     */
+    public void deleteProductFolder(Long productId, Collection<String> driveFileIds) {
+        Set<String> cached = new LinkedHashSet<>(driveFileIds);
+        metaCache.get(productId).ifPresent(list -> list.forEach(m -> cached.add(m.getDriveFileId())));
         String token = getAuthToken();
-        webClient.delete()
+        guarded(OP_DELETE, webClient.delete()
                 .uri("/api/files/product/{productId}/folder", productId)
                 .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
                 .retrieve()
-                .toBodilessEntity()
+                .toBodilessEntity())
                 .block();
+        metaCache.evict(productId);
+        downloadCache.invalidateAll(cached);
     }
 
+    /** Contenido completo en memoria; sólo para archivos chicos (p. ej. fotos). */
     public byte[] downloadFile(String driveFileId) {
+        if (downloadCache.isEnabled()) {
+            try {
+                return Files.readAllBytes(downloadCached(driveFileId));
+            } catch (FileDownloadCache.EntryTooLargeException e) {
+                log.debug("downloadFile({}) sin caché: {}", driveFileId, e.getMessage());
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo leer " + driveFileId + " de la caché", e);
+            }
+        }
         return webClient.get()
                 .uri("/api/files/{driveId}", driveFileId)
                 .retrieve()
@@ -157,15 +280,90 @@ public class FileClient {
                 .block();
     }
 
+    /**
+     * Ruta local del archivo, descargándolo a la caché de disco si hace falta.
+     * Descargas concurrentes del mismo archivo comparten una sola transferencia.
+     * La descarga se corta al pasar max-entry-size (metadatos desactualizados).
+     *
+     * @throws FileDownloadCache.EntryTooLargeException si no entra en la caché
+     */
+    public Path downloadCached(String driveFileId) throws IOException {
+        return downloadCache.getOrFill(driveFileId, target -> {
+            try {
+                downloadTo(driveFileId, target, downloadCache.maxEntryBytes());
+            } catch (RuntimeException e) {
+                if (Exceptions.unwrap(e) instanceof FileDownloadCache.EntryTooLargeException tooLarge)
+                    throw tooLarge;
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Pregunta a file-service (HEAD con el token del usuario) si puede leer el
+     * archivo. Lo que sale de la caché de disco no pasa por file-service: sin
+     * esto cualquier sesión leería un AUT que otro ya descargó. Un 4xx se
+     * devuelve tal cual al cliente.
+     */
+    public void checkReadAccess(String driveFileId) {
+        String token = getAuthTokenOrNull();
+        WebClient.RequestHeadersSpec<?> req = webClient.head().uri("/api/files/{driveId}", driveFileId);
+        if (token != null)
+            req = req.header(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        guarded(OP_META, req.retrieve().toBodilessEntity())
+                .onErrorMap(e -> e instanceof WebClientResponseException w && w.getStatusCode().is4xxClientError(),
+                        e -> new ResponseStatusException(((WebClientResponseException) e).getStatusCode(),
+                                "Sin acceso al archivo " + driveFileId))
+                .block();
+    }
+
+    /** true si un archivo de este tamaño se sirve desde la caché de disco. */
+    public boolean isCacheable(long size) {
+        return downloadCache.isEnabled() && size >= 0 && size <= downloadCache.maxEntryBytes();
+    }
+
+    /** Descarga en streaming a disco: memoria constante sin importar el tamaño. */
+    public void downloadTo(String driveFileId, Path target) {
+        downloadTo(driveFileId, target, Long.MAX_VALUE);
+    }
+
+    private void downloadTo(String driveFileId, Path target, long limit) {
+        AtomicLong written = new AtomicLong();
+        Flux<DataBuffer> body = downloadRequest(driveFileId, null)
+                .retrieve()
+                .bodyToFlux(DataBuffer.class)
+                .handle((buf, sink) -> {
+                    if (written.addAndGet(buf.readableByteCount()) <= limit) {
+                        sink.next(buf);
+                        return;
+                    }
+                    DataBufferUtils.release(buf);
+                    sink.error(new FileDownloadCache.EntryTooLargeException(driveFileId, written.get(), limit));
+                });
+        metrics.timed(OP_DOWNLOAD,
+                DataBufferUtils.write(body, target, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+                .block();
+    }
+
+    /**
+     * Metadatos frescos, sin caché ni respaldo: si file-service falla, falla.
+     * Para verificaciones (p. ej. confirmar una subida directa).
+     */
     public List<FileInfoDto> getProductFilesMeta(Long productId) {
+        return getProductFilesMetaReactive(productId).collectList().block();
+    }
+
+    /** Variante reactiva de {@link #getProductFilesMeta}: emite el error, sin respaldo. */
+    public Flux<FileInfoDto> getProductFilesMetaReactive(Long productId) {
         String token = getAuthToken();
-        return webClient.get()
+        return guarded(OP_META, webClient.get()
                 .uri("/api/files/meta/product/{id}", productId)
                 .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
                 .retrieve()
-                .bodyToFlux(FileInfoDto.class)
+                .bodyToFlux(FileInfoDto.class))
                 .collectList()
-                .block();
+                .doOnNext(list -> metaCache.put(productId, list))
+                .flatMapIterable(list -> list);
     }
 
     private String getAuthTokenOrNull() {
@@ -182,97 +380,181 @@ public class FileClient {
     }
 
     public List<FileInfoDto> getMetaByProduct(Long productId) {
-        String token = getAuthTokenOrNull(); // ← NO lanza excepción
+        return getMetaByProductReactive(productId).collectList().block();
+    }
 
-        WebClient.RequestHeadersSpec<?> req = webClient.get()
-                .uri("/api/files/meta/product/{productId}", productId);
+    /**
+     * Variante reactiva de {@link #getMetaByProduct}: nunca emite error. Si
+     * file-service falla, o su breaker está abierto, responde al instante con el
+     * último metadato conocido; si no lo hay completa vacío y toDto usa los IDs
+     * persistidos en el producto.
+     */
+    public Flux<FileInfoDto> getMetaByProductReactive(Long productId) {
+        String token = getAuthTokenOrNull(); // ← NO lanza excepción
 
-        if (token != null) {
-            req = req.header(HttpHeaders.AUTHORIZATION, "Bearer " + token);
-        }
-        return req.retrieve()
-                .bodyToFlux(FileInfoDto.class)
-                .collectList()
+        Mono<List<FileInfoDto>> attempt = Mono.defer(() -> {
+            WebClient.RequestHeadersSpec<?> req = webClient.get()
+                    .uri("/api/files/meta/product/{productId}", productId);
+            if (token != null) {
+                req = req.header(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+            }
+            return req.retrieve().bodyToFlux(FileInfoDto.class).collectList();
+        })
+                .elapsed()
+                .doOnNext(t -> metaLatency.record(t.getT1()))
+                .map(Tuple2::getT2);
+
+        return guarded(OP_META, hedged(attempt))
+                .doOnNext(list -> metaCache.put(productId, list))
                 .onErrorResume(ex -> {
-                    log.warn("getMetaByProduct({}) falló: {}", productId, ex.getMessage());
-                    return Mono.just(List.of());
+                    List<FileInfoDto> cached = metaCache.get(productId).orElse(List.of());
+                    log.warn("getMetaByProduct({}) falló, usando respaldo ({} entradas): {}",
+                            productId, cached.size(), ex.getMessage());
+                    return Mono.just(cached);
                 })
+                .flatMapIterable(list -> list);
+    }
+
+    /**
+     * GET idempotente con cobertura: si la primera petición no respondió
+     * cuando ya habría respondido el p95, se lanza una segunda y gana la que
+     * llegue antes (la otra se cancela). Sin muestras suficientes no cubre.
+     */
+    private <T> Mono<T> hedged(Mono<T> attempt) {
+        if (!hedgeEnabled)
+            return attempt;
+        OptionalLong p95 = metaLatency.percentile(0.95);
+        if (p95.isEmpty())
+            return attempt;
+        Duration delay = Duration.ofMillis(p95.getAsLong());
+        if (delay.compareTo(hedgeMinDelay) < 0)
+            delay = hedgeMinDelay;
+        if (delay.compareTo(hedgeMaxDelay) > 0)
+            delay = hedgeMaxDelay;
+        return Mono.firstWithValue(attempt, Mono.delay(delay).then(attempt));
+    }
+
+    /**
+     * Abre la descarga como InputStream sobre los DataBuffer de la respuesta
+     * (demanda acotada: sólo hay en memoria unos pocos bloques). Si se pasa
+     * {@code range} se reenvía tal cual; file-service puede responder 206 o
+     * ignorarlo y responder 200 con el archivo completo.
+     */
+    public Download openDownload(String driveFileId, String range) {
+        ResponseEntity<Flux<DataBuffer>> resp = metrics.timed(OP_DOWNLOAD + "-open", downloadRequest(driveFileId, range)
+                .retrieve()
+                .toEntityFlux(DataBuffer.class))
                 .block();
+        if (resp == null || resp.getBody() == null)
+            throw new IllegalStateException("Respuesta vacía de file-service para " + driveFileId);
+        return new Download(resp.getStatusCode().value(), resp.getHeaders(),
+                new DataBufferInputStream(resp.getBody(), DOWNLOAD_DEMAND));
+    }
+
+    private WebClient.RequestHeadersSpec<?> downloadRequest(String driveFileId, String range) {
+        String token = getAuthTokenOrNull();
+        WebClient.RequestHeadersSpec<?> req = webClient.get().uri("/api/files/{driveId}", driveFileId);
+        if (token != null)
+            req = req.header(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        if (range != null)
+            req = req.header(HttpHeaders.RANGE, range);
+        return req;
+    }
+
+    /** Descarga abierta: cerrar el body cancela la transferencia. */
+    public record Download(int status, HttpHeaders headers, InputStream body) implements Closeable {
+        @Override
+        public void close() throws IOException {
+            body.close();
+        }
     }
 
     // en FileClient: añade helpers para STAGING
 
     public StagingInfoDto uploadToStaging(MultipartFile file, Long productId) {
+        return uploadToStagingReactive(file, productId).block();
+    }
+
+    public Mono<StagingInfoDto> uploadToStagingReactive(MultipartFile file, Long productId) {
         if (file == null || file.isEmpty())
-            return null;
+            return Mono.empty();
 
         String token = getAuthToken();
-        return webClient.post()
+        return guarded(OP_STAGING, webClient.post()
                 .uri(uriBuilder -> uriBuilder.path("/api/files/staging/{pid}").build(productId))
                 .contentType(MediaType.MULTIPART_FORM_DATA)
                 .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
-                .body(BodyInserters.fromMultipartData(buildStreamingForm(file)))
+                .body(BodyInserters.fromMultipartData(filePart(file).build()))
                 .retrieve()
-                .bodyToMono(StagingInfoDto.class)
-                .block();
+                .bodyToMono(StagingInfoDto.class));
     }
 
     public List<StagingInfoDto> listStaging(Long productId) {
+        return listStagingReactive(productId).collectList().block();
+    }
+
+    public Flux<StagingInfoDto> listStagingReactive(Long productId) {
         String token = getAuthTokenOrNull();
         WebClient.RequestHeadersSpec<?> req = webClient.get().uri("/api/files/staging/{pid}", productId);
         if (token != null)
             req = req.header(HttpHeaders.AUTHORIZATION, "Bearer " + token);
-        return req.retrieve().bodyToFlux(StagingInfoDto.class).collectList().block();
+        return guarded(OP_STAGING, req.retrieve().bodyToFlux(StagingInfoDto.class));
     }
 
     public List<FileInfoDto> promoteStaging(Long productId) {
+        return promoteStagingReactive(productId).collectList().block();
+    }
+
+    public Flux<FileInfoDto> promoteStagingReactive(Long productId) {
         String token = getAuthToken();
-        return webClient.post()
+        return guarded(OP_STAGING, webClient.post()
                 .uri("/api/files/staging/{pid}/promote", productId)
                 .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
                 .retrieve()
-                .bodyToFlux(FileInfoDto.class)
-                .collectList()
-                .block();
+                .bodyToFlux(FileInfoDto.class))
+                .doOnComplete(() -> metaCache.evict(productId));
     }
 
     public void discardStaging(Long productId) {
+        discardStagingReactive(productId).block();
+    }
+
+    public Mono<Void> discardStagingReactive(Long productId) {
         String token = getAuthToken();
-        webClient.delete()
+        return guarded(OP_STAGING, webClient.delete()
                 .uri("/api/files/staging/{pid}", productId)
                 .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
                 .retrieve()
                 .toBodilessEntity()
-                .block();
+                .then());
     }
 
-    private MultiValueMap<String, Object> buildStreamingForm(MultipartFile file) {
-        var map = new LinkedMultiValueMap<String, Object>();
-        // NO leer bytes a memoria: usa InputStreamResource
-        InputStreamResource resource = new InputStreamResource(io(file)) {
-            @Override
-            public String getFilename() {
-                return file.getOriginalFilename();
-            }
+    private MultipartBodyBuilder filePart(MultipartFile file) {
+        MultipartBodyBuilder form = new MultipartBodyBuilder();
+        form.asyncPart("file", readChunks(file), DataBuffer.class)
+                .filename(file.getOriginalFilename() != null ? file.getOriginalFilename() : "file")
+                .contentType(partContentType(file));
+        return form;
+    }
 
-            @Override
-            public long contentLength() {
-                try {
-                    return file.getSize();
-                } catch (Exception e) {
-                    return -1;
-                }
-            }
-        };
-        map.add("file", resource);
-        return map;
+    /**
+     * Contenido del multipart como flujo de bloques: sólo se lee del disco lo que
+     * Netty solicita (backpressure). La lectura es bloqueante, por eso va en
+     * boundedElastic y nunca en el event loop.
+     */
+    private Flux<DataBuffer> readChunks(MultipartFile file) {
+        return DataBufferUtils.readInputStream(file::getInputStream,
+                DefaultDataBufferFactory.sharedInstance, UPLOAD_CHUNK_SIZE)
+                .subscribeOn(Schedulers.boundedElastic());
     }
 
-    private InputStream io(MultipartFile f) {
+    private static MediaType partContentType(MultipartFile file) {
         try {
-            return f.getInputStream();
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+            return file.getContentType() != null
+                    ? MediaType.parseMediaType(file.getContentType())
+                    : MediaType.APPLICATION_OCTET_STREAM;
+        } catch (Exception e) {
+            return MediaType.APPLICATION_OCTET_STREAM;
         }
     }
 
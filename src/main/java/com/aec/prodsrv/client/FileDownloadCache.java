@@ -0,0 +1,255 @@
+package com.aec.prodsrv.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Caché en disco de archivos descargados de file-service, por driveFileId,
+ * con expulsión LRU por tamaño total. Vive en {file.upload-dir}/cache/{driveFileId}:
+ * la clave es sólo el driveFileId, el mismo archivo llegue por el producto o
+ * por {@link FileClient#downloadFile}, así que invalidar un producto es
+ * invalidar sus driveFileIds.
+ *
+ * Cada archivo se escribe en un temporal y se mueve de forma atómica: un
+ * lector nunca ve un archivo a medias. Si varias peticiones piden el mismo
+ * archivo ausente, sólo una lo descarga y las demás esperan su resultado.
+ * Un llenado que supera max-entry-size (o el tamaño total) se descarta y
+ * lanza {@link EntryTooLargeException}: el llamador lo sirve sin caché.
+ */
+@Component
+public class FileDownloadCache {
+
+    private static final Logger log = LoggerFactory.getLogger(FileDownloadCache.class);
+    private static final String TMP_DIR = ".tmp";
+
+    /** Escribe el contenido del archivo en la ruta indicada. */
+    @FunctionalInterface
+    public interface Filler {
+        void writeTo(Path target) throws IOException;
+    }
+
+    /** El archivo no entra en la caché; no queda nada en disco. */
+    public static class EntryTooLargeException extends IOException {
+        public EntryTooLargeException(String driveFileId, long size, long limit) {
+            super("Archivo " + driveFileId + " de " + size + " bytes supera el máximo de la caché (" + limit + ")");
+        }
+    }
+
+    private record Entry(Path path, long size) {}
+
+    private final Path root;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final LinkedHashMap<String, Entry> lru = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+    private long totalBytes;
+    private volatile boolean enabled;
+
+    public FileDownloadCache(@Value("${file.upload-dir}") String uploadDir,
+            @Value("${file-cache.max-size:10GB}") DataSize maxSize,
+            @Value("${file-cache.max-entry-size:512MB}") DataSize maxEntrySize) {
+        this.root = Paths.get(uploadDir, "cache");
+        this.maxBytes = maxSize.toBytes();
+        this.maxEntryBytes = Math.min(maxEntrySize.toBytes(), maxBytes); // nunca más grande que la caché entera
+        try {
+            Files.createDirectories(root.resolve(TMP_DIR));
+            rebuild();
+            enabled = maxBytes > 0;
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("[FILE-CACHE] Deshabilitada, no se puede usar {}: {}", root, e.getMessage());
+            enabled = false;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Archivos más grandes que esto no se cachean (se sirven directo de file-service). */
+    public long maxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    public Optional<Path> get(String driveFileId) {
+        if (!enabled)
+            return Optional.empty();
+        Entry e;
+        synchronized (this) {
+            e = lru.get(driveFileId);
+        }
+        if (e == null)
+            return Optional.empty();
+        if (!Files.exists(e.path())) { // borrado por fuera
+            remove(driveFileId);
+            return Optional.empty();
+        }
+        return Optional.of(e.path());
+    }
+
+    /**
+     * Devuelve el archivo cacheado o lo descarga con {@code filler}. Las
+     * peticiones concurrentes por el mismo driveFileId comparten una sola descarga.
+     *
+     * @throws EntryTooLargeException si lo descargado supera {@link #maxEntryBytes()}
+     */
+    public Path getOrFill(String driveFileId, Filler filler) throws IOException {
+        if (!enabled)
+            throw new IllegalStateException("Caché de archivos deshabilitada");
+        Optional<Path> hit = get(driveFileId);
+        if (hit.isPresent())
+            return hit.get();
+
+        CompletableFuture<Path> mine = new CompletableFuture<>();
+        CompletableFuture<Path> running = inFlight.putIfAbsent(driveFileId, mine);
+        if (running != null)
+            return await(running);
+
+        try {
+            Path path = fill(driveFileId, filler);
+            mine.complete(path);
+            return path;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(driveFileId, mine);
+        }
+    }
+
+    public void invalidate(String driveFileId) {
+        remove(driveFileId);
+    }
+
+    /** Invalida todos los archivos indicados (p. ej. los de un producto borrado). */
+    public void invalidateAll(Collection<String> driveFileIds) {
+        driveFileIds.forEach(this::remove);
+    }
+
+    private Path fill(String driveFileId, Filler filler) throws IOException {
+        if (!isSafeId(driveFileId))
+            throw new IllegalArgumentException("driveFileId inválido: " + driveFileId);
+        Path target = root.resolve(driveFileId);
+        Path tmp = Files.createTempFile(root.resolve(TMP_DIR), driveFileId, ".part");
+        try {
+            filler.writeTo(tmp);
+            long size = Files.size(tmp);
+            if (size > maxEntryBytes)
+                throw new EntryTooLargeException(driveFileId, size, maxEntryBytes);
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            register(driveFileId, new Entry(target, size));
+            return target;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private void register(String driveFileId, Entry entry) {
+        List<Entry> evicted = new ArrayList<>();
+        synchronized (this) {
+            Entry old = lru.put(driveFileId, entry);
+            if (old != null) {
+                totalBytes -= old.size();
+                if (!old.path().equals(entry.path()))
+                    evicted.add(old);
+            }
+            totalBytes += entry.size();
+            Iterator<Map.Entry<String, Entry>> it = lru.entrySet().iterator();
+            while (totalBytes > maxBytes && it.hasNext()) {
+                Map.Entry<String, Entry> eldest = it.next();
+                if (eldest.getKey().equals(driveFileId))
+                    continue; // nunca el que se acaba de llenar: cabe solo, fill ya lo acotó
+                it.remove();
+                totalBytes -= eldest.getValue().size();
+                evicted.add(eldest.getValue());
+            }
+        }
+        // borrar fuera del lock; un lector con el archivo abierto sigue leyendo sin problema
+        for (Entry e : evicted)
+            deleteQuietly(e.path());
+    }
+
+    private void remove(String driveFileId) {
+        Entry e;
+        synchronized (this) {
+            e = lru.remove(driveFileId);
+            if (e != null)
+                totalBytes -= e.size();
+        }
+        if (e != null)
+            deleteQuietly(e.path());
+    }
+
+    /**
+     * Reconstruye el índice desde disco; los más antiguos quedan primeros para
+     * expulsar. Lo que no encaja (subdirectorios del formato anterior
+     * {productId}/{driveFileId}, nombres inválidos, archivos de más) se borra.
+     */
+    private void rebuild() throws IOException {
+        try (Stream<Path> leftovers = Files.list(root.resolve(TMP_DIR))) {
+            leftovers.forEach(FileDownloadCache::deleteQuietly); // llenados interrumpidos
+        }
+        record Found(String driveFileId, Entry entry, long modified) {}
+        List<Found> found = new ArrayList<>();
+        try (Stream<Path> entries = Files.list(root)) {
+            for (Path f : (Iterable<Path>) entries::iterator) {
+                String name = f.getFileName().toString();
+                if (name.equals(TMP_DIR))
+                    continue;
+                BasicFileAttributes a = Files.readAttributes(f, BasicFileAttributes.class);
+                if (a.isDirectory())
+                    deleteTree(f);
+                else if (!isSafeId(name) || a.size() > maxEntryBytes)
+                    deleteQuietly(f);
+                else
+                    found.add(new Found(name, new Entry(f, a.size()), a.lastModifiedTime().toMillis()));
+            }
+        }
+        found.sort(Comparator.comparingLong(Found::modified));
+        for (Found f : found)
+            register(f.driveFileId(), f.entry()); // expulsa si max-size bajó desde el último arranque
+        log.info("[FILE-CACHE] {} archivos ({} MB) en {}", lru.size(), totalBytes / (1024 * 1024), root);
+    }
+
+    private static Path await(CompletableFuture<Path> running) throws IOException {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io)
+                throw io;
+            if (e.getCause() instanceof RuntimeException re)
+                throw re;
+            throw e;
+        }
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        try (Stream<Path> all = Files.walk(dir)) {
+            all.sorted(Comparator.reverseOrder()).forEach(FileDownloadCache::deleteQuietly);
+        }
+    }
+
+    private static void deleteQuietly(Path p) {
+        try {
+            Files.deleteIfExists(p);
+        } catch (IOException e) {
+            log.warn("[FILE-CACHE] No se pudo borrar {}: {}", p, e.getMessage());
+        }
+    }
+
+    private static boolean isSafeId(String id) {
+        return id != null && id.matches("[A-Za-z0-9_-]{1,128}");
+    }
+}
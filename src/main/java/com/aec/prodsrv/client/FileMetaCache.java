@@ -0,0 +1,42 @@
+package com.aec.prodsrv.client;
+
+import com.aec.prodsrv.client.dto.FileInfoDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Último metadato conocido de cada producto en file-service. Sólo se usa como
+ * respaldo cuando la lectura en vivo no es posible (breaker abierto, bulkhead
+ * lleno o error).
+ */
+@Component
+public class FileMetaCache {
+
+    private final Cache<Long, List<FileInfoDto>> cache;
+
+    public FileMetaCache(@Value("${file-service.meta-cache.max-entries:5000}") long maxEntries,
+            @Value("${file-service.meta-cache.ttl:6h}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public void put(Long productId, List<FileInfoDto> metas) {
+        cache.put(productId, List.copyOf(metas));
+    }
+
+    public Optional<List<FileInfoDto>> get(Long productId) {
+        return Optional.ofNullable(cache.getIfPresent(productId));
+    }
+
+    public void evict(Long productId) {
+        cache.invalidate(productId);
+    }
+}
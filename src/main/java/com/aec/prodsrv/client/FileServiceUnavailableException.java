@@ -0,0 +1,16 @@
+package com.aec.prodsrv.client;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * file-service no acepta la llamada: circuit breaker abierto o bulkhead
+ * lleno. Las escrituras fallan rápido con 503 en lugar de quedarse colgadas.
+ */
+public class FileServiceUnavailableException extends ResponseStatusException {
+
+    public FileServiceUnavailableException(String operation, Throwable cause) {
+        super(HttpStatus.SERVICE_UNAVAILABLE,
+                "file-service no disponible temporalmente (" + operation + "), intenta de nuevo más tarde", cause);
+    }
+}
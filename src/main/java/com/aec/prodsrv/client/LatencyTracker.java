@@ -0,0 +1,47 @@
+package com.aec.prodsrv.client;
+
+import java.util.Arrays;
+import java.util.OptionalLong;
+
+/**
+ * Ventana circular con las últimas latencias (ms) de una operación. Se usa
+ * para calcular el retardo de las peticiones de cobertura (hedging).
+ */
+class LatencyTracker {
+
+    private final long[] samples;
+    private final int minSamples;
+    private int next;
+    private int count;
+    private int sinceSort;
+    private long[] sorted = new long[0];
+
+    /** Se reordena la ventana como mucho cada tantas muestras nuevas. */
+    private static final int RESORT_EVERY = 32;
+
+    LatencyTracker(int window, int minSamples) {
+        this.samples = new long[window];
+        this.minSamples = minSamples;
+    }
+
+    synchronized void record(long millis) {
+        samples[next] = millis;
+        next = (next + 1) % samples.length;
+        if (count < samples.length)
+            count++;
+        sinceSort++;
+    }
+
+    /** Percentil q (0..1) de la ventana, vacío mientras no haya muestras suficientes. */
+    synchronized OptionalLong percentile(double q) {
+        if (count < minSamples)
+            return OptionalLong.empty();
+        if (sorted.length == 0 || sinceSort >= RESORT_EVERY) {
+            sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            sinceSort = 0;
+        }
+        int idx = (int) Math.ceil(q * sorted.length) - 1;
+        return OptionalLong.of(sorted[Math.max(0, Math.min(idx, sorted.length - 1))]);
+    }
+}
@@ -0,0 +1,50 @@
+package com.aec.prodsrv.client;
+
+import java.time.Duration;
+import java.util.OptionalLong;
+
+/**
+ * Plazo absoluto (System.nanoTime) del request en curso. Lo fija el
+ * controller vía {@code @LatencyBudget}; los clientes lo leen al armar cada
+ * llamada, en el hilo del request, y la acotan a lo que quede del presupuesto.
+ */
+public final class RequestDeadline {
+
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    private RequestDeadline() {}
+
+    public static void start(Duration budget) {
+        DEADLINE.set(System.nanoTime() + budget.toNanos());
+    }
+
+    public static void clear() {
+        DEADLINE.remove();
+    }
+
+    /** Plazo absoluto del request actual, si lo hay. */
+    public static OptionalLong current() {
+        Long d = DEADLINE.get();
+        return d == null ? OptionalLong.empty() : OptionalLong.of(d);
+    }
+
+    /** Tiempo que queda hasta el plazo dado (puede ser cero o negativo). */
+    public static Duration remaining(long deadlineNanos) {
+        return Duration.ofNanos(deadlineNanos - System.nanoTime());
+    }
+
+    /**
+     * Tiempo restante del request actual acotado por {@code cap}. Sin plazo
+     * devuelve {@code cap}; con el plazo vencido lanza
+     * {@link DeadlineExceededException}.
+     */
+    public static Duration remainingOr(Duration cap, String operation) {
+        OptionalLong d = current();
+        if (d.isEmpty())
+            return cap;
+        Duration left = remaining(d.getAsLong());
+        if (left.isNegative() || left.isZero())
+            throw new DeadlineExceededException(operation);
+        return left.compareTo(cap) < 0 ? left : cap;
+    }
+}
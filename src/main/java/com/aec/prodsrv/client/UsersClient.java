@@ -1,6 +1,7 @@
 // src/main/java/com/aec/prodsrv/client/UsersClient.java
 package com.aec.prodsrv.client;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -10,8 +11,10 @@ import org.springframework.web.client.RestTemplate;
 
 import jakarta.annotation.PostConstruct;
 
+import java.time.Duration;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,12 +25,14 @@ public class UsersClient {
     private static final Logger log = LoggerFactory.getLogger(UsersClient.class);
 
     private final RestTemplate rt;
+    private final ClientMetrics metrics;
 
     @Value("${users.service.url}")
     private String usersBaseUrl; // p.ej: http://users-service.railway.internal:8081/api/users
 
-    public UsersClient(@Qualifier("usersRestTemplate") RestTemplate rt) {
+    public UsersClient(@Qualifier("usersRestTemplate") RestTemplate rt, MeterRegistry meterRegistry) {
         this.rt = rt;
+        this.metrics = new ClientMetrics(meterRegistry, "users.client", "users");
     }
 
     @PostConstruct
@@ -44,9 +49,14 @@ public class UsersClient {
         };
 
         for (String path : paths) {
+            if (deadlineExpired()) {
+                log.warn("[UsersClient] Plazo del request agotado; no se intenta {}", path);
+                break;
+            }
             try {
                 log.info("[UsersClient] GET {}", path);
-                ResponseEntity<Map> resp = rt.getForEntity(path, Map.class, username);
+                // op = plantilla del path: cardinalidad acotada
+                ResponseEntity<Map> resp = metrics.timed(path, () -> rt.getForEntity(path, Map.class, username));
                 if (resp.getStatusCode().is2xxSuccessful() && resp.getBody() != null) {
                     Object email = resp.getBody().get("email");
                     log.info("[UsersClient] Resuelto email='{}' para username='{}' vía {}",
@@ -62,4 +72,9 @@ public class UsersClient {
         log.warn("[UsersClient] No se pudo resolver email para '{}'", username);
         return Optional.empty();
     }
+
+    private static boolean deadlineExpired() {
+        OptionalLong d = RequestDeadline.current();
+        return d.isPresent() && RequestDeadline.remaining(d.getAsLong()).compareTo(Duration.ZERO) <= 0;
+    }
 }
@@ -1,49 +1,144 @@
 package com.aec.prodsrv.config;
 
-import java.time.Duration;
-
+import com.aec.prodsrv.client.RequestDeadline;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import io.netty.channel.ChannelOption;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.io.SocketConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 @Configuration
+@EnableConfigurationProperties(HttpPoolsProperties.class)
+@ImportRuntimeHints(NativeHints.class)
 public class AppConfig {
 
-    @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    /**
+     * Pool propio de file-service. Con metrics(true) Reactor Netty publica
+     * reactor.netty.connection.provider.{total,active,idle,pending}.connections
+     * con tag name=file-service.
+     */
+    @Bean(name = "fileServicePool", destroyMethod = "dispose")
+    public ConnectionProvider fileServicePool(HttpPoolsProperties props) {
+        HttpPoolsProperties.Pool cfg = props.pool("file-service");
+        return ConnectionProvider.builder("file-service")
+                .maxConnections(cfg.getMaxConnections())
+                .pendingAcquireMaxCount(cfg.getPendingAcquireMax())
+                .pendingAcquireTimeout(cfg.getPendingAcquireTimeout())
+                .maxIdleTime(cfg.getMaxIdleTime())
+                .maxLifeTime(cfg.getMaxLifeTime())
+                .evictInBackground(cfg.getEvictInterval())
+                .metrics(true)
+                .build();
     }
 
-    @Bean
-    public WebClient webClient(
+    @Bean(name = "fileServiceWebClient")
+    public WebClient fileServiceWebClient(
             WebClient.Builder builder,
-            @Value("${filesrv.url:\"https://aecf-production.up.railway.app\",\n" + //
-                    "      \"https://aecblock.com\"}") String baseUrl) {
-        return builder
+            @Qualifier("fileServicePool") ConnectionProvider pool,
+            HttpPoolsProperties props,
+            @Value("${file-service.base-url}") String baseUrl) {
+        HttpPoolsProperties.Pool cfg = props.pool("file-service");
+        HttpClient http = HttpClient.create(pool)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) cfg.getConnectTimeout().toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(cfg.getResponseTimeout());
+        // clone(): el builder de Boot es compartido y ya trae observación/codecs
+        return builder.clone()
                 .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(http))
+                .build();
+    }
+
+    @Bean(name = "usersConnectionManager", destroyMethod = "close")
+    public PoolingHttpClientConnectionManager usersConnectionManager(HttpPoolsProperties props,
+            MeterRegistry registry) {
+        HttpPoolsProperties.Pool cfg = props.pool("users-service");
+        PoolingHttpClientConnectionManager cm = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(cfg.getMaxConnections())
+                .setMaxConnPerRoute(cfg.getMaxConnections())
+                .setDefaultSocketConfig(SocketConfig.custom()
+                        .setSoKeepAlive(true)
+                        .setSoTimeout(Timeout.of(cfg.getResponseTimeout()))
+                        .build())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(cfg.getConnectTimeout()))
+                        .setSocketTimeout(Timeout.of(cfg.getResponseTimeout()))
+                        .setTimeToLive(TimeValue.of(cfg.getMaxLifeTime()))
+                        .build())
                 .build();
+        // httpcomponents.httpclient.pool.total.{max,connections,pending}{httpclient=users-service}
+        new PoolingHttpClientConnectionManagerMetricsBinder(cm, "users-service").bindTo(registry);
+        return cm;
     }
 
     @Bean(name = "usersRestTemplate")
     public RestTemplate usersRestTemplate(
             RestTemplateBuilder builder,
-            @Value("${users.service.url}") String usersServiceRootUri,
-            @Value("${http.client.connect-timeout-ms:5000}") long connectTimeoutMs,
-            @Value("${http.client.read-timeout-ms:5000}") long readTimeoutMs) {
+            @Qualifier("usersConnectionManager") PoolingHttpClientConnectionManager cm,
+            HttpPoolsProperties props,
+            @Value("${users.service.url}") String usersServiceRootUri) {
 
         String root = usersServiceRootUri.trim();
         if (!root.startsWith("http://") && !root.startsWith("https://")) {
             root = "http://" + root;
         }
 
+        HttpPoolsProperties.Pool cfg = props.pool("users-service");
+        CloseableHttpClient client = HttpClients.custom()
+                .setConnectionManager(cm)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(cfg.getPendingAcquireTimeout()))
+                        .setResponseTimeout(Timeout.of(cfg.getResponseTimeout()))
+                        .build())
+                .setKeepAliveStrategy((response, context) -> TimeValue.of(cfg.getKeepAlive()))
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(cfg.getMaxIdleTime()))
+                .build();
+
         return builder
                 .rootUri(root)
-                .setConnectTimeout(Duration.ofMillis(connectTimeoutMs))
-                .setReadTimeout(Duration.ofMillis(readTimeoutMs))
+                .requestFactory(() -> deadlineAwareFactory(client, cfg))
                 .build();
     }
 
+    /**
+     * Cada petición usa como timeout de respuesta lo que quede del plazo del
+     * request en curso (RequestDeadline), nunca más que el configurado.
+     */
+    private static HttpComponentsClientHttpRequestFactory deadlineAwareFactory(CloseableHttpClient client,
+            HttpPoolsProperties.Pool cfg) {
+        HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(client);
+        factory.setHttpContextFactory((method, uri) -> {
+            HttpClientContext ctx = HttpClientContext.create();
+            ctx.setRequestConfig(RequestConfig.custom()
+                    .setConnectionRequestTimeout(Timeout.of(cfg.getPendingAcquireTimeout()))
+                    .setResponseTimeout(Timeout.of(
+                            RequestDeadline.remainingOr(cfg.getResponseTimeout(), "users-service")))
+                    .build());
+            return ctx;
+        });
+        return factory;
+    }
+
 }
@@ -0,0 +1,65 @@
+package com.aec.prodsrv.config;
+
+import com.aec.prodsrv.client.RequestDeadline;
+import com.aec.prodsrv.controller.LatencyBudget;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Arranca el plazo del request según el {@link LatencyBudget} del handler.
+ * Si el cliente/gateway envía {@value #TIMEOUT_HEADER} (ms) se usa el menor
+ * de los dos.
+ */
+@Component
+public class DeadlineInterceptor implements HandlerInterceptor {
+
+    static final String TIMEOUT_HEADER = "X-Request-Timeout-Ms";
+
+    private final Environment env;
+    private final Map<String, Duration> resolved = new ConcurrentHashMap<>();
+
+    public DeadlineInterceptor(Environment env) {
+        this.env = env;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RequestDeadline.clear();
+        if (!(handler instanceof HandlerMethod hm))
+            return true;
+        LatencyBudget ann = hm.getMethodAnnotation(LatencyBudget.class);
+        if (ann == null)
+            return true;
+
+        Duration budget = resolved.computeIfAbsent(ann.value(),
+                v -> DurationStyle.detectAndParse(env.resolveRequiredPlaceholders(v)));
+        String header = request.getHeader(TIMEOUT_HEADER);
+        if (header != null) {
+            try {
+                Duration fromClient = Duration.ofMillis(Long.parseLong(header.trim()));
+                if (fromClient.compareTo(budget) < 0)
+                    budget = fromClient;
+            } catch (NumberFormatException ignored) {
+                // cabecera inválida: nos quedamos con el presupuesto del endpoint
+            }
+        }
+        if (!budget.isZero() && !budget.isNegative())
+            RequestDeadline.start(budget);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        RequestDeadline.clear();
+    }
+}
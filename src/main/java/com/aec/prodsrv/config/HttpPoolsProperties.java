@@ -0,0 +1,47 @@
+package com.aec.prodsrv.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pools de conexiones HTTP por servicio destino (http.pools.&lt;nombre&gt;.*).
+ * Cada downstream tiene el suyo, así un servicio lento no agota las
+ * conexiones del otro.
+ */
+@Data
+@ConfigurationProperties(prefix = "http")
+public class HttpPoolsProperties {
+
+    private Map<String, Pool> pools = new HashMap<>();
+
+    public Pool pool(String name) {
+        return pools.getOrDefault(name, new Pool());
+    }
+
+    @Data
+    public static class Pool {
+        /** Conexiones simultáneas máximas hacia el servicio. */
+        private int maxConnections = 50;
+        /** Peticiones que pueden esperar conexión libre (sólo pool reactivo). */
+        private int pendingAcquireMax = 200;
+        /** Espera máxima por una conexión libre antes de fallar. */
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+        /** Conexiones ociosas más antiguas que esto se cierran. */
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        /** Vida máxima de una conexión (rota DNS/balanceadores). */
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        /** Cada cuánto se revisa el pool para desalojar conexiones ociosas. */
+        private Duration evictInterval = Duration.ofSeconds(15);
+        /**
+         * Keep-alive por defecto si el servidor no envía cabecera Keep-Alive.
+         * Sólo el pool bloqueante (HttpClient5); en el reactivo manda max-idle-time.
+         */
+        private Duration keepAlive = Duration.ofSeconds(30);
+        private Duration connectTimeout = Duration.ofSeconds(5);
+        private Duration responseTimeout = Duration.ofSeconds(30);
+    }
+}
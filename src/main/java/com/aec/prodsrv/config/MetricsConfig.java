@@ -0,0 +1,19 @@
+package com.aec.prodsrv.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Habilita @Timed en beans de Spring: prod.service{class,method,exception}
+     * para cada método público de ProductService.
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+}
@@ -0,0 +1,62 @@
+package com.aec.prodsrv.config;
+
+import com.aec.prodsrv.client.FileClient;
+import com.aec.prodsrv.client.dto.FileInfoDto;
+import com.aec.prodsrv.dto.CatalogStatsDto;
+import com.aec.prodsrv.dto.ProductDto;
+import com.aec.prodsrv.dto.ReviewItemDto;
+import com.aec.prodsrv.repository.ProductRepository;
+import com.aec.prodsrv.security.CustomUserDetailsService;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.data.projection.TargetAware;
+
+/**
+ * Pistas para la imagen nativa (perfil native). Spring ya registra los
+ * controladores, las entidades y los repositorios; aquí va lo que se usa por
+ * reflexión fuera de su vista: DTOs que se (de)serializan a mano o vía
+ * WebClient/RestTemplate, las proyecciones de ProductRepository y jjwt 0.11,
+ * que carga su implementación por nombre y su serializador con ServiceLoader.
+ */
+public class NativeHints implements RuntimeHintsRegistrar {
+
+    /** jjwt-impl y jjwt-jackson son runtime: se referencian por nombre. */
+    static final String[] JJWT_TYPES = {
+            "io.jsonwebtoken.impl.DefaultJwtBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtParserBuilder",
+            "io.jsonwebtoken.impl.DefaultClaims",
+            "io.jsonwebtoken.impl.DefaultHeader",
+            "io.jsonwebtoken.impl.DefaultJwsHeader",
+            "io.jsonwebtoken.impl.compression.DeflateCompressionCodec",
+            "io.jsonwebtoken.impl.compression.GzipCompressionCodec",
+            "io.jsonwebtoken.jackson.io.JacksonSerializer",
+            "io.jsonwebtoken.jackson.io.JacksonDeserializer",
+    };
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        BindingReflectionHintsRegistrar bindings = new BindingReflectionHintsRegistrar();
+        bindings.registerReflectionHints(hints.reflection(),
+                ProductDto.class, ReviewItemDto.class, CatalogStatsDto.class, FileInfoDto.class,
+                FileClient.StagingInfoDto.class, CustomUserDetailsService.UserDto.class);
+        // Manifiesto de sesiones de subida (record privado del paquete service)
+        hints.reflection().registerType(TypeReference.of("com.aec.prodsrv.service.UploadSessionService$Manifest"),
+                MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.DECLARED_FIELDS,
+                MemberCategory.INVOKE_DECLARED_METHODS);
+
+        for (Class<?> projection : new Class<?>[] { ProductRepository.StatsRow.class,
+                ProductRepository.CategoryRow.class }) {
+            hints.proxies().registerJdkProxy(AopProxyUtils.completeJdkProxyInterfaces(projection, TargetAware.class));
+            hints.reflection().registerType(projection, MemberCategory.INVOKE_PUBLIC_METHODS);
+        }
+
+        for (String type : JJWT_TYPES)
+            hints.reflection().registerType(TypeReference.of(type), MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS,
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+        hints.resources().registerPattern("META-INF/services/io.jsonwebtoken.*");
+    }
+}
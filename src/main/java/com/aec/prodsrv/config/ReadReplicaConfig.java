@@ -0,0 +1,71 @@
+package com.aec.prodsrv.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@EnableConfigurationProperties(ReadReplicaProperties.class)
+public class ReadReplicaConfig {
+
+    /**
+     * Con réplicas activas reemplaza al DataSource autoconfigurado: el primario
+     * sale de spring.datasource (y spring.datasource.hikari.*) como siempre.
+     */
+    @Configuration
+    @ConditionalOnProperty(prefix = "datasource.read-replicas", name = "enabled", havingValue = "true")
+    static class Routing {
+
+        @Bean
+        @ConfigurationProperties("spring.datasource.hikari")
+        HikariDataSource primaryDataSource(DataSourceProperties props) {
+            HikariDataSource ds = props.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+            ds.setPoolName("primary");
+            return ds;
+        }
+
+        @Bean
+        ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+                DataSourceProperties primaryProps, ReadReplicaProperties props, ReadYourWrites readYourWrites,
+                MeterRegistry registry) {
+            List<DataSource> replicas = new ArrayList<>();
+            for (int i = 0; i < props.getUrls().size(); i++) {
+                HikariDataSource r = new HikariDataSource();
+                r.setPoolName("replica-" + i);
+                r.setJdbcUrl(props.getUrls().get(i).trim());
+                r.setUsername(props.getUsername() != null ? props.getUsername() : primaryProps.determineUsername());
+                r.setPassword(props.getPassword() != null ? props.getPassword() : primaryProps.determinePassword());
+                r.setDriverClassName(primaryProps.determineDriverClassName());
+                r.setMaximumPoolSize(props.getMaxPoolSize());
+                r.setConnectionTimeout(props.getConnectionTimeout().toMillis());
+                r.setReadOnly(true);
+                // sin fallar el arranque si una réplica está caída: el chequeo la marca
+                r.setInitializationFailTimeout(-1);
+                replicas.add(r);
+            }
+            ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primaryDataSource, replicas,
+                    readYourWrites, props.getLagQuery(), props.getMaxLag());
+            routing.bindMetrics(registry);
+            routing.checkReplicas();
+            routing.start(props.getCheckIntervalMs());
+            return routing;
+        }
+
+        @Bean
+        @Primary
+        DataSource dataSource(ReplicaRoutingDataSource routing) {
+            return new LazyConnectionDataSourceProxy(routing);
+        }
+    }
+}
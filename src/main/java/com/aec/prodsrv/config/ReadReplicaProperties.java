@@ -0,0 +1,39 @@
+package com.aec.prodsrv.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Réplicas de lectura (datasource.read-replicas.*). Sin {@code enabled} todo
+ * va al datasource primario de spring.datasource.
+ */
+@Data
+@ConfigurationProperties(prefix = "datasource.read-replicas")
+public class ReadReplicaProperties {
+
+    private boolean enabled = false;
+    /** JDBC URLs de las réplicas; se reparten en round-robin. */
+    private List<String> urls = new ArrayList<>();
+    /** Credenciales de las réplicas; vacías = las del primario. */
+    private String username;
+    private String password;
+    private int maxPoolSize = 10;
+    /** Espera máxima por conexión de réplica antes de caer al primario. */
+    private Duration connectionTimeout = Duration.ofSeconds(2);
+    /** Réplicas con más retraso que esto no reciben lecturas. */
+    private Duration maxLag = Duration.ofSeconds(5);
+    private long checkIntervalMs = 5000;
+    /**
+     * Retraso de replicación en segundos. 0 si la réplica ya aplicó todo lo
+     * recibido (si no, un primario sin escrituras haría crecer el valor).
+     */
+    private String lagQuery = """
+            SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                        ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END""";
+    /** Tras escribir, las lecturas de ese usuario van al primario durante esta ventana. */
+    private Duration pinWindow = Duration.ofSeconds(10);
+}
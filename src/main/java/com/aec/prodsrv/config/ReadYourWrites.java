@@ -0,0 +1,43 @@
+package com.aec.prodsrv.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Usuarios que acaban de escribir: sus lecturas van al primario durante
+ * {@code pin-window} para que vean su propio cambio aunque la réplica vaya
+ * atrasada. Es por instancia; el retraso tolerado (max-lag) cubre el caso de
+ * que el siguiente request caiga en otra.
+ */
+@Component
+public class ReadYourWrites {
+
+    private final Cache<String, Boolean> pinned;
+
+    public ReadYourWrites(ReadReplicaProperties props) {
+        this.pinned = Caffeine.newBuilder()
+                .expireAfterWrite(props.getPinWindow())
+                .maximumSize(100_000)
+                .build();
+    }
+
+    public void pin(String username) {
+        if (username != null && !username.isBlank())
+            pinned.put(username, Boolean.TRUE);
+    }
+
+    /** Fija al usuario autenticado del request actual. */
+    public void pinCurrentUser() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null)
+            pin(auth.getName());
+    }
+
+    boolean isCurrentUserPinned() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null && pinned.getIfPresent(auth.getName()) != null;
+    }
+}
@@ -0,0 +1,184 @@
+package com.aec.prodsrv.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transacciones read-only a una réplica sana (round-robin), el resto al
+ * primario. Una réplica deja de recibir lecturas si no responde o si su
+ * retraso supera max-lag; {@link #checkReplicas()} la reincorpora cuando se
+ * recupera. Va envuelto en LazyConnectionDataSourceProxy: la conexión se pide
+ * después de que Spring marque la transacción como read-only.
+ *
+ * El chequeo corre en un hilo propio ({@link #start}), no en el scheduler de
+ * Spring: detrás de un recuento completo o una reconciliación una réplica
+ * atrasada seguiría recibiendo lecturas.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    static final String PRIMARY = "primary";
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final ReadYourWrites readYourWrites;
+    private final String lagQuery;
+    private final Duration maxLag;
+    private final AtomicInteger next = new AtomicInteger();
+    private ScheduledExecutorService checker;
+
+    static final class Replica {
+        final String name;
+        final DataSource dataSource;
+        volatile boolean up = true;
+        volatile double lagSeconds;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, ReadYourWrites readYourWrites,
+            String lagQuery, Duration maxLag) {
+        this.primary = primary;
+        this.readYourWrites = readYourWrites;
+        this.lagQuery = lagQuery;
+        this.maxLag = maxLag;
+        this.replicas = new ArrayList<>();
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica r = new Replica("replica-" + i, replicas.get(i));
+            this.replicas.add(r);
+            targets.put(r.name, r.dataSource);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || readYourWrites.isCurrentUserPinned())
+            return PRIMARY;
+        int n = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(n, 1));
+        for (int i = 0; i < n; i++) {
+            Replica r = replicas.get((start + i) % n);
+            if (r.up)
+                return r.name;
+        }
+        return PRIMARY;
+    }
+
+    /** Si la réplica elegida no da conexión se marca caída y se lee del primario. */
+    @Override
+    public Connection getConnection() throws SQLException {
+        Object key = determineCurrentLookupKey();
+        Replica replica = replica(key);
+        if (replica == null)
+            return primary.getConnection();
+        try {
+            return replica.dataSource.getConnection();
+        } catch (SQLException e) {
+            markDown(replica, e.getMessage());
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+
+    /** Chequea las réplicas cada {@code intervalMs} en su propio hilo. */
+    public synchronized void start(long intervalMs) {
+        if (checker != null || replicas.isEmpty())
+            return;
+        checker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "replica-check");
+            t.setDaemon(true);
+            return t;
+        });
+        checker.scheduleWithFixedDelay(() -> {
+            try {
+                checkReplicas();
+            } catch (RuntimeException e) { // una excepción cancelaría las siguientes ejecuciones
+                log.warn("[REPLICAS] Chequeo fallido: {}", e.getMessage());
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** Detiene el chequeo y cierra los pools de las réplicas (el del primario es un bean aparte). */
+    @Override
+    public void close() throws Exception {
+        synchronized (this) {
+            if (checker != null)
+                checker.shutdownNow();
+        }
+        for (Replica r : replicas)
+            if (r.dataSource instanceof AutoCloseable c)
+                c.close();
+    }
+
+    /** Salud y retraso de cada réplica. */
+    public void checkReplicas() {
+        for (Replica r : replicas) {
+            try (Connection c = r.dataSource.getConnection();
+                    Statement st = c.createStatement();
+                    ResultSet rs = st.executeQuery(lagQuery)) {
+                r.lagSeconds = rs.next() ? rs.getDouble(1) : 0;
+                boolean fresh = r.lagSeconds * 1000 <= maxLag.toMillis();
+                if (!fresh && r.up)
+                    log.warn("[REPLICAS] {} atrasada {}s (máx {}): lecturas al primario", r.name, r.lagSeconds, maxLag);
+                else if (fresh && !r.up)
+                    log.info("[REPLICAS] {} disponible de nuevo (retraso {}s)", r.name, r.lagSeconds);
+                r.up = fresh;
+            } catch (SQLException e) {
+                markDown(r, e.getMessage());
+            }
+        }
+    }
+
+    void bindMetrics(MeterRegistry registry) {
+        for (Replica r : replicas) {
+            Gauge.builder("datasource.replica.up", r, x -> x.up ? 1 : 0).tag("replica", r.name).register(registry);
+            Gauge.builder("datasource.replica.lag", r, x -> x.lagSeconds).tag("replica", r.name)
+                    .baseUnit("seconds").register(registry);
+        }
+    }
+
+    private void markDown(Replica r, String reason) {
+        if (r.up)
+            log.warn("[REPLICAS] {} no disponible ({}): lecturas al primario", r.name, reason);
+        r.up = false;
+    }
+
+    private Replica replica(Object key) {
+        for (Replica r : replicas)
+            if (r.name.equals(key))
+                return r;
+        return null;
+    }
+}
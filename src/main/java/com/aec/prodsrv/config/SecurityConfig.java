@@ -1,5 +1,6 @@
 package com.aec.prodsrv.config; // Asegúrate de que el paquete sea correcto
 
+import com.aec.prodsrv.service.UploadTicketService;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -7,7 +8,14 @@ import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity; // Añade esta si no está
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
 import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
@@ -33,7 +41,17 @@ public class SecurityConfig {
   public JwtDecoder jwtDecoder() {
     byte[] keyBytes = Base64.getDecoder().decode(jwtSecret);
     SecretKey key   = new SecretKeySpec(keyBytes, "HmacSHA256");
-    return NimbusJwtDecoder.withSecretKey(key).build();
+    NimbusJwtDecoder decoder = NimbusJwtDecoder.withSecretKey(key).build();
+    // Los tickets de subida comparten clave con los JWT de usuario, pero no son credenciales de prod-service
+    decoder.setJwtValidator(new DelegatingOAuth2TokenValidator<>(JwtValidators.createDefault(), notUploadTicket()));
+    return decoder;
+  }
+
+  static OAuth2TokenValidator<Jwt> notUploadTicket() {
+    OAuth2Error error = new OAuth2Error(OAuth2ErrorCodes.INVALID_TOKEN, "Un ticket de subida no es un token de acceso", null);
+    return jwt -> UploadTicketService.TYPE.equals(jwt.getClaimAsString("typ"))
+        ? OAuth2TokenValidatorResult.failure(error)
+        : OAuth2TokenValidatorResult.success();
   }
 
   @Bean 
@@ -56,20 +74,30 @@ public class SecurityConfig {
         .authorizeHttpRequests(auth -> auth
             // Rutas de autenticación (login/registro) - suelen ser públicas
             .requestMatchers(HttpMethod.POST, "/api/auth/**").permitAll()
+            .requestMatchers(HttpMethod.GET, "/api/products/stats").hasAuthority("ROL_ADMIN") // Antes de /{id}, que es público
             .requestMatchers(HttpMethod.GET, "/api/products").permitAll() // Para getAllProducts
             .requestMatchers(HttpMethod.GET, "/api/products/{id}").permitAll() // Para byId (producto individual)
+            .requestMatchers(HttpMethod.GET, "/api/products/{id}/images/**").permitAll() // Miniaturas/variantes de fotos
+            .requestMatchers(HttpMethod.GET, "/api/products/{id}/files/**").permitAll() // Descargas (AUT exige sesión en el controller)
 
             .requestMatchers("/error").permitAll()
+            .requestMatchers(HttpMethod.GET, "/actuator/health/**").permitAll() // Health-check del contenedor
+            .requestMatchers(HttpMethod.GET, "/actuator/prometheus").hasAnyAuthority("ROL_MONITOREO", "ROL_ADMIN") // Scrape con token del monitoreo
+            .requestMatchers("/actuator/**").hasAuthority("ROL_ADMIN") // metrics/info: detalle interno
 
             // Rutas protegidas (Colaborador)
             .requestMatchers(HttpMethod.POST, "/api/products").hasAuthority("ROL_COLABORADOR") // Crear producto
             .requestMatchers(HttpMethod.PUT, "/api/products/{id}").hasAuthority("ROL_COLABORADOR") // Actualizar producto
             .requestMatchers(HttpMethod.DELETE, "/api/products/{id}").hasAuthority("ROL_COLABORADOR") // Eliminar producto
             .requestMatchers(HttpMethod.GET, "/api/products/my-products").hasAuthority("ROL_COLABORADOR") // Mis productos
+            .requestMatchers("/api/products/{id}/upload-sessions/**").hasAuthority("ROL_COLABORADOR") // Subida por trozos
+            .requestMatchers(HttpMethod.POST, "/api/products/{id}/upload-tickets/**").hasAuthority("ROL_COLABORADOR") // Subida directa
 
             // Rutas protegidas (Admin)
             .requestMatchers(HttpMethod.GET, "/api/products/pending").hasAuthority("ROL_ADMIN") // Productos pendientes
             .requestMatchers(HttpMethod.PUT, "/api/products/{id}/decision").hasAuthority("ROL_ADMIN") // Decidir sobre producto
+            .requestMatchers(HttpMethod.POST, "/api/products/review-queue/claim").hasAuthority("ROL_ADMIN") // Reservar pendientes
+            .requestMatchers(HttpMethod.DELETE, "/api/products/{id}/claim").hasAuthority("ROL_ADMIN") // Liberar reserva
 
             // Cualquier otra petición que no haya sido permitida explícitamente antes, REQUIERE autenticación
             .anyRequest().authenticated()
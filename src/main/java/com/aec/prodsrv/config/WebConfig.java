@@ -0,0 +1,20 @@
+package com.aec.prodsrv.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final DeadlineInterceptor deadlineInterceptor;
+
+    public WebConfig(DeadlineInterceptor deadlineInterceptor) {
+        this.deadlineInterceptor = deadlineInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(deadlineInterceptor);
+    }
+}
@@ -0,0 +1,58 @@
+package com.aec.prodsrv.controller;
+
+import java.util.Optional;
+
+/**
+ * Un único rango "bytes=a-b" / "bytes=a-" / "bytes=-n" resuelto contra el
+ * tamaño del archivo. Rangos múltiples no se soportan: se sirve el archivo
+ * completo, como permite RFC 9110.
+ */
+record ByteRange(long start, long end) {
+
+    long length() {
+        return end - start + 1;
+    }
+
+    String contentRange(long size) {
+        return "bytes " + start + "-" + end + "/" + size;
+    }
+
+    /**
+     * @return vacío si no hay cabecera o no se puede interpretar (se responde 200);
+     * lanza {@link Unsatisfiable} si el rango queda fuera del archivo (416).
+     */
+    static Optional<ByteRange> parse(String header, long size) {
+        if (header == null || !header.startsWith("bytes=") || header.indexOf(',') >= 0)
+            return Optional.empty();
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0)
+            return Optional.empty();
+        try {
+            String a = spec.substring(0, dash).trim();
+            String b = spec.substring(dash + 1).trim();
+            long start, end;
+            if (a.isEmpty()) { // sufijo: últimos n bytes
+                long n = Long.parseLong(b);
+                if (n <= 0)
+                    throw new Unsatisfiable();
+                start = Math.max(0, size - n);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(a);
+                end = b.isEmpty() ? size - 1 : Math.min(Long.parseLong(b), size - 1);
+            }
+            if (start >= size || start > end)
+                throw new Unsatisfiable();
+            return Optional.of(new ByteRange(start, end));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    static final class Unsatisfiable extends RuntimeException {
+        Unsatisfiable() {
+            super(null, null, false, false);
+        }
+    }
+}
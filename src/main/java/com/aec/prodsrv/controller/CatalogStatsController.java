@@ -0,0 +1,33 @@
+package com.aec.prodsrv.controller;
+
+import com.aec.prodsrv.dto.CatalogStatsDto;
+import com.aec.prodsrv.model.ProductStatus;
+import com.aec.prodsrv.service.CatalogStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/** Conteos del catálogo servidos desde memoria (ver {@link CatalogStats}). */
+@RestController
+@RequestMapping("/api/products/stats")
+@RequiredArgsConstructor
+public class CatalogStatsController {
+
+    private final CatalogStats stats;
+
+    @GetMapping
+    @PreAuthorize("hasAuthority('ROL_ADMIN')")
+    @LatencyBudget("${http.deadlines.read:3s}")
+    public CatalogStatsDto catalog() {
+        return stats.current();
+    }
+
+    @GetMapping("/uploader/{username}")
+    @PreAuthorize("hasAuthority('ROL_COLABORADOR') or hasAuthority('ROL_ADMIN')")
+    @LatencyBudget("${http.deadlines.read:3s}")
+    public Map<ProductStatus, Long> uploader(@PathVariable("username") String username) {
+        return stats.forUploader(username);
+    }
+}
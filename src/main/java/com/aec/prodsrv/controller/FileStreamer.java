@@ -0,0 +1,190 @@
+package com.aec.prodsrv.controller;
+
+import com.aec.prodsrv.client.FileClient;
+import com.aec.prodsrv.client.FileDownloadCache;
+import com.aec.prodsrv.client.dto.FileInfoDto;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+/**
+ * Escribe un archivo de producto en la respuesta sin cargarlo en memoria.
+ *
+ * Con copia en la caché de disco se usa sendfile de Tomcat cuando el conector
+ * lo soporta (NIO/NIO2), si no FileChannel.transferTo. Sin copia local se
+ * reenvía el cuerpo de file-service bloque a bloque. Soporta un único Range
+ * e If-Range; el ETag es el driveFileId (su contenido nunca cambia).
+ *
+ * Un archivo AUT servido desde la caché se autoriza antes con file-service
+ * ({@link FileClient#checkReadAccess}); reenviado, lo autoriza la propia descarga.
+ */
+@Component
+public class FileStreamer {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    private static final int COPY_BUFFER = 64 * 1024;
+
+    private final FileClient fileClient;
+
+    public FileStreamer(FileClient fileClient) {
+        this.fileClient = fileClient;
+    }
+
+    public void stream(Long productId, FileInfoDto meta, boolean aut,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String driveId = meta.getDriveFileId();
+        String etag = "\"" + driveId + "\"";
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, aut ? "private, max-age=3600" : "public, max-age=86400");
+
+        if (etag.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag))
+            range = null; // validador distinto (o fecha): se manda el archivo completo
+
+        response.setContentType(meta.getFileType() != null ? meta.getFileType() : MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        String name = meta.getOriginalName() != null ? meta.getOriginalName() : driveId;
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                (aut ? ContentDisposition.attachment() : ContentDisposition.inline())
+                        .filename(name, StandardCharsets.UTF_8).build().toString());
+
+        boolean cacheable = meta.getSize() != null && fileClient.isCacheable(meta.getSize());
+        if (cacheable && aut)
+            fileClient.checkReadAccess(driveId); // antes de tocar la caché: un acierto no pasa por file-service
+        Path local = cacheable ? cached(driveId) : null;
+        if (local != null) {
+            sendLocal(local, range, request, response);
+        } else {
+            pipe(driveId, range, response);
+        }
+    }
+
+    /** null si el archivo resultó más grande que lo que dicen sus metadatos y no entra en la caché. */
+    private Path cached(String driveId) throws IOException {
+        try {
+            return fileClient.downloadCached(driveId);
+        } catch (FileDownloadCache.EntryTooLargeException e) {
+            return null;
+        }
+    }
+
+    private void sendLocal(Path file, String rangeHeader, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        long size = Files.size(file);
+        Optional<ByteRange> range = resolve(rangeHeader, size, response);
+        if (range == null)
+            return;
+        long start = range.map(ByteRange::start).orElse(0L);
+        long length = range.map(ByteRange::length).orElse(size);
+        writeHeaders(response, range, size, length);
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT)) && length > 0) {
+            // Tomcat hace el sendfile(2) al terminar el request; no se toca el OutputStream
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + length); // exclusivo
+            return;
+        }
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long pos = start, remaining = length;
+            while (remaining > 0) {
+                long n = in.transferTo(pos, remaining, out);
+                if (n <= 0)
+                    break;
+                pos += n;
+                remaining -= n;
+            }
+        }
+    }
+
+    private void pipe(String driveId, String rangeHeader, HttpServletResponse response) throws IOException {
+        try (FileClient.Download d = fileClient.openDownload(driveId, rangeHeader)) {
+            HttpHeaders up = d.headers();
+            if (d.status() == HttpStatus.PARTIAL_CONTENT.value()) {
+                // file-service resolvió el rango: se reenvía tal cual
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                copyHeader(up, response, HttpHeaders.CONTENT_RANGE);
+                if (up.getContentLength() >= 0)
+                    response.setContentLengthLong(up.getContentLength());
+                copy(d.body(), response.getOutputStream(), Long.MAX_VALUE);
+                return;
+            }
+
+            long size = up.getContentLength();
+            if (size < 0) { // sin longitud no se puede resolver el rango: completo
+                copy(d.body(), response.getOutputStream(), Long.MAX_VALUE);
+                return;
+            }
+            Optional<ByteRange> range = resolve(rangeHeader, size, response);
+            if (range == null)
+                return;
+            long length = range.map(ByteRange::length).orElse(size);
+            writeHeaders(response, range, size, length);
+            if (range.isPresent())
+                d.body().skipNBytes(range.get().start());
+            copy(d.body(), response.getOutputStream(), length);
+        }
+    }
+
+    /** null si ya se respondió 416. */
+    private static Optional<ByteRange> resolve(String header, long size, HttpServletResponse response) {
+        try {
+            return ByteRange.parse(header, size);
+        } catch (ByteRange.Unsatisfiable e) {
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+            return null;
+        }
+    }
+
+    private static void writeHeaders(HttpServletResponse response, Optional<ByteRange> range, long size, long length) {
+        if (range.isPresent()) {
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, range.get().contentRange(size));
+        } else {
+            response.setStatus(HttpStatus.OK.value());
+        }
+        response.setContentLengthLong(length);
+    }
+
+    private static void copyHeader(HttpHeaders from, HttpServletResponse to, String name) {
+        String v = from.getFirst(name);
+        if (v != null)
+            to.setHeader(name, v);
+    }
+
+    private static void copy(InputStream in, OutputStream out, long limit) throws IOException {
+        byte[] buf = new byte[COPY_BUFFER];
+        long remaining = limit;
+        int n;
+        while (remaining > 0 && (n = in.read(buf, 0, (int) Math.min(buf.length, remaining))) != -1) {
+            out.write(buf, 0, n);
+            remaining -= n;
+        }
+    }
+}
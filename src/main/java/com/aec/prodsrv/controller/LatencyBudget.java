@@ -0,0 +1,17 @@
+package com.aec.prodsrv.controller;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Presupuesto de latencia del endpoint (p.ej. {@code "${http.deadlines.read:3s}"}).
+ * Todas las llamadas a file-service y users-service hechas durante el request
+ * comparten ese plazo, que se va reduciendo con cada una.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface LatencyBudget {
+    String value();
+}
@@ -0,0 +1,31 @@
+package com.aec.prodsrv.controller;
+
+import com.aec.prodsrv.dto.ReconcileReport;
+import com.aec.prodsrv.service.OrphanFileReconciler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+/** Operaciones de mantenimiento para administradores. */
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+public class MaintenanceController {
+
+    private final OrphanFileReconciler reconciler;
+
+    @GetMapping("/reconciler")
+    @PreAuthorize("hasAuthority('ROL_ADMIN')")
+    public ResponseEntity<ReconcileReport> lastReconcile() {
+        return reconciler.lastReport()
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.noContent().build());
+    }
+
+    @PostMapping("/reconciler/run")
+    @PreAuthorize("hasAuthority('ROL_ADMIN')")
+    public ReconcileReport runReconcile() {
+        return reconciler.run();
+    }
+}
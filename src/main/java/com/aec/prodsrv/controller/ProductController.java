@@ -2,10 +2,19 @@ package com.aec.prodsrv.controller;
 
 import com.aec.prodsrv.dto.AdminDecisionDto;
 import com.aec.prodsrv.dto.ProductDto;
+import com.aec.prodsrv.dto.ReviewItemDto;
 import com.aec.prodsrv.model.Product;
 import com.aec.prodsrv.model.ProductStatus;
+import com.aec.prodsrv.client.dto.FileInfoDto;
+import com.aec.prodsrv.service.ApprovedCatalogSnapshots;
+import com.aec.prodsrv.service.IdempotencyService;
+import com.aec.prodsrv.service.ProductBundleWriter;
+import com.aec.prodsrv.service.ProductDtoCache;
 import com.aec.prodsrv.service.ProductService;
+import com.aec.prodsrv.service.ReviewQueueService;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -16,12 +25,15 @@ import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.*;
 import org.springframework.http.*;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Collections;
 
@@ -33,22 +45,35 @@ public class ProductController {
 
     private final ProductService svc;
     private final ObjectMapper objectMapper;
+    private final FileStreamer fileStreamer;
+    private final ProductBundleWriter bundleWriter;
+    private final ProductDtoCache productCache;
+    private final ApprovedCatalogSnapshots catalog;
+    private final ReviewQueueService reviewQueue;
+    private final IdempotencyService idempotency;
 
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @PreAuthorize("hasAuthority('ROL_COLABORADOR')")
+    @LatencyBudget("${http.deadlines.upload:10m}")
     public ResponseEntity<ProductDto> create(
             @RequestPart("dto") @Valid ProductDto dto,
             @RequestPart(value = "foto", required = false) MultipartFile foto,
             @RequestPart(value = "fotos", required = false) List<MultipartFile> fotos, 
             @RequestPart(value = "archivosAut", required = false) List<MultipartFile> archivosAut,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             @AuthenticationPrincipal Jwt jwt) {
         String uploader = jwt.getSubject();
-        ProductDto created = svc.create(dto, foto,fotos, archivosAut, uploader);
-        return ResponseEntity.status(HttpStatus.CREATED).body(created);
+        // Un reintento con la misma clave no vuelve a crear el producto ni a subir archivos
+        return idempotency.execute(uploader, idempotencyKey,
+                () -> idempotency.fingerprint("POST /api/products", dto, foto, fotos, archivosAut),
+                ProductDto.class,
+                () -> ResponseEntity.status(HttpStatus.CREATED)
+                        .body(svc.create(dto, foto, fotos, archivosAut, uploader)));
     }
 
     @PutMapping(path = "/{id}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @PreAuthorize("hasAuthority('ROL_COLABORADOR')")
+    @LatencyBudget("${http.deadlines.upload:10m}")
     public ResponseEntity<ProductDto> update(
             @PathVariable Long id,
             @RequestPart("dto") @Valid ProductDto dto,
@@ -77,6 +102,7 @@ public class ProductController {
 
     @DeleteMapping("/{id}")
     @PreAuthorize("hasAuthority('ROL_COLABORADOR')")
+    @LatencyBudget("${http.deadlines.write:15s}")
     public ResponseEntity<Void> delete(
             @PathVariable Long id,
             @AuthenticationPrincipal Jwt jwt) {
@@ -87,6 +113,7 @@ public class ProductController {
 
     @GetMapping("/my-products") // La ruta real que el servicio recibe después de StripPrefix
     @PreAuthorize("hasAuthority('ROL_COLABORADOR')")
+    @LatencyBudget("${http.deadlines.read:3s}")
     public Page<ProductDto> myProducts(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "50") int size,
@@ -94,7 +121,7 @@ public class ProductController {
 
         log.info(">>>>>> ProdService: Recibida solicitud GET /my-products. Subject JWT: {}", jwt.getSubject()); // ¡Añade esta línea!
 
-        Pageable pg = PageRequest.of(page, size);
+        Pageable pg = PageRequest.of(page, size, ProductService.NEWEST_FIRST);
         Page<ProductDto> result = svc.findByUploaderId(jwt.getSubject(), pg);
 
         if (result.isEmpty()) {
@@ -107,39 +134,157 @@ public class ProductController {
     }
 
 
+    /**
+     * Catálogo público: las primeras páginas salen tal cual de
+     * {@link ApprovedCatalogSnapshots} (gzip si el cliente lo acepta) con un
+     * ETag de contenido; el resto, o si aún no hay snapshot, se arma al vuelo
+     * con el mismo orden.
+     */
+    @GetMapping(params = "estado=APROBADO")
+    @LatencyBudget("${http.deadlines.read:3s}")
+    public ResponseEntity<?> approved(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        ApprovedCatalogSnapshots.Snapshot snap = catalog.find(page, size).orElse(null);
+        if (snap == null)
+            return ResponseEntity.ok(svc.findByEstado(ProductStatus.APROBADO,
+                    ApprovedCatalogSnapshots.pageable(page, size)));
+
+        boolean notModified = snap.etag().equals(ifNoneMatch);
+        ResponseEntity.BodyBuilder res = ResponseEntity.status(notModified ? HttpStatus.NOT_MODIFIED : HttpStatus.OK)
+                .eTag(snap.etag())
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (notModified)
+            return res.build();
+        res.contentType(MediaType.APPLICATION_JSON);
+        if (acceptsGzip(acceptEncoding))
+            return res.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snap.gzip());
+        return res.body(snap.json());
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null)
+            return false;
+        for (String token : acceptEncoding.split(",")) {
+            String[] parts = token.trim().split(";");
+            if (!parts[0].trim().equalsIgnoreCase("gzip"))
+                continue;
+            return parts.length < 2 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+        }
+        return false;
+    }
+
     @GetMapping
+    @LatencyBudget("${http.deadlines.read:3s}")
     public Page<ProductDto> all(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "50") int size,
             @RequestParam(required = false) ProductStatus estado) {
-        Pageable pg = PageRequest.of(page, size);
+        Pageable pg = PageRequest.of(page, size, ProductService.NEWEST_FIRST);
         return (estado != null) ? svc.findByEstado(estado, pg) : svc.findAll(pg);
     }
 
-     @GetMapping("/{id}")
+    @GetMapping("/{id}")
+    @LatencyBudget("${http.deadlines.read:3s}")
     public ResponseEntity<ProductDto> byId(@PathVariable Long id) {
-        return ResponseEntity.ok(svc.getById(id));
+        // fuera de la transacción de getById: un acierto no toca el pool de conexiones
+        return ResponseEntity.ok(productCache.get(id, svc::getById));
+    }
+
+    /**
+     * Descarga de un archivo del producto en streaming, con soporte de Range
+     * para reanudar. Las fotos son públicas; los archivos AUT requieren sesión
+     * y que file-service autorice al usuario, también si salen de la caché.
+     * Los de un producto no APROBADO sólo los ven su autor y los admins.
+     */
+    @GetMapping("/{id}/files/{driveId}")
+    @LatencyBudget("${http.deadlines.read:3s}")
+    public void download(
+            @PathVariable Long id,
+            @PathVariable String driveId,
+            Authentication auth,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        boolean anonymous = auth == null || auth instanceof AnonymousAuthenticationToken || !auth.isAuthenticated();
+        boolean admin = !anonymous
+                && auth.getAuthorities().stream().anyMatch(a -> "ROL_ADMIN".equals(a.getAuthority()));
+        ProductService.ProductFile file = svc.findFile(id, driveId, anonymous ? null : auth.getName(), admin);
+        if (file.aut() && anonymous)
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Se requiere autenticación");
+        fileStreamer.stream(id, file.meta(), file.aut(), request, response);
+    }
+
+    /**
+     * Todos los archivos AUT del producto en un único ZIP, generado en streaming.
+     * Sólo productos APROBADO (o propios / admin); file-service autoriza cada archivo.
+     */
+    @GetMapping("/{id}/bundle.zip")
+    @LatencyBudget("${http.deadlines.read:3s}")
+    public void bundle(@PathVariable Long id, @AuthenticationPrincipal Jwt jwt, Authentication auth,
+            HttpServletResponse response) throws IOException {
+        boolean admin = auth.getAuthorities().stream().anyMatch(a -> "ROL_ADMIN".equals(a.getAuthority()));
+        List<FileInfoDto> files = svc.autFiles(id, jwt.getSubject(), admin);
+        if (files.isEmpty())
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "El producto no tiene archivos autorizados");
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename("producto-" + id + ".zip").build().toString());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-store");
+        bundleWriter.write(id, files, response.getOutputStream());
     }
 
     @GetMapping("/pending")
     @PreAuthorize("hasAuthority('ROL_ADMIN')")
+    @LatencyBudget("${http.deadlines.read:3s}")
     public Page<ProductDto> pending(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "50") int size) {
-        return svc.pendientes(PageRequest.of(page, size));
+        return svc.pendientes(PageRequest.of(page, size, ProductService.NEWEST_FIRST));
+    }
+
+    /** Reserva los siguientes pendientes para este admin, con sus previews de staging. */
+    @PostMapping("/review-queue/claim")
+    @PreAuthorize("hasAuthority('ROL_ADMIN')")
+    @LatencyBudget("${http.deadlines.read:3s}")
+    public List<ReviewItemDto> claimReviews(
+            @RequestParam(defaultValue = "10") int limit,
+            @AuthenticationPrincipal Jwt jwt) {
+        return reviewQueue.claim(jwt.getSubject(), limit);
+    }
+
+    @DeleteMapping("/{id}/claim")
+    @PreAuthorize("hasAuthority('ROL_ADMIN')")
+    @LatencyBudget("${http.deadlines.write:15s}")
+    public ResponseEntity<Void> releaseClaim(
+            @PathVariable Long id,
+            @AuthenticationPrincipal Jwt jwt) {
+        if (!reviewQueue.release(id, jwt.getSubject()))
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No tienes reservado el producto " + id);
+        return ResponseEntity.noContent().build();
     }
 
     @PutMapping(path = "/{id}/decision", consumes = MediaType.APPLICATION_JSON_VALUE)
     @PreAuthorize("hasAuthority('ROL_ADMIN')")
-    public ProductDto decide(
+    @LatencyBudget("${http.deadlines.write:15s}")
+    public ResponseEntity<ProductDto> decide(
             @PathVariable Long id,
             @RequestBody @Valid AdminDecisionDto decisionDto,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             @AuthenticationPrincipal Jwt jwt) {
-        return svc.decidir(id, decisionDto.getAprobar(), decisionDto.getComentario(), jwt.getSubject());
+        // Un reintento con la misma clave no vuelve a promover staging ni a enviar el correo
+        return idempotency.execute(jwt.getSubject(), idempotencyKey,
+                () -> idempotency.fingerprint("PUT /api/products/" + id + "/decision", decisionDto),
+                ProductDto.class,
+                () -> ResponseEntity.ok(svc.decidir(id, decisionDto.getAprobar(), decisionDto.getComentario(),
+                        jwt.getSubject())));
     }
 
     @GetMapping("/uploader/{username}")
     @PreAuthorize("hasAuthority('ROL_COLABORADOR') or hasAuthority('ROL_ADMIN')")
+    @LatencyBudget("${http.deadlines.read:3s}")
     public List<ProductDto> findByUploader(
             @PathVariable("username") String username,
             @RequestHeader("Authorization") String bearer) {
@@ -0,0 +1,65 @@
+package com.aec.prodsrv.controller;
+
+import com.aec.prodsrv.service.ImageDerivativeService;
+import com.aec.prodsrv.service.ImageDerivativeService.Variant;
+import com.aec.prodsrv.service.ProductService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Variantes redimensionadas de las fotos de producto. Si la variante aún no
+ * existe se redirige al original y se encola su generación.
+ */
+@RestController
+@RequestMapping("/api/products/{id}/images")
+public class ProductImageController {
+
+    private final ProductService svc;
+    private final ImageDerivativeService derivatives;
+
+    @Value("${gateway.public-base-url}")
+    private String gatewayBaseUrl;
+
+    public ProductImageController(ProductService svc, ImageDerivativeService derivatives) {
+        this.svc = svc;
+        this.derivatives = derivatives;
+    }
+
+    @GetMapping("/{driveId}/{variant}")
+    @LatencyBudget("${http.deadlines.read:3s}")
+    public ResponseEntity<Resource> variant(
+            @PathVariable Long id,
+            @PathVariable String driveId,
+            @PathVariable String variant) {
+        Variant v = Variant.of(variant)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Variante desconocida"));
+
+        Optional<Path> file = derivatives.find(driveId, v);
+        if (file.isPresent()) {
+            // un driveFileId nunca cambia de contenido: cacheable indefinidamente
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+                    .contentType(MediaType.parseMediaType(derivatives.contentType()))
+                    .body(new FileSystemResource(file.get()));
+        }
+
+        if (svc.hasPhoto(id, driveId))
+            derivatives.enqueue(driveId);
+        return ResponseEntity.status(HttpStatus.FOUND)
+                .header(HttpHeaders.LOCATION, gatewayBaseUrl + "/api/files/" + id + "/" + driveId)
+                .cacheControl(CacheControl.noStore())
+                .build();
+    }
+}
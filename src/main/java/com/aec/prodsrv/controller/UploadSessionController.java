@@ -0,0 +1,79 @@
+package com.aec.prodsrv.controller;
+
+import com.aec.prodsrv.dto.ProductDto;
+import com.aec.prodsrv.dto.UploadSessionDto;
+import com.aec.prodsrv.dto.UploadSessionRequest;
+import com.aec.prodsrv.service.UploadSessionService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+
+/** Subida reanudable por trozos de archivos AUT (ver UploadSessionService). */
+@RestController
+@RequestMapping("/api/products/{id}/upload-sessions")
+@RequiredArgsConstructor
+public class UploadSessionController {
+
+    private final UploadSessionService sessions;
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasAuthority('ROL_COLABORADOR')")
+    @LatencyBudget("${http.deadlines.write:15s}")
+    public ResponseEntity<UploadSessionDto> create(
+            @PathVariable Long id,
+            @RequestBody @Valid UploadSessionRequest req,
+            @AuthenticationPrincipal Jwt jwt) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(sessions.create(id, req, jwt.getSubject()));
+    }
+
+    @PutMapping(path = "/{sid}/chunks/{n}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @PreAuthorize("hasAuthority('ROL_COLABORADOR')")
+    @LatencyBudget("${http.deadlines.upload:10m}")
+    public UploadSessionDto putChunk(
+            @PathVariable Long id,
+            @PathVariable String sid,
+            @PathVariable int n,
+            InputStream body,
+            @AuthenticationPrincipal Jwt jwt) {
+        return sessions.putChunk(id, sid, n, body, jwt.getSubject());
+    }
+
+    @GetMapping("/{sid}")
+    @PreAuthorize("hasAuthority('ROL_COLABORADOR')")
+    @LatencyBudget("${http.deadlines.read:3s}")
+    public UploadSessionDto status(
+            @PathVariable Long id,
+            @PathVariable String sid,
+            @AuthenticationPrincipal Jwt jwt) {
+        return sessions.status(id, sid, jwt.getSubject());
+    }
+
+    @PostMapping("/{sid}/commit")
+    @PreAuthorize("hasAuthority('ROL_COLABORADOR')")
+    @LatencyBudget("${http.deadlines.upload:10m}")
+    public ProductDto commit(
+            @PathVariable Long id,
+            @PathVariable String sid,
+            @AuthenticationPrincipal Jwt jwt) {
+        return sessions.commit(id, sid, jwt.getSubject());
+    }
+
+    @DeleteMapping("/{sid}")
+    @PreAuthorize("hasAuthority('ROL_COLABORADOR')")
+    @LatencyBudget("${http.deadlines.write:15s}")
+    public ResponseEntity<Void> abort(
+            @PathVariable Long id,
+            @PathVariable String sid,
+            @AuthenticationPrincipal Jwt jwt) {
+        sessions.abort(id, sid, jwt.getSubject());
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,44 @@
+package com.aec.prodsrv.controller;
+
+import com.aec.prodsrv.dto.ProductDto;
+import com.aec.prodsrv.dto.UploadConfirmRequest;
+import com.aec.prodsrv.dto.UploadTicketDto;
+import com.aec.prodsrv.service.UploadTicketService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.annotation.*;
+
+/** Subida directa a file-service con tickets firmados (ver UploadTicketService). */
+@RestController
+@RequestMapping("/api/products/{id}/upload-tickets")
+@RequiredArgsConstructor
+public class UploadTicketController {
+
+    private final UploadTicketService tickets;
+
+    @PostMapping
+    @PreAuthorize("hasAuthority('ROL_COLABORADOR')")
+    @LatencyBudget("${http.deadlines.write:15s}")
+    public ResponseEntity<UploadTicketDto> issue(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "foto") String kind,
+            @AuthenticationPrincipal Jwt jwt) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(tickets.issue(id, kind, jwt.getSubject()));
+    }
+
+    @PostMapping(path = "/confirm", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasAuthority('ROL_COLABORADOR')")
+    @LatencyBudget("${http.deadlines.write:15s}")
+    public ProductDto confirm(
+            @PathVariable Long id,
+            @RequestBody @Valid UploadConfirmRequest req,
+            @AuthenticationPrincipal Jwt jwt) {
+        return tickets.confirm(id, req.getTicket(), req.getDriveFileIds(), jwt.getSubject());
+    }
+}
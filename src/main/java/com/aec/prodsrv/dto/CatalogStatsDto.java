@@ -0,0 +1,17 @@
+package com.aec.prodsrv.dto;
+
+import com.aec.prodsrv.model.ProductStatus;
+
+import java.time.Instant;
+import java.util.Map;
+
+/** Conteos del catálogo; porCategoria y porPais desglosados por estado. */
+public record CatalogStatsDto(
+        long total,
+        Map<ProductStatus, Long> porEstado,
+        Map<String, Map<ProductStatus, Long>> porCategoria,
+        Map<String, Map<ProductStatus, Long>> porPais,
+        int colaboradores,
+        Instant actualizado,
+        Instant verificado
+) {}
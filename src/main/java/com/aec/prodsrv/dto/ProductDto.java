@@ -5,6 +5,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import java.util.List;
+import java.util.Map;
 
 @Data
 @Builder
@@ -17,6 +18,7 @@ public class ProductDto {
     private Double precioIndividual;
     private List<String> fotografiaProd;   
     private List<String> fotografiaUrl; 
+    private List<Map<String, String>> fotografiaVariantes; // por foto: thumb/card/detail → URL
     private List<String> archivosAut; 
     private List<String> archivosAutUrls; 
     private String estado;
@@ -0,0 +1,21 @@
+package com.aec.prodsrv.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/** Resultado de una pasada del reconciliador de archivos huérfanos. */
+public record ReconcileReport(
+        Instant startedAt,
+        long tookMs,
+        int productsScanned,
+        int foldersWithoutProduct,
+        int metaFailures,
+        int filesScanned,
+        int orphansFound,
+        int pendingConfirmation,
+        int deleted,
+        int failed,
+        long bytesReclaimed,
+        boolean truncated,
+        List<String> deletedFileIds
+) {}
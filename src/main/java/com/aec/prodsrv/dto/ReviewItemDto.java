@@ -0,0 +1,13 @@
+package com.aec.prodsrv.dto;
+
+import com.aec.prodsrv.client.FileClient;
+
+import java.time.Instant;
+import java.util.List;
+
+/** Producto reservado en la cola de revisión, con sus archivos en staging. */
+public record ReviewItemDto(
+        ProductDto producto,
+        List<FileClient.StagingInfoDto> previews,
+        Instant reservadoHasta
+) {}
@@ -0,0 +1,15 @@
+package com.aec.prodsrv.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class UploadConfirmRequest {
+    @NotBlank
+    private String ticket;
+    @NotEmpty
+    private List<String> driveFileIds;
+}
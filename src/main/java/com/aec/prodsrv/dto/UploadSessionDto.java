@@ -0,0 +1,25 @@
+package com.aec.prodsrv.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionDto {
+    private String sessionId;
+    private Long productId;
+    private String filename;
+    private long size;
+    private int chunkSize;
+    private int totalChunks;
+    private List<long[]> receivedRanges; // [inicio, fin) en bytes, ya fusionados
+    private List<Integer> missingChunks;
+    private Instant expiresAt;
+}
@@ -0,0 +1,16 @@
+package com.aec.prodsrv.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+@Data
+public class UploadSessionRequest {
+    @NotBlank
+    private String filename;
+    private String contentType;
+    @NotNull @Positive
+    private Long size;       // tamaño total del archivo en bytes
+    private Integer chunkSize; // opcional: si no viene se usa upload-sessions.chunk-size
+}
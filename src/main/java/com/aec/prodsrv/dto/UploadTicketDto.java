@@ -0,0 +1,21 @@
+package com.aec.prodsrv.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadTicketDto {
+    private String ticket;          // JWT corto: Authorization: Bearer <ticket> contra file-service
+    private String uploadUrl;       // POST multipart, parte "file"
+    private String kind;            // foto | aut
+    private boolean staging;        // PENDIENTE: va a staging y entra al producto al aprobarse
+    private boolean confirmRequired; // si true, llamar a /upload-tickets/confirm con los driveFileId
+    private Instant expiresAt;
+}
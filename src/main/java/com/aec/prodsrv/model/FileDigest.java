@@ -0,0 +1,40 @@
+package com.aec.prodsrv.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * SHA-256 del contenido de cada archivo permanente y el driveFileId que lo
+ * guarda. Una fila por (producto, archivo); un archivo nunca se comparte
+ * entre productos.
+ */
+@Entity
+@Table(name = "file_digests",
+        uniqueConstraints = @UniqueConstraint(columnNames = { "product_id", "drive_file_id" }),
+        indexes = {
+                @Index(name = "idx_file_digests_sha_product", columnList = "sha256, product_id"),
+                @Index(name = "idx_file_digests_drive", columnList = "drive_file_id")
+        })
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class FileDigest {
+
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 64)
+    private String sha256;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "drive_file_id", nullable = false)
+    private String driveFileId;
+
+    private Long size;
+
+    private String fileType;
+
+    private Instant createdAt;
+}
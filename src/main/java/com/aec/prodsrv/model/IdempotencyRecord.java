@@ -0,0 +1,43 @@
+package com.aec.prodsrv.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Resultado guardado de una petición con Idempotency-Key. Mientras la
+ * petición original está en curso status es null y expiresAt es el plazo
+ * tras el cual se da por abandonada; al terminar pasa a ser el TTL.
+ */
+@Entity
+@Table(name = "idempotency_keys",
+        uniqueConstraints = @UniqueConstraint(name = "uk_idempotency_owner_key", columnNames = { "owner", "idem_key" }),
+        indexes = @Index(name = "idx_idempotency_expires", columnList = "expires_at"))
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class IdempotencyRecord {
+
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String owner;
+
+    @Column(name = "idem_key", nullable = false)
+    private String idemKey;
+
+    /** SHA-256 del método, la ruta y el contenido relevante de la petición. */
+    @Column(nullable = false, length = 64)
+    private String fingerprint;
+
+    private Integer status;
+
+    @Column(name = "response_body", columnDefinition = "TEXT")
+    private String responseBody;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+}
@@ -0,0 +1,23 @@
+package com.aec.prodsrv.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/** Posición alcanzada por un proceso en segundo plano; sobrevive a reinicios. */
+@Entity
+@Table(name = "job_checkpoints")
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class JobCheckpoint {
+
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    @Column(nullable = false)
+    private Long position;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
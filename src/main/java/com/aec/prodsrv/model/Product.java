@@ -8,6 +8,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import com.aec.prodsrv.util.StringListConverter; // ¡Importa la clase del convertidor!
 
+import java.time.Instant;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -48,6 +49,10 @@ public class Product {
     private String usuarioDecision;
     private String comentario;
 
+    // Reserva en la cola de revisión: admin que lo tiene y hasta cuándo
+    private String claimedBy;
+    private Instant claimedUntil;
+
     @ManyToMany(cascade = { CascadeType.PERSIST, CascadeType.MERGE })
     @JoinTable(name = "product_categories", joinColumns = @JoinColumn(name = "product_id"), inverseJoinColumns = @JoinColumn(name = "category_id"))
     private Set<Category> categorias = new HashSet<>();
@@ -0,0 +1,127 @@
+package com.aec.prodsrv.observability;
+
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.function.Supplier;
+
+/**
+ * Desglose por fases del request en curso (DB, file-service, users-service,
+ * SMTP...). Lo abre {@link ServerTimingFilter} sólo cuando hay que exponerlo o
+ * loguearlo; sin colector activo todas las operaciones son no-op.
+ *
+ * <p>Las fases del mismo nombre se acumulan (duración total y número de
+ * llamadas) y pueden anidarse: "promote" incluye su "file-staging".
+ * Para llamadas reactivas el colector se captura al armar la cadena, en el
+ * hilo del request, igual que {@code RequestDeadline}.
+ */
+public final class ServerTiming {
+
+    private static final ThreadLocal<ServerTiming> CURRENT = new ThreadLocal<>();
+    private static final Span NOOP = () -> {};
+
+    private final long startNanos = System.nanoTime();
+    private final boolean exposed;
+    private final Map<String, long[]> phases = new LinkedHashMap<>(); // nombre -> {nanos, llamadas}
+
+    private ServerTiming(boolean exposed) {
+        this.exposed = exposed;
+    }
+
+    static ServerTiming begin(boolean exposed) {
+        ServerTiming t = new ServerTiming(exposed);
+        CURRENT.set(t);
+        return t;
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    /** Colector del request actual, o null si el desglose está desactivado. */
+    public static ServerTiming current() {
+        return CURRENT.get();
+    }
+
+    /** Fase delimitada por try-with-resources. */
+    public static Span phase(String name) {
+        ServerTiming t = CURRENT.get();
+        if (t == null)
+            return NOOP;
+        long start = System.nanoTime();
+        return () -> t.record(name, System.nanoTime() - start);
+    }
+
+    public static <T> T time(String name, Supplier<T> task) {
+        try (Span ignored = phase(name)) {
+            return task.get();
+        }
+    }
+
+    public static void time(String name, Runnable task) {
+        try (Span ignored = phase(name)) {
+            task.run();
+        }
+    }
+
+    /**
+     * Mide desde la suscripción hasta que el Mono termina (éxito, error o
+     * cancelación). Debe llamarse en el hilo del request. Se registra antes de
+     * propagar la señal (no en doFinally): quien hace block() ya la ve al volver.
+     */
+    public static <T> Mono<T> timed(String name, Mono<T> call) {
+        ServerTiming t = CURRENT.get();
+        if (t == null)
+            return call;
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            Runnable done = () -> t.record(name, System.nanoTime() - start);
+            return call.doOnTerminate(done).doOnCancel(done);
+        });
+    }
+
+    synchronized void record(String name, long nanos) {
+        long[] acc = phases.computeIfAbsent(name, k -> new long[2]);
+        acc[0] += nanos;
+        acc[1]++;
+    }
+
+    boolean isExposed() {
+        return exposed;
+    }
+
+    String totalMillis() {
+        return ms(System.nanoTime() - startNanos);
+    }
+
+    /** Valor de la cabecera Server-Timing: {@code db;dur=3.2, file-upload;dur=41.0;desc="x3", total;dur=52.7}. */
+    synchronized String header() {
+        StringJoiner out = new StringJoiner(", ");
+        phases.forEach((name, acc) -> {
+            String entry = name + ";dur=" + ms(acc[0]);
+            out.add(acc[1] > 1 ? entry + ";desc=\"x" + acc[1] + "\"" : entry);
+        });
+        out.add("total;dur=" + totalMillis());
+        return out.toString();
+    }
+
+    /** Mismo desglose como pares clave=valor para el log. */
+    synchronized String logFields() {
+        StringJoiner out = new StringJoiner(" ");
+        phases.forEach((name, acc) -> out.add(name + "=" + ms(acc[0]) + "ms/" + acc[1]));
+        return out.toString();
+    }
+
+    private static String ms(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1_000_000.0);
+    }
+
+    @FunctionalInterface
+    public interface Span extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,33 @@
+package com.aec.prodsrv.observability;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Escribe Server-Timing justo antes de serializar el cuerpo: después el
+ * response ya está comprometido y el filtro no puede añadir cabeceras.
+ */
+@ControllerAdvice
+public class ServerTimingAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        ServerTiming t = ServerTiming.current();
+        return t != null && t.isExposed();
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+            Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request,
+            ServerHttpResponse response) {
+        ServerTiming t = ServerTiming.current();
+        if (t != null)
+            response.getHeaders().set(ServerTimingFilter.RESPONSE_HEADER, t.header());
+        return body;
+    }
+}
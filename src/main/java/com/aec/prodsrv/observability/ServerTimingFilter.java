@@ -0,0 +1,77 @@
+package com.aec.prodsrv.observability;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Abre el colector {@link ServerTiming} del request. La cabecera se expone si
+ * {@code server-timing.enabled} está activo o si un ROL_ADMIN envía
+ * {@value #REQUEST_HEADER}; además una fracción de los requests
+ * ({@code server-timing.log-sample-rate}) deja una línea de log con el desglose.
+ * Corre después de la cadena de seguridad, así la autenticación ya está resuelta.
+ */
+@Component
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    static final String REQUEST_HEADER = "X-Server-Timing";
+    static final String RESPONSE_HEADER = "Server-Timing";
+
+    private static final Logger log = LoggerFactory.getLogger(ServerTimingFilter.class);
+
+    private final boolean enabled;
+    private final double logSampleRate;
+
+    public ServerTimingFilter(@Value("${server-timing.enabled:false}") boolean enabled,
+            @Value("${server-timing.log-sample-rate:0.01}") double logSampleRate) {
+        this.enabled = enabled;
+        this.logSampleRate = logSampleRate;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean expose = enabled || adminRequested(request);
+        boolean sampled = logSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < logSampleRate;
+        if (!expose && !sampled) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        ServerTiming timing = ServerTiming.begin(expose);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ServerTiming.end();
+            // respuestas sin cuerpo (o que no pasaron por ServerTimingAdvice)
+            if (expose && !response.isCommitted() && !response.containsHeader(RESPONSE_HEADER))
+                response.setHeader(RESPONSE_HEADER, timing.header());
+            if (sampled) {
+                Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                log.info("server_timing method={} route={} status={} total={}ms {}",
+                        request.getMethod(), pattern != null ? pattern : request.getRequestURI(),
+                        response.getStatus(), timing.totalMillis(), timing.logFields());
+            }
+        }
+    }
+
+    private static boolean adminRequested(HttpServletRequest request) {
+        if (request.getHeader(REQUEST_HEADER) == null)
+            return false;
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null && auth.getAuthorities().stream()
+                .anyMatch(a -> "ROL_ADMIN".equals(a.getAuthority()));
+    }
+}
@@ -0,0 +1,22 @@
+package com.aec.prodsrv.repository;
+
+import com.aec.prodsrv.model.FileDigest;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Optional;
+
+public interface FileDigestRepository extends JpaRepository<FileDigest, Long> {
+    Optional<FileDigest> findFirstBySha256AndProductId(String sha256, Long productId);
+    // ¿Posible duplicado? Sólo entonces se hashea antes de subir (índice único product_id, drive_file_id)
+    boolean existsByProductIdAndSize(Long productId, Long size);
+
+    @Modifying
+    @Query("delete from FileDigest d where d.productId = :productId and d.driveFileId = :driveFileId")
+    int deleteReference(Long productId, String driveFileId);
+
+    @Modifying
+    @Query("delete from FileDigest d where d.productId = :productId")
+    int deleteByProduct(Long productId);
+}
@@ -0,0 +1,22 @@
+package com.aec.prodsrv.repository;
+
+import com.aec.prodsrv.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.Optional;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+    Optional<IdempotencyRecord> findByOwnerAndIdemKey(String owner, String idemKey);
+
+    @Modifying
+    @Query("update IdempotencyRecord r set r.status = :status, r.responseBody = :body, r.expiresAt = :expiresAt "
+            + "where r.id = :id")
+    int complete(Long id, int status, String body, Instant expiresAt);
+
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.expiresAt < :now")
+    int deleteExpired(Instant now);
+}
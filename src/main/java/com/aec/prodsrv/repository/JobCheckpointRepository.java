@@ -0,0 +1,7 @@
+package com.aec.prodsrv.repository;
+
+import com.aec.prodsrv.model.JobCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface JobCheckpointRepository extends JpaRepository<JobCheckpoint, String> {
+}
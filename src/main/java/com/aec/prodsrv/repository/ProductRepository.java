@@ -3,11 +3,20 @@ package com.aec.prodsrv.repository;
 import com.aec.prodsrv.model.Product;
 import com.aec.prodsrv.model.ProductStatus;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import jakarta.persistence.LockModeType;
 
 
 
@@ -15,7 +24,62 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     // Listar productos por uploader
     Page<Product> findByUploaderUsername(String uploaderUsername, Pageable pg);
     Page<Product> findByEstado(ProductStatus estado, Pageable pg);
+    // Sólo el contenido de la página, sin el COUNT (catálogo precalculado)
+    Slice<Product> findSliceByEstado(ProductStatus estado, Pageable pg);
+    long countByEstado(ProductStatus estado);
     List<Product> findByUploaderUsername(String uploader);
+    // Recorrido por clave (sin OFFSET ni COUNT) para procesos en segundo plano
+    Slice<Product> findByIdProductoGreaterThan(Long idProducto, Pageable pg);
+
+    // Último id entregado por la identidad (incluye creates revertidos); null si nunca se usó
+    @Query(value = "SELECT pg_sequence_last_value(CAST(pg_get_serial_sequence('products', 'id_producto') AS regclass))",
+            nativeQuery = true)
+    Long lastIssuedId();
+
+    // Cola de revisión: PENDIENTE libres (o ya reservados por el mismo admin), los
+    // más antiguos primero. SKIP LOCKED: dos admins a la vez nunca toman la misma fila.
+    @Query(value = "SELECT id_producto FROM products WHERE estado = 'PENDIENTE' "
+            + "AND (claimed_until IS NULL OR claimed_until < :now OR claimed_by = :admin) "
+            + "ORDER BY id_producto LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> findClaimableIds(String admin, Instant now, int limit);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update Product p set p.claimedBy = :admin, p.claimedUntil = :until where p.idProducto in :ids")
+    int claim(Collection<Long> ids, String admin, Instant until);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update Product p set p.claimedBy = null, p.claimedUntil = null "
+            + "where p.idProducto = :id and p.claimedBy = :admin")
+    int release(Long id, String admin);
+
+    // decidir: bloquea la fila para que la reserva no cambie mientras se decide
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from Product p where p.idProducto = :id")
+    Optional<Product> findByIdForUpdate(Long id);
+
+    // Recuento completo de estadísticas: sólo las columnas que se agregan
+    interface StatsRow {
+        Long getId();
+        ProductStatus getEstado();
+        String getUploader();
+        String getPais();
+    }
+
+    interface CategoryRow {
+        Long getId();
+        String getCategoria();
+    }
+
+    @Query("select p.idProducto as id, p.estado as estado, p.uploaderUsername as uploader, p.pais as pais "
+            + "from Product p where p.idProducto > :after order by p.idProducto")
+    List<StatsRow> findStatsRows(Long after, Pageable pg);
+
+    @Query("select p.idProducto as id, p.estado as estado, p.uploaderUsername as uploader, p.pais as pais "
+            + "from Product p where p.idProducto in :ids")
+    List<StatsRow> findStatsRowsByIds(Collection<Long> ids);
+
+    @Query("select p.idProducto as id, c.nombre as categoria from Product p join p.categorias c where p.idProducto in :ids")
+    List<CategoryRow> findCategoryRows(Collection<Long> ids);
 }
 
 
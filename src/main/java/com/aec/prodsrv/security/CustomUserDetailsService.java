@@ -1,7 +1,7 @@
 // src/main/java/com/aec/prodsrv/security/CustomUserDetailsService.java
 package com.aec.prodsrv.security;
 
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -14,7 +14,6 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
-@RequiredArgsConstructor
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final RestTemplate restTemplate;
@@ -22,6 +21,11 @@ public class CustomUserDetailsService implements UserDetailsService {
     @Value("${users.service.url}")
     private String usersServiceUrl;
 
+    // Mismo pool (y timeouts) que UsersClient: ambos hablan con users-service
+    public CustomUserDetailsService(@Qualifier("usersRestTemplate") RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
+    }
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         String url = String.format("%s/api/users/%s", usersServiceUrl, username);
@@ -1,5 +1,6 @@
 package com.aec.prodsrv.security;
 
+import com.aec.prodsrv.service.UploadTicketService;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
@@ -45,14 +46,15 @@ public class JwtUtils {
                    .getSubject();
     }
 
-    /** Valida firma y expiración */
+    /** Valida firma y expiración; un ticket de subida no es un token de acceso */
     public boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder()
+            Claims claims = Jwts.parserBuilder()
                 .setSigningKey(key)
                 .build()
-                .parseClaimsJws(token);
-            return true;
+                .parseClaimsJws(token)
+                .getBody();
+            return !UploadTicketService.TYPE.equals(claims.get("typ", String.class));
         } catch (JwtException | IllegalArgumentException e) {
             return false;
         }
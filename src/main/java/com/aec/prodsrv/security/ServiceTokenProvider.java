@@ -0,0 +1,73 @@
+package com.aec.prodsrv.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Identidad propia de prod-service para tareas en segundo plano (sin usuario
+ * en el request). Firma con la misma clave y el mismo claim "role" que valida
+ * SecurityConfig, así los demás servicios la aceptan igual que un JWT de usuario.
+ *
+ * El rol es propio (ROL_SERVICIO), no el de administrador: file-service sólo
+ * debe concederle leer metadatos/archivos y borrar archivos de productos, y en
+ * prod-service no abre ningún endpoint.
+ */
+@Component
+public class ServiceTokenProvider {
+
+    private final SecretKey key;
+    private final String subject;
+    private final String role;
+    private final long ttlMs;
+
+    public ServiceTokenProvider(@Value("${jwt.secret}") String secret,
+            @Value("${service-account.subject:prod-service}") String subject,
+            @Value("${service-account.role:ROL_SERVICIO}") String role,
+            @Value("${service-account.ttl-ms:300000}") long ttlMs) {
+        this.key = new SecretKeySpec(Base64.getDecoder().decode(secret), "HmacSHA256");
+        this.subject = subject;
+        this.role = role;
+        this.ttlMs = ttlMs;
+    }
+
+    public String issue() {
+        Date now = new Date();
+        return Jwts.builder()
+                .setSubject(subject)
+                .claim("role", role)
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + ttlMs))
+                .signWith(key, SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    /**
+     * Ejecuta la tarea con un SecurityContext de servicio, de modo que
+     * FileClient encuentre un token aunque no haya request HTTP.
+     */
+    public <T> T runAsService(Supplier<T> task) {
+        SecurityContext previous = SecurityContextHolder.getContext();
+        SecurityContext ctx = SecurityContextHolder.createEmptyContext();
+        ctx.setAuthentication(new UsernamePasswordAuthenticationToken(
+                subject, issue(), List.of(new SimpleGrantedAuthority(role))));
+        SecurityContextHolder.setContext(ctx);
+        try {
+            return task.get();
+        } finally {
+            SecurityContextHolder.setContext(previous);
+        }
+    }
+}
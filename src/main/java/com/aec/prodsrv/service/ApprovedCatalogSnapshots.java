@@ -0,0 +1,213 @@
+package com.aec.prodsrv.service;
+
+import com.aec.prodsrv.dto.ProductDto;
+import com.aec.prodsrv.model.ProductStatus;
+import com.aec.prodsrv.repository.ProductRepository;
+import com.aec.prodsrv.security.ServiceTokenProvider;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Primeras páginas del catálogo público (APROBADO, idProducto DESC) ya
+ * serializadas y comprimidas, listas para escribirse tal cual en la respuesta.
+ *
+ * Un cambio marca sólo la página donde cae su idProducto; al reconstruirla, si
+ * cambió qué productos contiene (aprobación o borrado que desplaza el resto),
+ * se marca también la siguiente. Las páginas no tocadas sólo se vuelven a
+ * serializar, sin BD ni file-service, si cambió el total de aprobados.
+ * Las lecturas van al primario: tras el commit una réplica puede ir atrasada.
+ */
+@Component
+public class ApprovedCatalogSnapshots {
+
+    private static final Logger log = LoggerFactory.getLogger(ApprovedCatalogSnapshots.class);
+
+    /** Página lista para servir; content se conserva para re-serializar sin reconstruir. */
+    public record Snapshot(int page, long total, List<Long> ids, List<ProductDto> content,
+            String etag, byte[] json, byte[] gzip) {
+    }
+
+    private final ProductService svc;
+    private final ProductRepository repo;
+    private final ObjectMapper mapper;
+    private final ServiceTokenProvider serviceToken;
+    private final TransactionTemplate primary;
+    private final int pageSize;
+
+    private final AtomicReferenceArray<Snapshot> snapshots;
+    private final ConcurrentSkipListSet<Integer> dirty = new ConcurrentSkipListSet<>();
+    private final AtomicBoolean countStale = new AtomicBoolean(true);
+
+    public ApprovedCatalogSnapshots(ProductService svc,
+            ProductRepository repo,
+            ObjectMapper mapper,
+            ServiceTokenProvider serviceToken,
+            PlatformTransactionManager txManager,
+            @Value("${catalog-snapshot.pages:5}") int pages,
+            @Value("${catalog-snapshot.page-size:50}") int pageSize) {
+        this.svc = svc;
+        this.repo = repo;
+        this.mapper = mapper;
+        this.serviceToken = serviceToken;
+        this.primary = new TransactionTemplate(txManager);
+        this.pageSize = pageSize;
+        this.snapshots = new AtomicReferenceArray<>(Math.max(pages, 0));
+        markAll();
+    }
+
+    /** Orden estable del catálogo; el fallback sin snapshot usa el mismo. */
+    public static Pageable pageable(int page, int size) {
+        return PageRequest.of(page, size, ProductService.NEWEST_FIRST);
+    }
+
+    /** Snapshot de la página si está precalculada para ese tamaño. */
+    public Optional<Snapshot> find(int page, int size) {
+        if (size != pageSize || page < 0 || page >= snapshots.length())
+            return Optional.empty();
+        return Optional.ofNullable(snapshots.get(page));
+    }
+
+    /** fallbackExecution: cambios fuera de transacción también cuentan. */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    void onProductChanged(ProductChangedEvent event) {
+        markChanged(event.productId());
+    }
+
+    /** Marca la página donde cae (o caería) el producto; el total se revisa siempre. */
+    public void markChanged(Long productId) {
+        countStale.set(true);
+        int page = pageOf(productId);
+        if (page < snapshots.length())
+            dirty.add(page);
+    }
+
+    public void markAll() {
+        countStale.set(true);
+        for (int p = 0; p < snapshots.length(); p++)
+            dirty.add(p);
+    }
+
+    /** Cubre lo que no genera evento: metadatos de file-service y avisos perdidos. */
+    @Scheduled(initialDelayString = "${catalog-snapshot.full-refresh-ms:300000}",
+            fixedDelayString = "${catalog-snapshot.full-refresh-ms:300000}")
+    void scheduledFullRefresh() {
+        markAll();
+    }
+
+    @Scheduled(initialDelayString = "${catalog-snapshot.initial-delay-ms:5000}",
+            fixedDelayString = "${catalog-snapshot.rebuild-interval-ms:1000}")
+    void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.warn("[CATALOG] Reconstrucción pendiente ({}); se reintenta", e.getMessage());
+        }
+    }
+
+    synchronized void rebuild() {
+        if (snapshots.length() == 0 || (!countStale.getAndSet(false) && dirty.isEmpty()))
+            return;
+        try {
+            serviceToken.runAsService(() -> {
+                apply();
+                return null;
+            });
+        } catch (RuntimeException e) {
+            countStale.set(true);
+            throw e;
+        }
+    }
+
+    private void apply() {
+        long total = inPrimary(() -> repo.countByEstado(ProductStatus.APROBADO));
+        int rebuilt = 0;
+        Integer next;
+        while ((next = dirty.pollFirst()) != null) {
+            int page = next;
+            Snapshot old = snapshots.get(page);
+            Snapshot fresh;
+            try {
+                List<ProductDto> content = inPrimary(
+                        () -> svc.findContentByEstado(ProductStatus.APROBADO, pageable(page, pageSize)));
+                fresh = snapshot(page, content, total);
+            } catch (RuntimeException e) {
+                dirty.add(page);
+                throw e;
+            }
+            snapshots.set(page, fresh);
+            rebuilt++;
+            // Cambió qué productos hay en la página: el resto se desplaza
+            if ((old == null || !old.ids().equals(fresh.ids())) && page + 1 < snapshots.length())
+                dirty.add(page + 1);
+        }
+
+        int reserialized = 0;
+        for (int p = 0; p < snapshots.length(); p++) {
+            Snapshot s = snapshots.get(p);
+            if (s != null && s.total() != total) {
+                snapshots.set(p, snapshot(p, s.content(), total));
+                reserialized++;
+            }
+        }
+        log.debug("[CATALOG] {} páginas reconstruidas, {} re-serializadas (total={})", rebuilt, reserialized, total);
+    }
+
+    /** Primera página cuyo rango de ids incluye el producto (o que aún no está llena). */
+    private int pageOf(Long productId) {
+        for (int p = 0; p < snapshots.length(); p++) {
+            Snapshot s = snapshots.get(p);
+            if (s == null || s.ids().size() < pageSize || productId >= s.ids().get(s.ids().size() - 1))
+                return p;
+        }
+        return snapshots.length();
+    }
+
+    private Snapshot snapshot(int page, List<ProductDto> content, long total) {
+        try {
+            byte[] json = mapper.writeValueAsBytes(new PageImpl<>(content, pageable(page, pageSize), total));
+            String etag = "W/\"" + DigestUtils.md5DigestAsHex(json) + "\"";
+            List<Long> ids = content.stream().map(ProductDto::getIdProducto).toList();
+            return new Snapshot(page, total, ids, content, etag, json, gzip(json));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar la página " + page + " del catálogo", e);
+        }
+    }
+
+    private <T> T inPrimary(Supplier<T> query) {
+        return primary.execute(status -> query.get());
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,256 @@
+package com.aec.prodsrv.service;
+
+import com.aec.prodsrv.dto.CatalogStatsDto;
+import com.aec.prodsrv.model.ProductStatus;
+import com.aec.prodsrv.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Conteos del catálogo (por estado, colaborador, categoría y país) en memoria.
+ * Se arman con un recorrido completo al arrancar y luego se ajustan por
+ * diferencia: cada {@link ProductChangedEvent} (local o de otra instancia vía
+ * {@link ProductChangeChannel}) relee sólo ese producto y resta su aporte
+ * anterior antes de sumar el nuevo. Un recorrido periódico contra la BD
+ * corrige cualquier desvío y lo cuenta en catalog.stats.drift.
+ */
+@Component
+public class CatalogStats {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogStats.class);
+
+    /** Aporte de un producto a los conteos. */
+    record Entry(ProductStatus estado, String uploader, String pais, Set<String> categorias) {
+    }
+
+    private final ProductRepository repo;
+    private final TransactionTemplate primary;
+    private final Counter drift;
+    private final int batchSize;
+
+    private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+    private Counts counts; // sólo con el monitor tomado
+    private Instant verified;
+
+    private volatile CatalogStatsDto published;
+    private volatile Map<String, Map<ProductStatus, Long>> byUploader = Map.of();
+
+    public CatalogStats(ProductRepository repo,
+            PlatformTransactionManager txManager,
+            MeterRegistry registry,
+            @Value("${catalog-stats.batch-size:1000}") int batchSize) {
+        this.repo = repo;
+        this.primary = new TransactionTemplate(txManager);
+        this.drift = Counter.builder("catalog.stats.drift")
+                .description("Recorridos de verificación que encontraron conteos desviados")
+                .register(registry);
+        this.batchSize = batchSize;
+    }
+
+    /** Conteos vigentes; 503 hasta terminar el primer recorrido. */
+    public CatalogStatsDto current() {
+        CatalogStatsDto s = published;
+        if (s == null)
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Estadísticas aún no calculadas");
+        return s;
+    }
+
+    /** Productos del colaborador por estado (ceros incluidos). */
+    public Map<ProductStatus, Long> forUploader(String username) {
+        current();
+        Map<ProductStatus, Long> out = new EnumMap<>(ProductStatus.class);
+        for (ProductStatus st : ProductStatus.values())
+            out.put(st, 0L);
+        out.putAll(byUploader.getOrDefault(username, Map.of()));
+        return out;
+    }
+
+    /** fallbackExecution: cambios fuera de transacción también cuentan. */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    void onProductChanged(ProductChangedEvent event) {
+        markChanged(event.productId());
+    }
+
+    public void markChanged(Long productId) {
+        changed.add(productId);
+    }
+
+    @Scheduled(initialDelayString = "${catalog-stats.apply-interval-ms:500}",
+            fixedDelayString = "${catalog-stats.apply-interval-ms:500}")
+    void scheduledApply() {
+        try {
+            applyChanges();
+        } catch (Exception e) {
+            log.warn("[STATS] Cambios pendientes sin aplicar ({}); se reintenta", e.getMessage());
+        }
+    }
+
+    @Scheduled(initialDelayString = "${catalog-stats.initial-delay-ms:0}",
+            fixedDelayString = "${catalog-stats.check-interval-ms:900000}")
+    void scheduledCheck() {
+        try {
+            check();
+        } catch (Exception e) {
+            log.error("[STATS] Recorrido de verificación abortado: {}", e.getMessage(), e);
+        }
+    }
+
+    /** Relee los productos marcados y ajusta los conteos por diferencia. */
+    synchronized void applyChanges() {
+        if (counts == null || changed.isEmpty())
+            return;
+        List<Long> ids = new ArrayList<>(changed);
+        changed.removeAll(ids);
+        try {
+            for (int from = 0; from < ids.size(); from += batchSize) {
+                List<Long> batch = ids.subList(from, Math.min(from + batchSize, ids.size()));
+                Map<Long, Entry> now = inPrimary(() -> load(repo.findStatsRowsByIds(batch)));
+                for (Long id : batch)
+                    counts.apply(id, now.get(id)); // ausente = borrado
+            }
+        } catch (RuntimeException e) {
+            changed.addAll(ids); // apply es idempotente: releer todo el lote es seguro
+            throw e;
+        } finally {
+            publish();
+        }
+    }
+
+    /**
+     * Recuenta todo desde la BD. Si no llegaron cambios durante el recorrido,
+     * compara con los conteos incrementales antes de reemplazarlos.
+     */
+    public synchronized void check() {
+        applyChanges();
+        long started = System.nanoTime();
+        Counts fresh = new Counts();
+        long after = 0L;
+        while (true) {
+            long from = after;
+            Map<Long, Entry> entries = inPrimary(() -> load(repo.findStatsRows(from, PageRequest.of(0, batchSize))));
+            entries.forEach(fresh::apply);
+            if (entries.size() < batchSize)
+                break;
+            after = Collections.max(entries.keySet());
+        }
+
+        if (counts != null && changed.isEmpty() && !counts.sameAs(fresh)) {
+            drift.increment();
+            log.warn("[STATS] Conteos desviados: incremental total={} porEstado={}, BD total={} porEstado={}",
+                    counts.products.size(), counts.porEstado, fresh.products.size(), fresh.porEstado);
+        }
+        counts = fresh;
+        verified = Instant.now();
+        publish();
+        log.info("[STATS] Recuento completo: {} productos en {} ms",
+                fresh.products.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private Map<Long, Entry> load(List<ProductRepository.StatsRow> rows) {
+        if (rows.isEmpty())
+            return Map.of();
+        Map<Long, Set<String>> cats = new HashMap<>();
+        List<Long> ids = rows.stream().map(ProductRepository.StatsRow::getId).toList();
+        for (ProductRepository.CategoryRow c : repo.findCategoryRows(ids))
+            cats.computeIfAbsent(c.getId(), k -> new HashSet<>()).add(c.getCategoria());
+        Map<Long, Entry> out = new HashMap<>();
+        for (ProductRepository.StatsRow r : rows)
+            out.put(r.getId(), new Entry(r.getEstado(), r.getUploader(), r.getPais(),
+                    cats.getOrDefault(r.getId(), Set.of())));
+        return out;
+    }
+
+    private void publish() {
+        if (counts == null)
+            return;
+        byUploader = counts.porUploader.entrySet().stream()
+                .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey,
+                        e -> Collections.unmodifiableMap(new EnumMap<>(e.getValue()))));
+        published = new CatalogStatsDto(
+                counts.products.size(),
+                Collections.unmodifiableMap(new EnumMap<>(counts.porEstado)),
+                sortedCopy(counts.porCategoria),
+                sortedCopy(counts.porPais),
+                counts.porUploader.size(),
+                Instant.now(),
+                verified);
+    }
+
+    private static Map<String, Map<ProductStatus, Long>> sortedCopy(Map<String, Map<ProductStatus, Long>> m) {
+        TreeMap<String, Map<ProductStatus, Long>> out = new TreeMap<>();
+        m.forEach((k, v) -> out.put(k, Collections.unmodifiableMap(new EnumMap<>(v))));
+        return Collections.unmodifiableMap(out);
+    }
+
+    private <T> T inPrimary(Supplier<T> query) {
+        return primary.execute(status -> query.get());
+    }
+
+    /** Conteos mutables; los productos sin estado sólo suman al total. */
+    static final class Counts {
+        final Map<Long, Entry> products = new HashMap<>();
+        final Map<ProductStatus, Long> porEstado = new EnumMap<>(ProductStatus.class);
+        final Map<String, Map<ProductStatus, Long>> porUploader = new HashMap<>();
+        final Map<String, Map<ProductStatus, Long>> porCategoria = new HashMap<>();
+        final Map<String, Map<ProductStatus, Long>> porPais = new HashMap<>();
+
+        /** Reemplaza el aporte del producto; {@code now == null} lo quita. */
+        void apply(Long id, Entry now) {
+            Entry old = now == null ? products.remove(id) : products.put(id, now);
+            if (old != null)
+                add(old, -1);
+            if (now != null)
+                add(now, 1);
+        }
+
+        private void add(Entry e, long delta) {
+            if (e.estado() == null)
+                return;
+            porEstado.merge(e.estado(), delta, Counts::sumOrRemove);
+            bump(porUploader, e.uploader(), e.estado(), delta);
+            bump(porPais, e.pais(), e.estado(), delta);
+            for (String c : e.categorias())
+                bump(porCategoria, c, e.estado(), delta);
+        }
+
+        private static void bump(Map<String, Map<ProductStatus, Long>> m, String key, ProductStatus st, long delta) {
+            if (key == null)
+                return;
+            Map<ProductStatus, Long> byState = m.computeIfAbsent(key, k -> new EnumMap<>(ProductStatus.class));
+            byState.merge(st, delta, Counts::sumOrRemove);
+            if (byState.isEmpty())
+                m.remove(key);
+        }
+
+        private static Long sumOrRemove(Long a, Long b) {
+            long sum = a + b;
+            return sum == 0 ? null : sum;
+        }
+
+        boolean sameAs(Counts o) {
+            return products.size() == o.products.size()
+                    && porEstado.equals(o.porEstado)
+                    && porUploader.equals(o.porUploader)
+                    && porCategoria.equals(o.porCategoria)
+                    && porPais.equals(o.porPais);
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.aec.prodsrv.service;
 
+import com.aec.prodsrv.observability.ServerTiming;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value; // Para inyectar el correo del admin desde properties
 import org.springframework.mail.MailException;
@@ -24,6 +27,9 @@ public class EmailService {
     @Autowired
     private JavaMailSender mailSender;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     /** Destinatario de notificaciones (admin). */
     @Value("${admin.email}")
     private String adminEmail;
@@ -54,13 +60,18 @@ public class EmailService {
         return v.length() > 3 ? v.substring(0, 1) + "***" : v;
     }
 
-    /** Envío genérico HTML. Usa senderEmail como From. */
-    private void sendHtmlEmail(String toEmail, String subject, String htmlContent) {
+    /**
+     * Envío genérico HTML. Usa senderEmail como From. Cada intento queda en el
+     * timer "mail.send" etiquetado por tipo de correo y resultado.
+     */
+    private void sendHtmlEmail(String kind, String toEmail, String subject, String htmlContent) {
         if (toEmail == null || toEmail.isBlank()) {
             log.warn("[MAIL] Destinatario vacío. subject='{}'", subject);
             return;
         }
-        try {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try (ServerTiming.Span ignored = ServerTiming.phase("mail")) {
             MimeMessage msg = mailSender.createMimeMessage();
             MimeMessageHelper helper = new MimeMessageHelper(msg, "utf-8");
 
@@ -72,6 +83,7 @@ public class EmailService {
             log.info("[MAIL] Intentando envío -> to='{}', from='{}', subject='{}'",
                     toEmail, senderEmail, subject);
             mailSender.send(msg);
+            outcome = "success";
             log.info("[MAIL] OK -> Enviado a '{}'", toEmail);
 
         } catch (MailException ex) {
@@ -80,6 +92,11 @@ public class EmailService {
             log.error("[MAIL] MessagingException al preparar correo a '{}': {}", toEmail, ex.getMessage(), ex);
         } catch (Exception ex) {
             log.error("[MAIL] Error inesperado al enviar a '{}': {}", toEmail, ex.getMessage(), ex);
+        } finally {
+            sample.stop(Timer.builder("mail.send")
+                    .tag("kind", kind)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
         }
     }
 
@@ -126,7 +143,7 @@ public class EmailService {
             </html>
         """.formatted(uploaderUsername, productId, productName, cats, specs, fotosHtml.toString());
 
-        sendHtmlEmail(adminEmail, subject, html);
+        sendHtmlEmail("review", adminEmail, subject, html);
     }
 
     // ======================================================================
@@ -161,7 +178,7 @@ public class EmailService {
             </html>
         """.formatted(uploaderUsername, productName, productId, portadaHtml, comentarioHtml);
 
-        sendHtmlEmail(toEmail, subject, html);
+        sendHtmlEmail("approved", toEmail, subject, html);
     }
 
     // ======================================================================
@@ -190,6 +207,6 @@ public class EmailService {
             </html>
         """.formatted(uploaderUsername, productName, productId, comentarioHtml);
 
-        sendHtmlEmail(toEmail, subject, html);
+        sendHtmlEmail("rejected", toEmail, subject, html);
     }
 }
@@ -0,0 +1,233 @@
+package com.aec.prodsrv.service;
+
+import com.aec.prodsrv.client.FileClient;
+import com.aec.prodsrv.client.dto.FileInfoDto;
+import com.aec.prodsrv.model.FileDigest;
+import com.aec.prodsrv.observability.ServerTiming;
+import com.aec.prodsrv.repository.FileDigestRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * Subidas permanentes deduplicadas por SHA-256 del contenido dentro de cada
+ * producto: si el producto ya guarda ese contenido se reutiliza su
+ * driveFileId y no se transfiere nada. Nunca se reutiliza el archivo de otro
+ * producto: vive en la carpeta de aquél, sale en sus metadatos y se borra con él.
+ *
+ * El hash se calcula sobre el mismo stream que se envía a file-service. Sólo
+ * si el producto ya tiene un archivo del mismo tamaño (posible duplicado) se
+ * lee antes el multipart, que ya está en disco o en memoria, para decidir sin subir.
+ */
+@Service
+public class FileDedupService {
+
+    private static final Logger log = LoggerFactory.getLogger(FileDedupService.class);
+
+    public enum Scope { OFF, PRODUCT }
+
+    private final FileClient fileClient;
+    private final FileDigestRepository digests;
+    private final Scope scope;
+
+    public FileDedupService(FileClient fileClient,
+            FileDigestRepository digests,
+            @Value("${file.dedup.scope:product}") String scope) {
+        this.fileClient = fileClient;
+        this.digests = digests;
+        String s = scope.trim().toUpperCase();
+        if (s.equals("GLOBAL")) {
+            log.warn("[DEDUP] file.dedup.scope=global ya no se admite; se deduplica por producto");
+            s = "PRODUCT";
+        }
+        this.scope = Scope.valueOf(s);
+    }
+
+    public FileInfoDto uploadProductFile(MultipartFile file, String uploader, Long productId) {
+        if (scope == Scope.OFF || file == null || file.isEmpty())
+            return fileClient.uploadProductFile(file, uploader, productId);
+
+        if (!digests.existsByProductIdAndSize(productId, file.getSize())) {
+            // Sin candidatos: se sube directamente y el hash sale de la misma lectura
+            HashingUpload upload = new HashingUpload(file);
+            FileInfoDto res = fileClient.uploadProductFile(upload, uploader, productId);
+            if (res != null && res.getDriveFileId() != null) {
+                String sha = upload.sha256();
+                record(sha != null ? sha : ServerTiming.time("hash", () -> sha256(file)), productId,
+                        res.getDriveFileId(), file.getSize(),
+                        res.getFileType() != null ? res.getFileType() : file.getContentType());
+            }
+            return res;
+        }
+
+        String sha = ServerTiming.time("hash", () -> sha256(file));
+        Optional<FileDigest> existing = digests.findFirstBySha256AndProductId(sha, productId);
+        if (existing.isPresent()) {
+            FileDigest d = existing.get();
+            log.info("[DEDUP] {} ({} bytes) ya existe como {} en el producto {}; no se sube",
+                    file.getOriginalFilename(), file.getSize(), d.getDriveFileId(), productId);
+            FileInfoDto dto = new FileInfoDto();
+            dto.setDriveFileId(d.getDriveFileId());
+            dto.setOriginalName(file.getOriginalFilename());
+            dto.setFileType(d.getFileType());
+            dto.setSize(d.getSize());
+            return dto;
+        }
+
+        FileInfoDto res = fileClient.uploadProductFile(file, uploader, productId);
+        if (res != null && res.getDriveFileId() != null) {
+            record(sha, productId, res.getDriveFileId(), file.getSize(),
+                    res.getFileType() != null ? res.getFileType() : file.getContentType());
+        }
+        return res;
+    }
+
+    /** El producto deja de referenciar el archivo. */
+    @Transactional
+    public void forget(Long productId, String driveFileId) {
+        digests.deleteReference(productId, driveFileId);
+    }
+
+    @Transactional
+    public void forgetProduct(Long productId) {
+        digests.deleteByProduct(productId);
+    }
+
+    private void record(String sha, Long productId, String driveFileId, Long size, String fileType) {
+        digests.save(FileDigest.builder()
+                .sha256(sha)
+                .productId(productId)
+                .driveFileId(driveFileId)
+                .size(size)
+                .fileType(fileType)
+                .createdAt(Instant.now())
+                .build());
+    }
+
+    /**
+     * Digest en streaming sobre el multipart ya recibido (Tomcat lo tiene en
+     * disco o en memoria): nunca se carga el archivo entero.
+     */
+    static String sha256(MultipartFile file) {
+        try (DigestInputStream in = new DigestInputStream(file.getInputStream(), newSha256())) {
+            byte[] buf = new byte[64 * 1024];
+            while (in.read(buf) != -1) {
+                // sólo alimenta el digest
+            }
+            return HexFormat.of().formatHex(in.getMessageDigest().digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer " + file.getOriginalFilename(), e);
+        }
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * El multipart tal cual, pero cada lectura alimenta un SHA-256. Si
+     * FileClient reintenta, el stream nuevo empieza un digest nuevo.
+     */
+    static final class HashingUpload implements MultipartFile {
+
+        private final MultipartFile file;
+        private volatile MessageDigest digest;
+        private volatile long bytesRead;
+
+        HashingUpload(MultipartFile file) {
+            this.file = file;
+        }
+
+        /** Hash del último stream leído hasta el final (una sola vez), o null si no se completó. */
+        String sha256() {
+            MessageDigest d = digest;
+            if (d == null || bytesRead != file.getSize())
+                return null;
+            digest = null;
+            return HexFormat.of().formatHex(d.digest());
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            MessageDigest sha = newSha256();
+            digest = sha;
+            bytesRead = 0;
+            return new DigestInputStream(file.getInputStream(), sha) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b >= 0 && digest == sha)
+                        bytesRead++;
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = super.read(b, off, len);
+                    if (n > 0 && digest == sha)
+                        bytesRead += n;
+                    return n;
+                }
+            };
+        }
+
+        @Override
+        public String getName() {
+            return file.getName();
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return file.getOriginalFilename();
+        }
+
+        @Override
+        public String getContentType() {
+            return file.getContentType();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return file.isEmpty();
+        }
+
+        @Override
+        public long getSize() {
+            return file.getSize();
+        }
+
+        @Override
+        public byte[] getBytes() throws IOException {
+            try (InputStream in = getInputStream()) {
+                return in.readAllBytes();
+            }
+        }
+
+        @Override
+        public void transferTo(File dest) throws IOException {
+            try (InputStream in = getInputStream(); OutputStream out = Files.newOutputStream(dest.toPath())) {
+                in.transferTo(out);
+            }
+        }
+    }
+}
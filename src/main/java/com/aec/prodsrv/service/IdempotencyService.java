@@ -0,0 +1,229 @@
+package com.aec.prodsrv.service;
+
+import com.aec.prodsrv.model.IdempotencyRecord;
+import com.aec.prodsrv.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Cabecera Idempotency-Key: la primera petición con una clave se ejecuta y su
+ * respuesta queda guardada (idempotency_keys) durante idempotency.ttl; los
+ * reintentos con la misma clave reciben esa respuesta sin volver a subir
+ * archivos, promover staging ni enviar correos.
+ *
+ * La clave es por usuario. Reusarla con otra petición (otra huella) da 422 y
+ * reintentar mientras la original sigue en curso da 409. Si la original falla
+ * la clave se libera, para que el reintento la ejecute de nuevo.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyRecordRepository repo;
+    private final ObjectMapper mapper;
+    private final TransactionTemplate tx;
+    private final Duration ttl;
+    private final Duration inFlightLease;
+
+    public IdempotencyService(IdempotencyRecordRepository repo,
+            ObjectMapper mapper,
+            PlatformTransactionManager txManager,
+            @Value("${idempotency.ttl:24h}") Duration ttl,
+            @Value("${idempotency.in-flight-lease:15m}") Duration inFlightLease) {
+        this.repo = repo;
+        this.mapper = mapper;
+        this.tx = new TransactionTemplate(txManager);
+        // Fuera de la transacción del endpoint: la reserva debe verse antes de que éste termine
+        this.tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.ttl = ttl;
+        this.inFlightLease = inFlightLease;
+    }
+
+    /**
+     * Ejecuta {@code action} una sola vez por (owner, key). Sin clave se ejecuta
+     * siempre; la huella sólo se calcula si hay clave.
+     */
+    public <T> ResponseEntity<T> execute(String owner, String key, Supplier<String> fingerprint,
+            Class<T> type, Supplier<ResponseEntity<T>> action) {
+        if (key == null)
+            return action.get();
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    HEADER + " debe tener entre 1 y " + MAX_KEY_LENGTH + " caracteres");
+
+        IdempotencyRecord rec = reserve(owner, key, fingerprint.get());
+        if (rec.getStatus() != null)
+            return replay(rec, type);
+
+        ResponseEntity<T> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            forget(rec);
+            throw e;
+        }
+        store(rec, response);
+        return response;
+    }
+
+    /**
+     * Registro nuevo (status null, lo ejecuta este request) o respuesta ya
+     * guardada. El índice único (owner, idem_key) decide entre dos peticiones
+     * simultáneas con la misma clave.
+     */
+    private IdempotencyRecord reserve(String owner, String key, String fingerprint) {
+        for (int attempt = 0; attempt < 3; attempt++) {
+            Instant now = Instant.now();
+            Optional<IdempotencyRecord> found = tx.execute(s -> repo.findByOwnerAndIdemKey(owner, key));
+            if (found.isEmpty()) {
+                try {
+                    return tx.execute(s -> repo.saveAndFlush(IdempotencyRecord.builder()
+                            .owner(owner)
+                            .idemKey(key)
+                            .fingerprint(fingerprint)
+                            .createdAt(now)
+                            .expiresAt(now.plus(inFlightLease))
+                            .build()));
+                } catch (DataIntegrityViolationException e) {
+                    continue; // otra petición con la misma clave llegó primero
+                }
+            }
+
+            IdempotencyRecord existing = found.get();
+            if (existing.getExpiresAt().isBefore(now)) {
+                // Vencida (o abandonada en curso): la clave vuelve a estar libre
+                tx.executeWithoutResult(s -> repo.deleteById(existing.getId()));
+                continue;
+            }
+            if (!existing.getFingerprint().equals(fingerprint))
+                throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                        HEADER + " ya usada con otra petición");
+            if (existing.getStatus() == null)
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "La petición original con esta " + HEADER + " sigue en curso");
+            return existing;
+        }
+        throw new ResponseStatusException(HttpStatus.CONFLICT, "No se pudo reservar la " + HEADER);
+    }
+
+    private <T> ResponseEntity<T> replay(IdempotencyRecord rec, Class<T> type) {
+        log.info("[IDEMPOTENCY] Reintento de {} con clave {}: se devuelve la respuesta guardada",
+                rec.getOwner(), rec.getIdemKey());
+        try {
+            T body = rec.getResponseBody() == null ? null : mapper.readValue(rec.getResponseBody(), type);
+            return ResponseEntity.status(rec.getStatus()).header(REPLAYED_HEADER, "true").body(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Respuesta guardada ilegible para la clave " + rec.getIdemKey(), e);
+        }
+    }
+
+    /**
+     * La acción ya se hizo: si guardar falla sólo se pierde la deduplicación
+     * (el registro vence tras in-flight-lease), no la respuesta.
+     */
+    private void store(IdempotencyRecord rec, ResponseEntity<?> response) {
+        try {
+            String body = response.getBody() == null ? null : mapper.writeValueAsString(response.getBody());
+            tx.executeWithoutResult(s -> repo.complete(rec.getId(), response.getStatusCode().value(), body,
+                    Instant.now().plus(ttl)));
+        } catch (Exception e) {
+            log.warn("[IDEMPOTENCY] No se guardó la respuesta de la clave {}: {}", rec.getIdemKey(), e.toString());
+        }
+    }
+
+    private void forget(IdempotencyRecord rec) {
+        try {
+            tx.executeWithoutResult(s -> repo.deleteById(rec.getId()));
+        } catch (Exception e) {
+            log.warn("[IDEMPOTENCY] No se liberó la clave {}: {}", rec.getIdemKey(), e.toString());
+        }
+    }
+
+    @Scheduled(initialDelayString = "${idempotency.purge-interval-ms:3600000}",
+            fixedDelayString = "${idempotency.purge-interval-ms:3600000}")
+    void purgeExpired() {
+        try {
+            Integer n = tx.execute(s -> repo.deleteExpired(Instant.now()));
+            if (n != null && n > 0)
+                log.info("[IDEMPOTENCY] {} claves vencidas eliminadas", n);
+        } catch (Exception e) {
+            log.warn("[IDEMPOTENCY] Purga de claves vencidas pendiente: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * SHA-256 de la petición: los objetos van como JSON y los archivos por
+     * nombre, tipo, tamaño y MD5 de su contenido (ya está en disco o memoria;
+     * leerlo es local, no una subida).
+     */
+    public String fingerprint(String endpoint, Object... parts) {
+        MessageDigest sha = sha256();
+        update(sha, endpoint);
+        for (Object part : parts)
+            append(sha, part);
+        return HexFormat.of().formatHex(sha.digest());
+    }
+
+    private void append(MessageDigest sha, Object part) {
+        if (part instanceof Collection<?> c) {
+            for (Object o : c)
+                append(sha, o);
+        } else if (part instanceof MultipartFile f) {
+            try (var in = f.getInputStream()) {
+                update(sha, f.getName() + "|" + f.getOriginalFilename() + "|" + f.getContentType()
+                        + "|" + f.getSize() + "|" + DigestUtils.md5DigestAsHex(in));
+            } catch (IOException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No se pudo leer " + f.getOriginalFilename());
+            }
+        } else {
+            try {
+                update(sha, mapper.writeValueAsString(part));
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Parte no serializable en la huella", e);
+            }
+        }
+    }
+
+    private static void update(MessageDigest sha, String s) {
+        sha.update(s.getBytes(StandardCharsets.UTF_8));
+        sha.update((byte) 0);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
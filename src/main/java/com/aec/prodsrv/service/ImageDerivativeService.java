@@ -0,0 +1,277 @@
+package com.aec.prodsrv.service;
+
+import com.aec.prodsrv.client.FileClient;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Variantes redimensionadas de las fotos de producto (thumb/card/detail) para
+ * que los listados no descarguen los originales. Se generan en un pool
+ * acotado en segundo plano y quedan en {file.upload-dir}/derivatives/{driveId}.
+ *
+ * El original se descarga en streaming a un temporal junto a las variantes y
+ * se decodifica desde disco: nunca está entero en memoria, sólo la imagen ya
+ * submuestreada.
+ *
+ * Formato: WebP si hay un ImageWriter registrado para "webp" (plugin ImageIO
+ * en el classpath), si no JPEG. Un driveFileId nunca cambia de contenido, así
+ * que las variantes no se invalidan: sólo se borran junto con el original.
+ */
+@Service
+public class ImageDerivativeService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageDerivativeService.class);
+    private static final String UNSUPPORTED_MARKER = ".unsupported";
+
+    public enum Variant {
+        THUMB(160), CARD(480), DETAIL(1200);
+
+        final int maxSide;
+
+        Variant(int maxSide) {
+            this.maxSide = maxSide;
+        }
+
+        public String key() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+
+        public static Optional<Variant> of(String key) {
+            return Arrays.stream(values()).filter(v -> v.key().equalsIgnoreCase(key)).findFirst();
+        }
+    }
+
+    private final FileClient fileClient;
+    private final Path root;
+    private final ThreadPoolExecutor workers;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final String format;
+    private final String extension;
+
+    @Value("${images.derivatives.quality:0.82}")
+    private float quality;
+
+    @Value("${images.derivatives.max-source-pixels:60000000}")
+    private long maxSourcePixels;
+
+    public ImageDerivativeService(FileClient fileClient,
+            @Value("${file.upload-dir}") String uploadDir,
+            @Value("${images.derivatives.workers:2}") int workerCount,
+            @Value("${images.derivatives.queue-capacity:200}") int queueCapacity) {
+        this.fileClient = fileClient;
+        this.root = Paths.get(uploadDir, "derivatives");
+        boolean webp = ImageIO.getImageWritersByFormatName("webp").hasNext();
+        this.format = webp ? "webp" : "jpeg";
+        this.extension = webp ? "webp" : "jpg";
+
+        AtomicInteger seq = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "img-derivatives-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                // Cola llena: se descarta; la próxima petición de la variante la vuelve a encolar
+                (r, ex) -> log.warn("[DERIVADAS] Cola llena ({}), tarea descartada", queueCapacity));
+        this.workers.allowCoreThreadTimeOut(true);
+        log.info("[DERIVADAS] Formato de salida: {} ({} workers, cola {})", format, workerCount, queueCapacity);
+    }
+
+    public String contentType() {
+        return "webp".equals(format) ? "image/webp" : "image/jpeg";
+    }
+
+    /** Ruta de la variante si ya fue generada. */
+    public Optional<Path> find(String driveFileId, Variant variant) {
+        Path p = variantPath(driveFileId, variant);
+        return Files.isRegularFile(p) ? Optional.of(p) : Optional.empty();
+    }
+
+    public void enqueueAll(Collection<String> driveFileIds) {
+        if (driveFileIds != null)
+            driveFileIds.forEach(this::enqueue);
+    }
+
+    /** Encola la generación de todas las variantes; no hace nada si ya existen o están en curso. */
+    public void enqueue(String driveFileId) {
+        if (driveFileId == null || !isSafeId(driveFileId))
+            return;
+        Path dir = root.resolve(driveFileId);
+        if (Files.exists(dir.resolve(UNSUPPORTED_MARKER)))
+            return;
+        if (Arrays.stream(Variant.values()).allMatch(v -> Files.isRegularFile(variantPath(driveFileId, v))))
+            return;
+        if (!inFlight.add(driveFileId))
+            return;
+        try {
+            workers.execute(() -> {
+                try {
+                    generate(driveFileId);
+                } catch (Exception e) {
+                    log.warn("[DERIVADAS] Falló {}: {}", driveFileId, e.getMessage());
+                } finally {
+                    inFlight.remove(driveFileId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(driveFileId);
+        }
+    }
+
+    public void evict(String driveFileId) {
+        if (driveFileId == null || !isSafeId(driveFileId))
+            return;
+        try {
+            FileSystemUtils.deleteRecursively(root.resolve(driveFileId));
+        } catch (IOException e) {
+            log.warn("[DERIVADAS] No se pudo borrar {}: {}", driveFileId, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private void generate(String driveFileId) throws IOException {
+        long t0 = System.nanoTime();
+        Path dir = Files.createDirectories(root.resolve(driveFileId));
+        Path original = Files.createTempFile(dir, "original", ".tmp");
+        long originalSize;
+        BufferedImage src;
+        try {
+            fileClient.downloadTo(driveFileId, original);
+            originalSize = Files.size(original);
+            src = decode(original);
+        } finally {
+            Files.deleteIfExists(original);
+        }
+        if (src == null) {
+            // no es una imagen que ImageIO sepa leer: no reintentar en cada petición
+            Files.writeString(dir.resolve(UNSUPPORTED_MARKER), "");
+            log.info("[DERIVADAS] {} no es una imagen soportada; se sirve el original", driveFileId);
+            return;
+        }
+
+        for (Variant v : Variant.values()) {
+            Path target = variantPath(driveFileId, v);
+            if (Files.isRegularFile(target))
+                continue;
+            BufferedImage scaled = scale(src, v.maxSide);
+            Path tmp = Files.createTempFile(dir, v.key(), ".tmp");
+            try {
+                write(scaled, tmp);
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+        log.info("[DERIVADAS] {} ({} bytes) → {} variantes en {} ms", driveFileId, originalSize,
+                Variant.values().length, (System.nanoTime() - t0) / 1_000_000);
+    }
+
+    /**
+     * Decodifica con submuestreo cuando el original es mucho más grande que la
+     * variante mayor: menos memoria y CPU que leerlo completo y reducir después.
+     */
+    private BufferedImage decode(Path file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext())
+                return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int w = reader.getWidth(0), h = reader.getHeight(0);
+                if ((long) w * h > maxSourcePixels) {
+                    log.warn("[DERIVADAS] Imagen de {}x{} supera el máximo de píxeles; se omite", w, h);
+                    return null;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int factor = Math.max(1, Math.max(w, h) / (Variant.DETAIL.maxSide * 2));
+                if (factor > 1)
+                    param.setSourceSubsampling(factor, factor, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /** Reduce por mitades y termina con un paso bilineal (calidad aceptable sin librerías externas). */
+    private static BufferedImage scale(BufferedImage src, int maxSide) {
+        int w = src.getWidth(), h = src.getHeight();
+        double ratio = Math.min(1.0, (double) maxSide / Math.max(w, h));
+        int tw = Math.max(1, (int) Math.round(w * ratio));
+        int th = Math.max(1, (int) Math.round(h * ratio));
+
+        BufferedImage current = src;
+        int cw = w, ch = h;
+        do {
+            cw = Math.max(tw, cw / 2);
+            ch = Math.max(th, ch / 2);
+            BufferedImage next = new BufferedImage(cw, ch, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setColor(Color.WHITE); // JPEG no tiene alfa: transparencias sobre blanco
+                g.fillRect(0, 0, cw, ch);
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, cw, ch, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (cw != tw || ch != th);
+        return current;
+    }
+
+    private void write(BufferedImage img, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                if (param.getCompressionTypes() != null && param.getCompressionType() == null)
+                    param.setCompressionType(param.getCompressionTypes()[0]);
+                param.setCompressionQuality(quality);
+            }
+            writer.write(null, new IIOImage(img, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private Path variantPath(String driveFileId, Variant v) {
+        return root.resolve(driveFileId).resolve(v.key() + "." + extension);
+    }
+
+    /** Los IDs de Drive son alfanuméricos con - y _; cualquier otra cosa no toca el disco. */
+    private static boolean isSafeId(String id) {
+        return id.matches("[A-Za-z0-9_-]{1,128}");
+    }
+}
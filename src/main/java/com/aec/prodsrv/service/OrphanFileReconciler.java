@@ -0,0 +1,326 @@
+package com.aec.prodsrv.service;
+
+import com.aec.prodsrv.client.FileClient;
+import com.aec.prodsrv.client.dto.FileInfoDto;
+import com.aec.prodsrv.dto.ReconcileReport;
+import com.aec.prodsrv.model.JobCheckpoint;
+import com.aec.prodsrv.model.Product;
+import com.aec.prodsrv.repository.JobCheckpointRepository;
+import com.aec.prodsrv.repository.ProductRepository;
+import com.aec.prodsrv.security.ServiceTokenProvider;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Recolector de archivos huérfanos en Drive/file-service: recorre los
+ * productos por lotes, compara fotografiaProd/archivosAut con los metadatos
+ * de file-service y borra lo que ya no referencia ningún producto. También
+ * revisa las carpetas de ids sin producto (creates revertidos, borrados cuya
+ * limpieza falló): todo lo que haya en ellas es huérfano. Una carpeta sin
+ * producto se revisa hasta verla vacía con su id entregado hace más de
+ * min-orphan-age; desde ahí la cubre el punto de control persistido
+ * (job_checkpoints) y no se vuelve a pedir.
+ *
+ * Un huérfano sólo se borra cuando lleva reconciler.min-orphan-age visto como
+ * tal, para no tocar subidas de un create/update o de un ticket todavía en
+ * curso. Esa edad nunca baja de http.deadlines.upload + la vida de un ticket
+ * de subida + su gracia de confirmación.
+ *
+ * Los metadatos se piden frescos (sin la caché de respaldo de FileClient): si
+ * file-service falla para un producto, ese producto se salta en la pasada y
+ * sus sospechosos conservan la edad que llevaban, sin borrar nada de él.
+ *
+ * Una pasada puede durar más que service-account.ttl-ms (pausas entre páginas,
+ * borrados a deletes-per-second): cada lote de metadatos y cada borrado corre
+ * con un token de servicio recién emitido, no con uno para toda la pasada.
+ */
+@Component
+public class OrphanFileReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(OrphanFileReconciler.class);
+    private static final int MAX_IDS_IN_REPORT = 200;
+    static final String GAP_CHECKPOINT = "orphan-gap-folders";
+
+    private final ProductRepository repo;
+    private final JobCheckpointRepository checkpoints;
+    private final FileClient fileClient;
+    private final FileDedupService dedup;
+    private final ImageDerivativeService derivatives;
+    private final ServiceTokenProvider serviceToken;
+    private final RateLimiter deleteLimiter;
+    private final Duration minOrphanAge;
+
+    @Value("${reconciler.enabled:false}")
+    private boolean enabled;
+
+    @Value("${reconciler.page-size:100}")
+    private int pageSize;
+
+    @Value("${reconciler.meta-concurrency:4}")
+    private int metaConcurrency;
+
+    @Value("${reconciler.page-pause-ms:250}")
+    private long pagePauseMs;
+
+    @Value("${reconciler.max-deletes-per-run:500}")
+    private int maxDeletesPerRun;
+
+    /** driveFileId → producto y primera pasada en que se vio huérfano. */
+    private Map<String, Suspect> suspects = new HashMap<>();
+    /** lastIssuedId() de cada pasada; al cumplir min-orphan-age pasan a settledIssuedId. */
+    private final Deque<Issued> issuedHistory = new ArrayDeque<>();
+    /** Ids entregados hace más de min-orphan-age: sus carpetas ya no reciben subidas. */
+    private long settledIssuedId;
+    private volatile ReconcileReport lastReport;
+    Clock clock = Clock.systemUTC();
+
+    private record Suspect(Long productId, Instant firstSeen) {}
+
+    private record Issued(Instant at, long id) {}
+
+    public OrphanFileReconciler(ProductRepository repo,
+            JobCheckpointRepository checkpoints,
+            FileClient fileClient,
+            FileDedupService dedup,
+            ImageDerivativeService derivatives,
+            ServiceTokenProvider serviceToken,
+            @Value("${reconciler.deletes-per-second:2}") int deletesPerSecond,
+            @Value("${reconciler.min-orphan-age:2h}") Duration minOrphanAge,
+            @Value("${http.deadlines.upload:10m}") Duration uploadDeadline,
+            @Value("${upload-tickets.ttl:10m}") Duration ticketTtl,
+            @Value("${upload-tickets.confirm-grace:30m}") Duration ticketGrace) {
+        this.repo = repo;
+        this.checkpoints = checkpoints;
+        this.fileClient = fileClient;
+        this.dedup = dedup;
+        this.derivatives = derivatives;
+        this.serviceToken = serviceToken;
+        this.deleteLimiter = RateLimiter.of("orphan-reconciler", RateLimiterConfig.custom()
+                .limitForPeriod(deletesPerSecond)
+                .limitRefreshPeriod(Duration.ofSeconds(1))
+                .timeoutDuration(Duration.ofMinutes(5))
+                .build());
+        Duration floor = uploadDeadline.plus(ticketTtl).plus(ticketGrace);
+        if (minOrphanAge.compareTo(floor) <= 0) {
+            log.warn("[RECONCILER] min-orphan-age={} no supera subida+ticket+gracia ({}); se usa {}",
+                    minOrphanAge, floor, floor.plusMinutes(5));
+            minOrphanAge = floor.plusMinutes(5);
+        }
+        this.minOrphanAge = minOrphanAge;
+    }
+
+    @Scheduled(initialDelayString = "${reconciler.initial-delay-ms:600000}",
+            fixedDelayString = "${reconciler.interval-ms:21600000}")
+    void scheduledRun() {
+        if (!enabled)
+            return;
+        try {
+            run();
+        } catch (Exception e) {
+            log.error("[RECONCILER] Pasada abortada: {}", e.getMessage(), e);
+        }
+    }
+
+    public Optional<ReconcileReport> lastReport() {
+        return Optional.ofNullable(lastReport);
+    }
+
+    public synchronized ReconcileReport run() {
+        return reconcile();
+    }
+
+    private ReconcileReport reconcile() {
+        Instant started = clock.instant();
+        Map<String, Long> seenNow = new HashMap<>();
+        Map<String, Long> sizes = new HashMap<>();
+        int products = 0, deleted = 0, failed = 0;
+        int[] files = { 0 };
+        long bytes = 0;
+        boolean truncated = false;
+        List<String> deletedIds = new ArrayList<>();
+        List<Long> orphanFolders = new ArrayList<>(); // ids sin producto
+        Set<Long> skipped = new HashSet<>(); // sin metadatos frescos en esta pasada
+        long gapsCheckedUpTo = checkpoints.findById(GAP_CHECKPOINT).map(JobCheckpoint::getPosition).orElse(0L);
+
+        long after = 0L;
+        Slice<Product> slice;
+        do {
+            slice = repo.findByIdProductoGreaterThan(after,
+                    PageRequest.of(0, pageSize, Sort.by("idProducto")));
+            if (slice.isEmpty())
+                break;
+            products += slice.getNumberOfElements();
+
+            Map<Long, List<FileInfoDto>> metas = fetchMetas(slice.getContent().stream()
+                    .map(Product::getIdProducto).toList(), skipped);
+            for (Product p : slice) {
+                for (long gap = Math.max(after, gapsCheckedUpTo) + 1; gap < p.getIdProducto(); gap++)
+                    orphanFolders.add(gap);
+                after = p.getIdProducto();
+
+                Set<String> referenced = new HashSet<>();
+                if (p.getFotografiaProd() != null)
+                    referenced.addAll(p.getFotografiaProd());
+                if (p.getArchivosAut() != null)
+                    referenced.addAll(p.getArchivosAut());
+                collectOrphans(p.getIdProducto(), referenced, metas, seenNow, sizes, files);
+            }
+            pause();
+        } while (slice.hasNext());
+
+        Long lastIssued = repo.lastIssuedId();
+        for (long id = Math.max(after, gapsCheckedUpTo) + 1; lastIssued != null && id <= lastIssued; id++)
+            orphanFolders.add(id);
+        if (lastIssued != null)
+            issuedHistory.addLast(new Issued(clock.instant(), lastIssued));
+        for (int i = 0; i < orphanFolders.size(); i += pageSize) {
+            Map<Long, List<FileInfoDto>> metas = fetchMetas(
+                    orphanFolders.subList(i, Math.min(i + pageSize, orphanFolders.size())), skipped);
+            metas.keySet().forEach(id -> collectOrphans(id, Set.of(), metas, seenNow, sizes, files));
+            pause();
+        }
+
+        // Sólo se borran los que llevan min-orphan-age vistos huérfanos
+        Instant now = clock.instant();
+        Map<String, Suspect> current = new HashMap<>();
+        seenNow.forEach((driveId, productId) -> {
+            Suspect prev = suspects.get(driveId);
+            current.put(driveId, prev != null && prev.productId().equals(productId)
+                    ? prev : new Suspect(productId, now));
+        });
+        List<Map.Entry<String, Suspect>> confirmed = current.entrySet().stream()
+                .filter(e -> !e.getValue().firstSeen().plus(minOrphanAge).isAfter(now))
+                .sorted(Comparator.comparing(e -> e.getValue().firstSeen()))
+                .toList();
+        int orphans = current.size();
+        for (Map.Entry<String, Suspect> e : confirmed) {
+            String driveId = e.getKey();
+            Long productId = e.getValue().productId();
+            if (deleted + failed >= maxDeletesPerRun) {
+                truncated = true;
+                break;
+            }
+            RateLimiter.waitForPermission(deleteLimiter);
+            try {
+                serviceToken.runAsService(() -> {
+                    fileClient.deleteFile(driveId);
+                    return null;
+                });
+                dedup.forget(productId, driveId);
+                derivatives.evict(driveId);
+                current.remove(driveId);
+                deleted++;
+                bytes += sizes.getOrDefault(driveId, 0L);
+                if (deletedIds.size() < MAX_IDS_IN_REPORT)
+                    deletedIds.add(driveId);
+            } catch (Exception ex) {
+                failed++;
+                log.warn("[RECONCILER] No se pudo borrar huérfano {} (producto {}): {}",
+                        driveId, productId, ex.getMessage());
+            }
+        }
+        // Los de productos saltados no se confirmaron ni se descartaron: siguen envejeciendo
+        suspects.forEach((driveId, s) -> {
+            if (skipped.contains(s.productId()))
+                current.putIfAbsent(driveId, s);
+        });
+        suspects = current;
+        advanceGapCheckpoint(gapsCheckedUpTo, orphanFolders, skipped, now);
+
+        ReconcileReport report = new ReconcileReport(started,
+                Duration.between(started, clock.instant()).toMillis(),
+                products, orphanFolders.size(), skipped.size(), files[0], orphans, orphans - confirmed.size(),
+                deleted, failed, bytes, truncated, List.copyOf(deletedIds));
+        lastReport = report;
+        log.info("[RECONCILER] productos={}, carpetas sin producto={}, sin metadatos={}, archivos={}, huérfanos={}, "
+                + "borrados={}, fallidos={}, bytes={}, {} ms",
+                report.productsScanned(), report.foldersWithoutProduct(), report.metaFailures(), report.filesScanned(),
+                report.orphansFound(), report.deleted(), report.failed(), report.bytesReclaimed(), report.tookMs());
+        return report;
+    }
+
+    /**
+     * Avanza el punto de control hasta la última carpeta sin producto que, en
+     * orden, ya está vacía (ni sospechosos pendientes ni metadatos fallidos)
+     * y cuyo id se entregó hace más de min-orphan-age.
+     */
+    private void advanceGapCheckpoint(long checkedUpTo, List<Long> gaps, Set<Long> skipped, Instant now) {
+        while (!issuedHistory.isEmpty() && !issuedHistory.peekFirst().at().plus(minOrphanAge).isAfter(now))
+            settledIssuedId = Math.max(settledIssuedId, issuedHistory.pollFirst().id());
+        Set<Long> dirty = new HashSet<>(skipped);
+        suspects.values().forEach(s -> dirty.add(s.productId()));
+
+        long mark = checkedUpTo;
+        for (Long gap : gaps) { // ascendentes
+            if (gap > settledIssuedId || dirty.contains(gap))
+                break;
+            mark = gap;
+        }
+        if (mark > checkedUpTo)
+            checkpoints.save(JobCheckpoint.builder().name(GAP_CHECKPOINT).position(mark).updatedAt(now).build());
+    }
+
+    private void collectOrphans(Long productId, Set<String> referenced, Map<Long, List<FileInfoDto>> metas,
+            Map<String, Long> seenNow, Map<String, Long> sizes, int[] files) {
+        for (FileInfoDto m : metas.getOrDefault(productId, List.of())) {
+            files[0]++;
+            String driveId = m.getDriveFileId();
+            if (driveId == null || referenced.contains(driveId))
+                continue;
+            seenNow.put(driveId, productId);
+            sizes.put(driveId, m.getSize() != null ? m.getSize() : 0L);
+        }
+    }
+
+    /**
+     * Metadatos frescos por producto; los que fallan quedan fuera del mapa y en
+     * {@code skipped}. Un token por lote: FileClient lo toma al armar cada
+     * llamada, dentro de runAsService.
+     */
+    private Map<Long, List<FileInfoDto>> fetchMetas(List<Long> productIds, Set<Long> skipped) {
+        Map<Long, List<FileInfoDto>> metas = serviceToken.runAsService(() -> {
+            List<Mono<Map.Entry<Long, List<FileInfoDto>>>> calls = productIds.stream()
+                    .map(id -> fileClient.getProductFilesMetaReactive(id)
+                            .collectList()
+                            .map(list -> Map.entry(id, list))
+                            .onErrorResume(e -> {
+                                log.warn("[RECONCILER] Producto {} sin metadatos, se salta: {}", id, e.getMessage());
+                                synchronized (skipped) {
+                                    skipped.add(id);
+                                }
+                                return Mono.empty();
+                            }))
+                    .toList();
+            return Flux.fromIterable(calls)
+                    .flatMap(call -> call, metaConcurrency)
+                    .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                    .block();
+        });
+        return metas != null ? metas : Map.of();
+    }
+
+    private void pause() {
+        if (pagePauseMs <= 0)
+            return;
+        try {
+            Thread.sleep(pagePauseMs);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.aec.prodsrv.service;
+
+import com.aec.prodsrv.client.FileClient;
+import com.aec.prodsrv.client.FileDownloadCache;
+import com.aec.prodsrv.client.dto.FileInfoDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.concurrent.DelegatingSecurityContextCallable;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Escribe los archivos AUT de un producto como un único ZIP en streaming.
+ *
+ * Los archivos se preparan por adelantado con concurrencia acotada
+ * (bundle.prefetch) a la caché de disco, y se escriben en orden a medida que
+ * están listos; los que no entran en la caché se leen de file-service recién
+ * al llegar su turno. Nada se carga entero en memoria. Los formatos ya
+ * comprimidos van sin deflate (STORED si se conoce el CRC, nivel 0 si no).
+ * ZipOutputStream usa ZIP64 solo cuando hace falta (> 4 GB).
+ *
+ * Cada archivo se autoriza antes con file-service ({@link FileClient#checkReadAccess}),
+ * también los que ya están en la caché. Un 401/403 corta el ZIP; si es el primer
+ * archivo todavía no se escribió nada y el cliente recibe el error tal cual.
+ */
+@Component
+public class ProductBundleWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductBundleWriter.class);
+    private static final int BUFFER = 64 * 1024;
+    private static final Set<String> COMPRESSED = Set.of(
+            "zip", "7z", "rar", "gz", "tgz", "bz2", "xz", "zst",
+            "jpg", "jpeg", "png", "gif", "webp", "heic",
+            "mp3", "mp4", "m4a", "mov", "avi", "mkv", "webm",
+            "docx", "xlsx", "pptx", "odt", "ods", "odp", "dwfx", "ifczip", "skp", "rvt", "rfa");
+
+    private final FileClient fileClient;
+
+    @Value("${bundle.prefetch:3}")
+    private int prefetch;
+
+    public ProductBundleWriter(FileClient fileClient) {
+        this.fileClient = fileClient;
+    }
+
+    /** Archivo listo para escribir: copia local (con CRC si va STORED) o lectura diferida. */
+    private record Source(FileInfoDto meta, Path local, long crc, Throwable error) {}
+
+    public void write(Long productId, List<FileInfoDto> files, OutputStream out) throws IOException {
+        long t0 = System.nanoTime();
+        SecurityContext ctx = SecurityContextHolder.getContext(); // el token viaja a los hilos de prefetch
+        ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(out, BUFFER));
+        Set<String> usedNames = new HashSet<>();
+        List<String> missing = new ArrayList<>();
+
+        try (Stream<Source> sources = Flux.fromIterable(files)
+                .flatMapSequential(f -> Mono.fromCallable(new DelegatingSecurityContextCallable<>(
+                        () -> prepare(f), ctx))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .onErrorResume(e -> Mono.just(new Source(f, null, 0, e))), prefetch, 1)
+                .toStream(1)) {
+            for (Source s : (Iterable<Source>) sources::iterator) {
+                if (s.error() instanceof ResponseStatusException rse && isDenied(rse))
+                    throw rse;
+                String name = uniqueName(s.meta(), usedNames);
+                if (s.error() != null) {
+                    log.warn("[BUNDLE] Producto {}: {} omitido: {}", productId, name, s.error().getMessage());
+                    missing.add(name);
+                    continue;
+                }
+                writeEntry(zip, name, s, missing);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            zip.putNextEntry(new ZipEntry(uniqueName("LEEME-archivos-faltantes.txt", usedNames)));
+            zip.write(("No se pudieron incluir estos archivos; descárguelos por separado:\n"
+                    + String.join("\n", missing) + "\n").getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        zip.finish();
+        zip.flush();
+        log.info("[BUNDLE] Producto {}: {} archivo(s), {} faltante(s), {} ms", productId, files.size(),
+                missing.size(), (System.nanoTime() - t0) / 1_000_000);
+    }
+
+    private Source prepare(FileInfoDto meta) throws IOException {
+        fileClient.checkReadAccess(meta.getDriveFileId());
+        Long size = meta.getSize();
+        if (size == null || !fileClient.isCacheable(size))
+            return new Source(meta, null, 0, null); // se lee de file-service al escribirlo
+        Path local;
+        try {
+            local = fileClient.downloadCached(meta.getDriveFileId());
+        } catch (FileDownloadCache.EntryTooLargeException e) {
+            return new Source(meta, null, 0, null); // tamaño desactualizado: directo de file-service
+        }
+        long crc = isCompressed(meta) ? crc(local) : 0;
+        return new Source(meta, local, crc, null);
+    }
+
+    private void writeEntry(ZipOutputStream zip, String name, Source s, List<String> missing) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        boolean compressed = isCompressed(s.meta());
+        if (s.local() != null) {
+            if (compressed) {
+                long size = Files.size(s.local());
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(size);
+                entry.setCompressedSize(size);
+                entry.setCrc(s.crc());
+            }
+            zip.putNextEntry(entry);
+            Files.copy(s.local(), zip);
+            zip.closeEntry();
+            return;
+        }
+
+        FileClient.Download download;
+        try {
+            download = fileClient.openDownload(s.meta().getDriveFileId(), null);
+        } catch (RuntimeException e) {
+            log.warn("[BUNDLE] {} omitido: {}", name, e.getMessage());
+            missing.add(name);
+            return;
+        }
+        // Sin copia local no hay CRC previo: deflate con nivel 0 para los ya comprimidos
+        zip.setLevel(compressed ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+        try (download) {
+            zip.putNextEntry(entry);
+            download.body().transferTo(zip);
+        } catch (IOException | RuntimeException e) {
+            if (isClientAbort(e))
+                throw e;
+            // la entrada ya está empezada: queda truncada y se avisa en el LEEME
+            log.warn("[BUNDLE] {} interrumpido: {}", name, e.getMessage());
+            missing.add(name + " (incompleto)");
+        } finally {
+            zip.closeEntry();
+            zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+        }
+    }
+
+    private static long crc(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream in = new CheckedInputStream(Files.newInputStream(file), crc)) {
+            byte[] buf = new byte[BUFFER];
+            while (in.read(buf) != -1) {
+                // sólo calcula el CRC
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static boolean isCompressed(FileInfoDto meta) {
+        String name = meta.getOriginalName();
+        if (name == null || name.lastIndexOf('.') < 0)
+            return meta.getFileType() != null && (meta.getFileType().startsWith("image/")
+                    || meta.getFileType().startsWith("video/") || meta.getFileType().equals("application/zip"));
+        return COMPRESSED.contains(name.substring(name.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private static String uniqueName(FileInfoDto meta, Set<String> used) {
+        String raw = meta.getOriginalName() != null && !meta.getOriginalName().isBlank()
+                ? meta.getOriginalName()
+                : meta.getDriveFileId();
+        return uniqueName(raw, used);
+    }
+
+    /** Sin rutas ni nombres repetidos: "plano.dwg", "plano (2).dwg", ... */
+    private static String uniqueName(String raw, Set<String> used) {
+        String clean = raw.replace('\\', '/');
+        clean = clean.substring(clean.lastIndexOf('/') + 1).replaceAll("[\\p{Cntrl}:*?\"<>|]", "_");
+        if (clean.isBlank() || clean.equals(".") || clean.equals(".."))
+            clean = "archivo";
+        int dot = clean.lastIndexOf('.');
+        String base = dot > 0 ? clean.substring(0, dot) : clean;
+        String ext = dot > 0 ? clean.substring(dot) : "";
+        String name = clean;
+        for (int i = 2; !used.add(name.toLowerCase(Locale.ROOT)); i++)
+            name = base + " (" + i + ")" + ext;
+        return name;
+    }
+
+    private static boolean isDenied(ResponseStatusException e) {
+        return e.getStatusCode().value() == HttpStatus.UNAUTHORIZED.value()
+                || e.getStatusCode().value() == HttpStatus.FORBIDDEN.value();
+    }
+
+    /** Error al escribir hacia el cliente (se desconectó): no tiene sentido seguir. */
+    private static boolean isClientAbort(Exception e) {
+        return e.getClass().getSimpleName().equals("ClientAbortException");
+    }
+}
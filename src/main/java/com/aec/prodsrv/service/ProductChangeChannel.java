@@ -0,0 +1,158 @@
+package com.aec.prodsrv.service;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Invalidación de {@link ProductDtoCache}, {@link ApprovedCatalogSnapshots} y
+ * {@link CatalogStats} entre instancias con LISTEN/NOTIFY de PostgreSQL. El
+ * NOTIFY va dentro de la transacción que cambia el producto (PostgreSQL lo
+ * entrega sólo si hace commit); cada instancia escucha con una conexión
+ * propia, fuera del pool, y se vuelve a suscribir si se cae. Al
+ * (re)suscribirse vacía su caché: pudo perder avisos mientras no escuchaba.
+ * Con otra base (H2 en pruebas) o product-cache.listen.enabled=false la
+ * invalidación queda sólo local.
+ */
+@Component
+public class ProductChangeChannel implements SmartLifecycle {
+
+    static final String CHANNEL = "product_changed";
+
+    private static final Logger log = LoggerFactory.getLogger(ProductChangeChannel.class);
+
+    private final ProductDtoCache cache;
+    private final ApprovedCatalogSnapshots catalog;
+    private final CatalogStats stats;
+    private final JdbcTemplate jdbc;
+    private final DataSourceProperties dataSource;
+    private final boolean enabled;
+    private final int pollMs;
+
+    private volatile boolean running;
+    private volatile Thread listener;
+    private volatile Connection connection;
+
+    public ProductChangeChannel(ProductDtoCache cache, ApprovedCatalogSnapshots catalog,
+            CatalogStats stats, JdbcTemplate jdbc, DataSourceProperties dataSource,
+            @Value("${product-cache.listen.enabled:true}") boolean enabled,
+            @Value("${product-cache.listen.poll-ms:10000}") int pollMs) {
+        this.cache = cache;
+        this.catalog = catalog;
+        this.stats = stats;
+        this.jdbc = jdbc;
+        this.dataSource = dataSource;
+        this.enabled = enabled && String.valueOf(dataSource.getUrl()).startsWith("jdbc:postgresql:");
+        this.pollMs = pollMs;
+    }
+
+    /** Antes del commit, en la misma transacción: sin commit no hay aviso. */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    void notifyOthers(ProductChangedEvent event) {
+        if (enabled)
+            jdbc.queryForObject("SELECT pg_notify(?, ?)", Object.class, CHANNEL, String.valueOf(event.productId()));
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            log.info("[PRODUCT-CACHE] LISTEN desactivado: invalidación sólo local");
+            return;
+        }
+        running = true;
+        Thread t = new Thread(this::listenLoop, "product-cache-listen");
+        t.setDaemon(true);
+        listener = t;
+        t.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread t = listener;
+        if (t != null)
+            t.interrupt();
+        closeQuietly(connection); // desbloquea getNotifications
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listenLoop() {
+        long backoffMs = 1000;
+        while (running) {
+            try (Connection c = DriverManager.getConnection(dataSource.determineUrl(),
+                    dataSource.determineUsername(), dataSource.determinePassword())) {
+                connection = c;
+                try (Statement st = c.createStatement()) {
+                    st.execute("LISTEN " + CHANNEL);
+                }
+                cache.evictAll();
+                catalog.markAll();
+                backoffMs = 1000;
+                log.info("[PRODUCT-CACHE] Suscrito a {}", CHANNEL);
+
+                PGConnection pg = c.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] batch = pg.getNotifications(pollMs);
+                    if (batch != null) {
+                        for (PGNotification n : batch)
+                            evict(n.getParameter());
+                    } else if (!c.isValid(2)) {
+                        throw new SQLException("conexión LISTEN inválida");
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running)
+                    return;
+                log.warn("[PRODUCT-CACHE] LISTEN caído ({}); reintento en {} ms", e.getMessage(), backoffMs);
+                cache.evictAll();
+                catalog.markAll();
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                backoffMs = Math.min(backoffMs * 2, 30_000);
+            } finally {
+                connection = null;
+            }
+        }
+    }
+
+    private void evict(String payload) {
+        try {
+            Long id = Long.valueOf(payload);
+            cache.evict(id);
+            catalog.markChanged(id);
+            stats.markChanged(id);
+        } catch (NumberFormatException e) {
+            log.warn("[PRODUCT-CACHE] Aviso con payload inválido: {}", payload);
+        }
+    }
+
+    private static void closeQuietly(Connection c) {
+        if (c == null)
+            return;
+        try {
+            c.close();
+        } catch (SQLException ignored) {
+            // ya cerrada
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package com.aec.prodsrv.service;
+
+/** Un producto cambió (alta, edición, decisión, archivos o borrado): su ProductDto ya no vale. */
+public record ProductChangedEvent(Long productId) {
+}
@@ -0,0 +1,61 @@
+package com.aec.prodsrv.service;
+
+import com.aec.prodsrv.dto.ProductDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * ProductDto ya armados (BD + metadatos de file-service) de los productos más
+ * leídos. Se invalidan tras el commit de cada {@link ProductChangedEvent} y,
+ * en las demás instancias, vía {@link ProductChangeChannel}; el TTL acota lo
+ * que puede durar un dato viejo si se pierde un aviso (o si se llenó desde
+ * una réplica atrasada).
+ */
+@Component
+public class ProductDtoCache {
+
+    private final Cache<Long, ProductDto> cache;
+
+    public ProductDtoCache(@Value("${product-cache.max-size:10000}") long maxSize,
+            @Value("${product-cache.ttl:30s}") Duration ttl,
+            MeterRegistry registry) {
+        this.cache = maxSize > 0
+                ? Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).recordStats().build()
+                : null;
+        if (cache != null)
+            CaffeineCacheMetrics.monitor(registry, cache, "product.dto");
+    }
+
+    /**
+     * DTO cacheado o construido con {@code loader}; lecturas concurrentes del
+     * mismo producto esperan a una sola construcción. Las excepciones no se cachean.
+     */
+    public ProductDto get(Long productId, Function<Long, ProductDto> loader) {
+        return cache != null ? cache.get(productId, loader) : loader.apply(productId);
+    }
+
+    public void evict(Long productId) {
+        if (cache != null)
+            cache.invalidate(productId);
+    }
+
+    public void evictAll() {
+        if (cache != null)
+            cache.invalidateAll();
+    }
+
+    /** fallbackExecution: cambios fuera de transacción también invalidan. */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    void onProductChanged(ProductChangedEvent event) {
+        evict(event.productId());
+    }
+}
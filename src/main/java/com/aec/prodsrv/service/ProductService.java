@@ -1,42 +1,61 @@
 package com.aec.prodsrv.service;
 
 import com.aec.prodsrv.client.FileClient;
+import com.aec.prodsrv.client.FileServiceUnavailableException;
 import com.aec.prodsrv.client.UsersClient;
 import com.aec.prodsrv.client.dto.FileInfoDto;
+import com.aec.prodsrv.config.ReadYourWrites;
 import com.aec.prodsrv.dto.ProductDto;
 import com.aec.prodsrv.model.Category;
 import com.aec.prodsrv.model.Product;
 import com.aec.prodsrv.model.ProductStatus;
+import com.aec.prodsrv.observability.ServerTiming;
 import com.aec.prodsrv.repository.CategoryRepository;
 import com.aec.prodsrv.repository.ProductRepository;
 import com.aec.prodsrv.service.EmailService;
 import com.aec.prodsrv.client.UsersClient;
+import io.micrometer.core.annotation.Timed;
 import jakarta.annotation.PostConstruct;
 import jakarta.persistence.EntityNotFoundException;
-import jakarta.transaction.Transactional;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.Instant;
 import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
+@Timed(value = "prod.service", description = "Métodos públicos de ProductService")
 public class ProductService {
 
     private static final Logger log = LoggerFactory.getLogger(ProductService.class);
 
+    /** Orden de los listados paginados; lo sirven los índices (estado | uploader_username, id_producto DESC). */
+    public static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "idProducto");
+
     private final ProductRepository repo;
     private final CategoryRepository catRepo;
     private final FileClient fileClient;
     private final EmailService emailService;
     private final UsersClient usersClient;
+    private final FileDedupService dedup;
+    private final ImageDerivativeService derivatives;
+    private final ReadYourWrites readYourWrites;
+    private final ApplicationEventPublisher events;
 
     @Value("${file-service.base-url}")
     private String fileServiceBaseUrl; // uso interno (S2S) si lo necesitas
@@ -44,16 +63,27 @@ public class ProductService {
     @Value("${gateway.public-base-url}")
     private String gatewayBaseUrl; // para construir URLs consumibles por el navegador
 
+    @Value("${file-service.meta-concurrency:8}")
+    private int metaConcurrency; // consultas de metadatos simultáneas al armar una página
+
     public ProductService(ProductRepository repo,
             CategoryRepository catRepo,
             FileClient fileClient,
             EmailService emailService,
-            UsersClient usersClient) {
+            UsersClient usersClient,
+            FileDedupService dedup,
+            ImageDerivativeService derivatives,
+            ReadYourWrites readYourWrites,
+            ApplicationEventPublisher events) {
         this.repo = repo;
         this.catRepo = catRepo;
         this.fileClient = fileClient;
         this.emailService = emailService;
         this.usersClient = usersClient;
+        this.dedup = dedup;
+        this.derivatives = derivatives;
+        this.readYourWrites = readYourWrites;
+        this.events = events;
     }
 
     @PostConstruct
@@ -62,16 +92,27 @@ public class ProductService {
         log.info("gateway.public-base-url  = {}", gatewayBaseUrl);
     }
 
+    @Transactional(readOnly = true)
     public org.springframework.data.domain.Page<ProductDto> pendientes(org.springframework.data.domain.Pageable pg) {
-        return repo.findByEstado(ProductStatus.PENDIENTE, pg).map(this::toDto);
+        return toDtoPage(repo.findByEstado(ProductStatus.PENDIENTE, pg));
     }
 
     public ProductDto decidir(Long id, boolean aprobar, String comentario, String adminUsername) {
-        Product p = repo.findById(id)
+        // Bloquea la fila: una reserva de la cola de revisión no puede colarse entre medio
+        Product p = ServerTiming.time("db", () -> repo.findByIdForUpdate(id))
                 .orElseThrow(() -> new EntityNotFoundException("Producto no encontrado: " + id));
+        if (p.getClaimedBy() != null && !p.getClaimedBy().equals(adminUsername)
+                && p.getClaimedUntil() != null && p.getClaimedUntil().isAfter(Instant.now())) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Producto reservado por " + p.getClaimedBy() + " hasta " + p.getClaimedUntil());
+        }
+        p.setClaimedBy(null);
+        p.setClaimedUntil(null);
 
         p.setEstado(aprobar ? ProductStatus.APROBADO : ProductStatus.RECHAZADO);
         p.setUsuarioDecision(adminUsername);
+        pinAfterCommit(adminUsername, p.getUploaderUsername());
+        events.publishEvent(new ProductChangedEvent(id));
         p.setComentario(comentario);
 
         // Aplicamos decisión primero en memoria
@@ -80,7 +121,9 @@ public class ProductService {
             // obtienen driveFileId)
             List<FileInfoDto> permanentes = List.of();
             try {
-                permanentes = fileClient.promoteStaging(p.getIdProducto());
+                permanentes = ServerTiming.time("promote", () -> fileClient.promoteStaging(p.getIdProducto()));
+            } catch (FileServiceUnavailableException e) {
+                throw e;
             } catch (Exception e) {
                 log.error("[DECIDIR] Promoción de staging falló: {}", e.getMessage(), e);
                 throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "No se pudo promover archivos a permanente");
@@ -97,8 +140,11 @@ public class ProductService {
                     .map(FileInfoDto::getDriveFileId)
                     .toList();
 
-            p.setFotografiaProd(fotos.isEmpty() ? null : new ArrayList<>(fotos));
-            p.setArchivosAut(aut.isEmpty() ? null : new ArrayList<>(aut));
+            // Lo promovido se suma a lo que el producto ya tenía (las ediciones en
+            // PENDIENTE sólo suben a staging, lo conservado sigue en las listas)
+            p.setFotografiaProd(mergeIds(p.getFotografiaProd(), fotos));
+            afterCommit(() -> derivatives.enqueueAll(fotos));
+            p.setArchivosAut(mergeIds(p.getArchivosAut(), aut));
         } else {
             try {
                 fileClient.discardStaging(p.getIdProducto());
@@ -110,7 +156,7 @@ public class ProductService {
             p.setArchivosAut(null);
         }
 
-        Product saved = repo.save(p);
+        Product saved = ServerTiming.time("db", () -> repo.save(p));
 
         try {
             String uploaderUsername = saved.getUploaderUsername();
@@ -141,6 +187,14 @@ public class ProductService {
         return toDto(saved);
     }
 
+    private static List<String> mergeIds(List<String> existing, List<String> added) {
+        LinkedHashSet<String> ids = new LinkedHashSet<>();
+        if (existing != null)
+            ids.addAll(existing);
+        ids.addAll(added);
+        return ids.isEmpty() ? null : new ArrayList<>(ids);
+    }
+
     public ProductDto create(@Valid ProductDto dto,
             MultipartFile foto,
             List<MultipartFile> fotos,
@@ -149,13 +203,18 @@ public class ProductService {
 
         log.info("=== INICIANDO CREACIÓN DE PRODUCTO ===");
         log.info("Datos recibidos - Nombre: {}, Uploader: {}", dto.getNombre(), uploader);
+        pinAfterCommit(uploader);
         log.info("Foto única recibida: {}", (foto != null ? foto.getOriginalFilename() : "null"));
         log.info("Fotos múltiples recibidas: {}", (fotos != null ? fotos.size() : 0));
         log.info("Archivos recibidos: {}", (archivosAut != null ? archivosAut.size() : 0));
 
         // 1) Resolver categorías/especialidades
-        Set<Category> cats = namesToCategorySet(dto.getCategorias());
-        Set<Category> specs = namesToCategorySet(dto.getEspecialidades());
+        Set<Category> cats;
+        Set<Category> specs;
+        try (ServerTiming.Span ignored = ServerTiming.phase("categories")) {
+            cats = namesToCategorySet(dto.getCategorias());
+            specs = namesToCategorySet(dto.getEspecialidades());
+        }
 
         // 2) Crear entidad base PENDIENTE
         Product p = Product.builder()
@@ -170,10 +229,14 @@ public class ProductService {
                 .build();
 
         // 3) Primer guardado para obtener ID
-        Product saved = repo.save(p);
-        repo.flush();
+        Product saved;
+        try (ServerTiming.Span ignored = ServerTiming.phase("db")) {
+            saved = repo.save(p);
+            repo.flush();
+        }
         final Long productId = saved.getIdProducto(); // <- capturamos ID en variable final
         log.info("Producto guardado inicialmente con ID: {}", productId);
+        events.publishEvent(new ProductChangedEvent(productId));
 
         boolean hasChanges = false;
 
@@ -185,13 +248,15 @@ public class ProductService {
                 if (f == null || f.isEmpty())
                     continue;
                 try {
-                    FileInfoDto res = fileClient.uploadProductFile(f, uploader, productId);
+                    FileInfoDto res = dedup.uploadProductFile(f, uploader, productId);
                     if (res != null && res.getDriveFileId() != null && !res.getDriveFileId().trim().isEmpty()) {
                         fotoIds.add(res.getDriveFileId());
                         log.info("Foto subida (múltiple): {} → {}", f.getOriginalFilename(), res.getDriveFileId());
                     } else {
                         log.warn("Respuesta nula/sin driveFileId para foto múltiple: {}", f.getOriginalFilename());
                     }
+                } catch (FileServiceUnavailableException e) {
+                    throw e; // breaker abierto: abortamos (rollback) en vez de crear sin archivos
                 } catch (Exception e) {
                     log.error("Error subiendo foto múltiple {}: {}", f.getOriginalFilename(), e.getMessage(), e);
                 }
@@ -200,20 +265,22 @@ public class ProductService {
 
         if (fotoIds.isEmpty() && foto != null && !foto.isEmpty()) {
             try {
-                FileInfoDto res = fileClient.uploadProductFile(foto, uploader, productId);
+                FileInfoDto res = dedup.uploadProductFile(foto, uploader, productId);
                 if (res != null && res.getDriveFileId() != null && !res.getDriveFileId().trim().isEmpty()) {
                     fotoIds.add(res.getDriveFileId());
                     log.info("Foto subida (única): {} → {}", foto.getOriginalFilename(), res.getDriveFileId());
                 } else {
                     log.warn("Respuesta nula/sin driveFileId para foto única");
                 }
+            } catch (FileServiceUnavailableException e) {
+                throw e;
             } catch (Exception e) {
                 log.error("Error subiendo foto única: {}", e.getMessage(), e);
             }
         }
 
         if (!fotoIds.isEmpty()) {
-            saved.setFotografiaProd(fotoIds);
+            saved.setFotografiaProd(distinct(fotoIds));
             hasChanges = true;
         }
 
@@ -224,27 +291,31 @@ public class ProductService {
                 if (mf == null || mf.isEmpty())
                     continue;
                 try {
-                    FileInfoDto res = fileClient.uploadProductFile(mf, uploader, productId);
+                    FileInfoDto res = dedup.uploadProductFile(mf, uploader, productId);
                     if (res != null && res.getDriveFileId() != null && !res.getDriveFileId().trim().isEmpty()) {
                         driveIds.add(res.getDriveFileId());
                         log.info("Archivo agregado: {} → {}", mf.getOriginalFilename(), res.getDriveFileId());
                     } else {
                         log.warn("Respuesta nula/sin driveFileId para archivo: {}", mf.getOriginalFilename());
                     }
+                } catch (FileServiceUnavailableException e) {
+                    throw e;
                 } catch (Exception e) {
                     log.error("Error subiendo archivo {}: {}", mf.getOriginalFilename(), e.getMessage(), e);
                 }
             }
             if (!driveIds.isEmpty()) {
-                saved.setArchivosAut(driveIds);
+                saved.setArchivosAut(distinct(driveIds));
                 hasChanges = true;
             }
         }
 
         // 6) Segundo guardado (si hubo cambios)
         if (hasChanges) {
-            saved = repo.save(saved);
-            repo.flush();
+            try (ServerTiming.Span ignored = ServerTiming.phase("db")) {
+                saved = repo.save(saved);
+                repo.flush();
+            }
             log.info("Producto {} actualizado con multimedia. Fotos: {}, Archivos: {}",
                     productId,
                     (saved.getFotografiaProd() == null ? 0 : saved.getFotografiaProd().size()),
@@ -253,6 +324,9 @@ public class ProductService {
             log.info("No hubo cambios de archivos para guardar en producto {}", productId);
         }
 
+        List<String> nuevasFotos = fotoIds;
+        afterCommit(() -> derivatives.enqueueAll(nuevasFotos));
+
         // 7) Email al ADMIN (usamos productId final y NO capturamos 'saved' en lambdas)
         try {
             List<String> portadaIds = (saved.getFotografiaProd() == null) ? List.of() : saved.getFotografiaProd();
@@ -296,19 +370,11 @@ public class ProductService {
         if (!Objects.equals(p.getUploaderUsername(), uploader)) {
             throw new SecurityException("Sin permiso");
         }
+        pinAfterCommit(uploader);
+        events.publishEvent(new ProductChangedEvent(id));
 
+        // PENDIENTE: lo nuevo va sólo a staging y se promueve al aprobar (decidir)
         boolean esPendiente = p.getEstado() == ProductStatus.PENDIENTE;
-        if (esPendiente) {
-            if (fotos != null)
-                for (var f : fotos)
-                    fileClient.uploadToStaging(f, id);
-            if (foto != null && !foto.isEmpty())
-                fileClient.uploadToStaging(foto, id);
-            if (archivosAut != null)
-                for (var mf : archivosAut)
-                    fileClient.uploadToStaging(mf, id);
-        }
-
         boolean esAprobado = p.getEstado() == ProductStatus.APROBADO;
 
         List<String> existingFotoIds = (p.getFotografiaProd() != null)
@@ -322,37 +388,25 @@ public class ProductService {
         for (String oldId : existingFotoIds) {
             if (!keepIds.contains(oldId)) {
                 try {
-                    fileClient.deleteFile(oldId);
+                    releaseFile(id, oldId, p.getArchivosAut());
                 } catch (Exception e) {
                     log.warn("No se pudo eliminar foto {} en Drive: {}", oldId, e.getMessage());
                 }
             }
         }
 
-        // Subir nuevas fotos (múltiples)
-        List<String> uploadedFotoIds = new ArrayList<>();
-        if (fotos != null) {
-            for (MultipartFile f : fotos) {
-                if (f == null || f.isEmpty())
-                    continue;
-                FileInfoDto res = fileClient.uploadProductFile(f, uploader, id);
-                if (res != null && res.getDriveFileId() != null) {
-                    uploadedFotoIds.add(res.getDriveFileId());
-                }
-            }
-        }
-        // Compatibilidad: una sola 'foto'
-        if (foto != null && !foto.isEmpty()) {
-            FileInfoDto res = fileClient.uploadProductFile(foto, uploader, id);
-            if (res != null && res.getDriveFileId() != null) {
-                uploadedFotoIds.add(res.getDriveFileId());
-            }
-        }
+        // Subir nuevas fotos (múltiples + compatibilidad con una sola 'foto')
+        List<MultipartFile> fotosEntrantes = new ArrayList<>();
+        if (fotos != null)
+            fotosEntrantes.addAll(fotos);
+        if (foto != null)
+            fotosEntrantes.add(foto);
+        List<String> uploadedFotoIds = uploadIncoming(fotosEntrantes, uploader, id, esPendiente);
 
-        // Resultado final de fotos = keep + nuevos
-        List<String> finalFotoIds = new ArrayList<>(keepIds);
-        finalFotoIds.addAll(uploadedFotoIds);
-        p.setFotografiaProd(finalFotoIds.isEmpty() ? null : finalFotoIds);
+        // Resultado final de fotos = keep + nuevos (sin repetir los deduplicados)
+        List<String> finalFotoIds = mergeIds(keepIds, uploadedFotoIds);
+        afterCommit(() -> derivatives.enqueueAll(uploadedFotoIds));
+        p.setFotografiaProd(finalFotoIds);
 
         // ------------------------------------
         // ARCHIVOS AUTORIZADOS -> **NO PERMITIDO** si está APROBADO
@@ -376,29 +430,16 @@ public class ProductService {
             for (String oldId : existingAutIds) {
                 if (!keepAutIds.contains(oldId)) {
                     try {
-                        fileClient.deleteFile(oldId);
+                        releaseFile(id, oldId, p.getFotografiaProd());
                     } catch (Exception e) {
                         log.warn("No se pudo eliminar archivo AUT {} en Drive: {}", oldId, e.getMessage());
                     }
                 }
             }
 
-            List<String> uploadedAutIds = new ArrayList<>();
-            if (archivosAut != null) {
-                for (MultipartFile mf : archivosAut) {
-                    if (mf == null || mf.isEmpty())
-                        continue;
-                    FileInfoDto res = fileClient.uploadProductFile(mf, uploader, id);
-                    if (res != null && res.getDriveFileId() != null) {
-                        uploadedAutIds.add(res.getDriveFileId());
-                    } else {
-                        log.warn("Subida de archivo AUT sin driveFileId. original={}", mf.getOriginalFilename());
-                    }
-                }
-            }
-            List<String> finalAutIds = new ArrayList<>(keepAutIds);
-            finalAutIds.addAll(uploadedAutIds);
-            p.setArchivosAut(finalAutIds.isEmpty() ? null : finalAutIds);
+            List<String> uploadedAutIds = uploadIncoming(archivosAut, uploader, id, esPendiente);
+            List<String> finalAutIds = mergeIds(keepAutIds, uploadedAutIds);
+            p.setArchivosAut(finalAutIds);
         } else {
             // Si está APROBADO, ignoramos cambios sobre archivos autorizados (se mantienen
             // tal cual)
@@ -427,6 +468,117 @@ public class ProductService {
         return toDto(repo.save(p));
     }
 
+    /**
+     * Agrega un archivo AUT ya recibido (p. ej. por una sesión de subida
+     * reanudable) sin pasar por el multipart de update.
+     */
+    public ProductDto attachAutFile(Long id, MultipartFile file, String uploader) {
+        Product p = loadForAttach(id, uploader, true);
+        List<String> uploaded = uploadIncoming(List.of(file), uploader, id,
+                p.getEstado() == ProductStatus.PENDIENTE);
+        if (!uploaded.isEmpty())
+            p.setArchivosAut(mergeIds(p.getArchivosAut(), uploaded));
+        return toDto(repo.save(p));
+    }
+
+    /**
+     * Registra archivos que el cliente subió directamente a file-service con un
+     * ticket de subida. Los IDs ya vienen verificados contra los metadatos.
+     */
+    public ProductDto attachUploadedIds(Long id, boolean aut, List<String> driveIds, String uploader) {
+        Product p = loadForAttach(id, uploader, aut);
+        if (aut) {
+            p.setArchivosAut(mergeIds(p.getArchivosAut(), driveIds));
+        } else {
+            p.setFotografiaProd(mergeIds(p.getFotografiaProd(), driveIds));
+            afterCommit(() -> derivatives.enqueueAll(driveIds));
+        }
+        return toDto(repo.save(p));
+    }
+
+    private Product loadForAttach(Long id, String uploader, boolean aut) {
+        Product p = repo.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Producto no encontrado"));
+        if (!Objects.equals(p.getUploaderUsername(), uploader))
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Sin permiso");
+        if (aut && p.getEstado() == ProductStatus.APROBADO)
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Producto APROBADO: no admite cambios en archivos autorizados");
+        pinAfterCommit(uploader);
+        events.publishEvent(new ProductChangedEvent(id));
+        return p;
+    }
+
+    /**
+     * Transfiere cada archivo entrante una única vez: a staging si el producto
+     * está PENDIENTE, a almacenamiento permanente si no. Sólo las subidas
+     * permanentes devuelven driveFileId; lo de staging entra al producto al
+     * promoverse en decidir().
+     */
+    private List<String> uploadIncoming(List<MultipartFile> files, String uploader, Long id, boolean toStaging) {
+        List<String> driveIds = new ArrayList<>();
+        if (files == null)
+            return driveIds;
+        for (MultipartFile f : files) {
+            if (f == null || f.isEmpty())
+                continue;
+            if (toStaging) {
+                fileClient.uploadToStaging(f, id);
+                continue;
+            }
+            FileInfoDto res = dedup.uploadProductFile(f, uploader, id);
+            if (res != null && res.getDriveFileId() != null) {
+                driveIds.add(res.getDriveFileId());
+            } else {
+                log.warn("Subida sin driveFileId. original={}", f.getOriginalFilename());
+            }
+        }
+        return driveIds;
+    }
+
+    /**
+     * El producto deja de usar el archivo. Con dedup el mismo driveFileId puede
+     * estar a la vez en fotos y en AUT: si la otra lista lo sigue usando no se borra.
+     */
+    private void releaseFile(Long productId, String driveFileId, List<String> otherList) {
+        if (otherList != null && otherList.contains(driveFileId)) {
+            log.info("[DEDUP] {} sigue referenciado por el producto {}; no se borra en Drive", driveFileId, productId);
+            return;
+        }
+        dedup.forget(productId, driveFileId);
+        fileClient.deleteFile(driveFileId);
+        derivatives.evict(driveFileId);
+    }
+
+    /**
+     * Read-your-writes: tras el commit, las lecturas de estos usuarios van al
+     * primario durante datasource.read-replicas.pin-window.
+     */
+    private void pinAfterCommit(String... usernames) {
+        afterCommit(() -> {
+            for (String u : usernames)
+                readYourWrites.pin(u);
+        });
+    }
+
+    /** Ejecuta la tarea tras el commit de la transacción actual (o ya, si no hay). */
+    private static void afterCommit(Runnable task) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            task.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                task.run();
+            }
+        });
+    }
+
+    private static List<String> distinct(List<String> ids) {
+        return new ArrayList<>(new LinkedHashSet<>(ids));
+    }
+
     private String extractDriveId(String urlOrId) {
         if (urlOrId == null)
             return null;
@@ -440,9 +592,16 @@ public class ProductService {
         if (!Objects.equals(p.getUploaderUsername(), uploader)) {
             throw new SecurityException("No autorizado");
         }
+        pinAfterCommit(uploader);
+        events.publishEvent(new ProductChangedEvent(id));
 
         // 1) Borrar CARPETA del producto en Drive (recursivo) vía file-service
-        boolean folderOk = deleteFolderWithRetry(p.getIdProducto(), 3, 150);
+        List<String> fileIds = new ArrayList<>();
+        if (p.getFotografiaProd() != null)
+            fileIds.addAll(p.getFotografiaProd());
+        if (p.getArchivosAut() != null)
+            fileIds.addAll(p.getArchivosAut());
+        boolean folderOk = deleteFolderWithRetry(p.getIdProducto(), fileIds, 3, 150);
         if (!folderOk) {
             throw new ResponseStatusException(
                     HttpStatus.BAD_GATEWAY,
@@ -450,15 +609,19 @@ public class ProductService {
         }
 
         // 2) Si TODO salió bien en Drive, recién borramos en BD
+        dedup.forgetProduct(id);
+        fileIds.forEach(derivatives::evict);
         repo.delete(p);
     }
 
     /** Reintenta la eliminación de la carpeta del producto en Drive. */
-    private boolean deleteFolderWithRetry(Long productId, int maxAttempts, long backoffMillis) {
+    private boolean deleteFolderWithRetry(Long productId, List<String> fileIds, int maxAttempts, long backoffMillis) {
         for (int attempt = 1; attempt <= maxAttempts; attempt++) {
             try {
-                fileClient.deleteProductFolder(productId);
+                fileClient.deleteProductFolder(productId, fileIds);
                 return true;
+            } catch (FileServiceUnavailableException e) {
+                throw e; // breaker abierto: reintentar sólo suma latencia
             } catch (Exception e) {
                 if (attempt == maxAttempts) {
                     log.warn("Fallo al eliminar carpeta de producto {} tras {} intentos: {}",
@@ -499,21 +662,34 @@ public class ProductService {
         return false;
     }
 
+    @Transactional(readOnly = true)
     public org.springframework.data.domain.Page<ProductDto> findAll(org.springframework.data.domain.Pageable pg) {
-        return repo.findAll(pg).map(this::toDto);
+        return toDtoPage(repo.findAll(pg));
     }
 
+    @Transactional(readOnly = true)
     public org.springframework.data.domain.Page<ProductDto> findByEstado(ProductStatus e,
             org.springframework.data.domain.Pageable pg) {
-        return repo.findByEstado(e, pg).map(this::toDto);
+        return toDtoPage(repo.findByEstado(e, pg));
+    }
+
+    /** Contenido de una página sin contar el total; ver {@link ApprovedCatalogSnapshots}. */
+    @Transactional(readOnly = true)
+    public List<ProductDto> findContentByEstado(ProductStatus e, org.springframework.data.domain.Pageable pg) {
+        List<Product> products = repo.findSliceByEstado(e, pg).getContent();
+        Map<Long, List<FileInfoDto>> metas = fetchMetas(products);
+        return products.stream()
+                .map(p -> toDto(p, metas.getOrDefault(p.getIdProducto(), List.of())))
+                .toList();
     }
 
+    @Transactional(readOnly = true)
     public org.springframework.data.domain.Page<ProductDto> findByUploaderId(String u,
             org.springframework.data.domain.Pageable pg) {
-        return repo.findByUploaderUsername(u, pg).map(this::toDto);
+        return toDtoPage(repo.findByUploaderUsername(u, pg));
     }
 
-    @Transactional(Transactional.TxType.SUPPORTS)
+    @Transactional(readOnly = true)
     public ProductDto getById(Long id) {
         return toDto(
                 repo.findById(id)
@@ -521,7 +697,7 @@ public class ProductService {
                                 HttpStatus.NOT_FOUND, "Producto con ID " + id + " no existe")));
     }
 
-    private Set<Category> namesToCategorySet(List<String> names) {
+    Set<Category> namesToCategorySet(List<String> names) {
         if (names == null)
             return Collections.emptySet();
         return names.stream().map(this::resolveOrCreateCategory).collect(Collectors.toSet());
@@ -532,8 +708,13 @@ public class ProductService {
                 .orElseGet(() -> catRepo.save(Category.builder().nombre(nombre).build()));
     }
 
+    @Transactional(readOnly = true)
     public List<ProductDto> findByUploaderUsername(String username) {
-        return repo.findByUploaderUsername(username).stream().map(this::toDto).toList();
+        List<Product> products = repo.findByUploaderUsername(username);
+        Map<Long, List<FileInfoDto>> metas = fetchMetas(products);
+        return products.stream()
+                .map(p -> toDto(p, metas.getOrDefault(p.getIdProducto(), List.of())))
+                .toList();
     }
 
     private static String onlyExt(String originalName) {
@@ -545,7 +726,124 @@ public class ProductService {
         return originalName.substring(dot + 1).toUpperCase(Locale.ROOT);
     }
 
+    private org.springframework.data.domain.Page<ProductDto> toDtoPage(
+            org.springframework.data.domain.Page<Product> page) {
+        Map<Long, List<FileInfoDto>> metas = fetchMetas(page.getContent());
+        return page.map(p -> toDto(p, metas.getOrDefault(p.getIdProducto(), List.of())));
+    }
+
+    /**
+     * Consulta los metadatos de todos los productos a la vez (hasta
+     * metaConcurrency en vuelo) en lugar de uno por uno dentro de toDto.
+     * Las llamadas se arman aquí, en el hilo del request, para que capturen su
+     * token y su plazo; flatMap sólo decide cuándo se suscriben.
+     */
+    private Map<Long, List<FileInfoDto>> fetchMetas(Collection<Product> products) {
+        if (products.isEmpty())
+            return Map.of();
+        List<Mono<Map.Entry<Long, List<FileInfoDto>>>> calls = products.stream()
+                .map(Product::getIdProducto)
+                .distinct()
+                .map(pid -> fileClient.getMetaByProductReactive(pid)
+                        .collectList()
+                        .map(list -> Map.entry(pid, list)))
+                .toList();
+        Map<Long, List<FileInfoDto>> metas = Flux.fromIterable(calls)
+                .flatMap(call -> call, metaConcurrency)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .block();
+        return metas != null ? metas : Map.of();
+    }
+
     private ProductDto toDto(Product p) {
+        List<FileInfoDto> metas = List.of();
+        try {
+            metas = fileClient.getMetaByProduct(p.getIdProducto());
+        } catch (Exception e) {
+            log.warn("No se pudieron obtener metadatos para producto {}: {}", p.getIdProducto(), e.getMessage());
+        }
+        return toDto(p, metas);
+    }
+
+    private Map<String, String> variantUrls(Long productId, String driveFileId) {
+        Map<String, String> urls = new LinkedHashMap<>();
+        for (ImageDerivativeService.Variant v : ImageDerivativeService.Variant.values())
+            urls.put(v.key(), gatewayBaseUrl + "/api/products/" + productId + "/images/" + driveFileId + "/" + v.key());
+        return urls;
+    }
+
+    /** Archivo de un producto: metadatos y si es AUT (requiere autenticación). */
+    public record ProductFile(FileInfoDto meta, boolean aut) {}
+
+    /**
+     * Resuelve un archivo descargable del producto: tiene que estar en
+     * fotografiaProd/archivosAut (o ser una imagen de sus metadatos, como el
+     * fallback de toDto). Si file-service no da metadatos se devuelve sólo el ID.
+     * Misma visibilidad que {@link #autFiles}: {@code username} es null para
+     * peticiones anónimas.
+     */
+    @Transactional(readOnly = true)
+    public ProductFile findFile(Long id, String driveFileId, String username, boolean admin) {
+        Product p = repo.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Producto no encontrado"));
+        requireVisible(p, username, admin);
+        boolean aut = p.getArchivosAut() != null && p.getArchivosAut().contains(driveFileId);
+        boolean foto = p.getFotografiaProd() != null && p.getFotografiaProd().contains(driveFileId);
+
+        FileInfoDto meta = fileClient.getMetaByProduct(id).stream()
+                .filter(m -> driveFileId.equals(m.getDriveFileId()))
+                .findFirst()
+                .orElse(null);
+        if (!aut && !foto && (meta == null || meta.getFileType() == null || !meta.getFileType().startsWith("image/")))
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Archivo no encontrado en el producto");
+        if (meta == null) {
+            meta = new FileInfoDto();
+            meta.setDriveFileId(driveFileId);
+        }
+        return new ProductFile(meta, aut);
+    }
+
+    /**
+     * Metadatos de los archivos AUT del producto, en el orden de archivosAut.
+     * Un producto no APROBADO sólo lo ven su autor y los admins; para el resto
+     * es 404, como si no existiera.
+     */
+    @Transactional(readOnly = true)
+    public List<FileInfoDto> autFiles(Long id, String username, boolean admin) {
+        Product p = repo.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Producto no encontrado"));
+        requireVisible(p, username, admin);
+        if (p.getArchivosAut() == null || p.getArchivosAut().isEmpty())
+            return List.of();
+        Map<String, FileInfoDto> byId = fileClient.getMetaByProduct(id).stream()
+                .filter(m -> m.getDriveFileId() != null)
+                .collect(Collectors.toMap(FileInfoDto::getDriveFileId, m -> m, (a, b) -> a));
+        return p.getArchivosAut().stream()
+                .distinct()
+                .map(fid -> byId.computeIfAbsent(fid, k -> {
+                    FileInfoDto m = new FileInfoDto();
+                    m.setDriveFileId(k);
+                    return m;
+                }))
+                .toList();
+    }
+
+    /** Un producto no APROBADO sólo existe para su autor y los admins. */
+    private static void requireVisible(Product p, String username, boolean admin) {
+        if (p.getEstado() != ProductStatus.APROBADO && !admin
+                && (username == null || !username.equals(p.getUploaderUsername())))
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Producto no encontrado");
+    }
+
+    /** true si la foto está registrada en el producto (sólo esas generan variantes). */
+    @Transactional(readOnly = true)
+    public boolean hasPhoto(Long id, String driveFileId) {
+        return repo.findById(id)
+                .map(p -> p.getFotografiaProd() != null && p.getFotografiaProd().contains(driveFileId))
+                .orElse(false);
+    }
+
+    ProductDto toDto(Product p, List<FileInfoDto> metas) {
         // 1) URLs de fotos desde fotografiaProd (si viene)
         List<String> fotoUrls = (p.getFotografiaProd() != null && !p.getFotografiaProd().isEmpty())
                 ? p.getFotografiaProd().stream()
@@ -564,28 +862,23 @@ public class ProductService {
 
         List<String> formatos = List.of();
         List<String> imageIdsFromMeta = List.of();
-        try {
-            var metas = fileClient.getMetaByProduct(p.getIdProducto());
-            if (metas != null && !metas.isEmpty()) {
-                formatos = metas.stream()
-                        .filter(m -> m.getFileType() == null || !m.getFileType().startsWith("image/"))
-                        .map(m -> onlyExt(m.getOriginalName()))
-                        .filter(Objects::nonNull)
-                        .distinct()
-                        .toList();
+        if (metas != null && !metas.isEmpty()) {
+            formatos = metas.stream()
+                    .filter(m -> m.getFileType() == null || !m.getFileType().startsWith("image/"))
+                    .map(m -> onlyExt(m.getOriginalName()))
+                    .filter(Objects::nonNull)
+                    .distinct()
+                    .toList();
 
-                imageIdsFromMeta = metas.stream()
-                        .filter(m -> m.getFileType() != null && m.getFileType().startsWith("image/"))
-                        .map(m -> m.getDriveFileId())
-                        .filter(Objects::nonNull)
-                        .toList();
+            imageIdsFromMeta = metas.stream()
+                    .filter(m -> m.getFileType() != null && m.getFileType().startsWith("image/"))
+                    .map(m -> m.getDriveFileId())
+                    .filter(Objects::nonNull)
+                    .toList();
 
-                log.info("Formatos para producto {}: {}", p.getIdProducto(), formatos);
-            } else {
-                log.info("Metadatos vacíos para producto {}", p.getIdProducto());
-            }
-        } catch (Exception e) {
-            log.warn("No se pudieron obtener metadatos para producto {}: {}", p.getIdProducto(), e.getMessage());
+            log.info("Formatos para producto {}: {}", p.getIdProducto(), formatos);
+        } else {
+            log.info("Metadatos vacíos para producto {}", p.getIdProducto());
         }
 
         // 4) Fallback de fotos: si fotografiaProd está vacío, usar las imágenes
@@ -599,6 +892,11 @@ public class ProductService {
             }
         }
 
+        // 5) Variantes redimensionadas (thumb/card/detail) por foto, mismo orden que fotografiaUrl
+        List<Map<String, String>> variantes = fotografiaProdForDto.stream()
+                .map(fid -> variantUrls(p.getIdProducto(), fid))
+                .toList();
+
         return ProductDto.builder()
                 .idProducto(p.getIdProducto())
                 .nombre(p.getNombre())
@@ -606,6 +904,7 @@ public class ProductService {
                 .precioIndividual(p.getPrecioIndividual())
                 .fotografiaProd(fotografiaProdForDto)
                 .fotografiaUrl(fotoUrls)
+                .fotografiaVariantes(variantes)
                 .archivosAut(p.getArchivosAut())
                 .archivosAutUrls(autUrls)
                 .formatos(formatos)
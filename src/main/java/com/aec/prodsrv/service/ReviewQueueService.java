@@ -0,0 +1,118 @@
+package com.aec.prodsrv.service;
+
+import com.aec.prodsrv.client.FileClient;
+import com.aec.prodsrv.dto.ProductDto;
+import com.aec.prodsrv.dto.ReviewItemDto;
+import com.aec.prodsrv.model.Product;
+import com.aec.prodsrv.observability.ServerTiming;
+import com.aec.prodsrv.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Cola de revisión de productos PENDIENTE. Cada admin reserva los siguientes
+ * N por un plazo (lease): la selección usa FOR UPDATE SKIP LOCKED, así dos
+ * admins que piden a la vez reciben productos distintos, y una reserva
+ * vencida vuelve a quedar libre. decidir responde 409 si el producto está
+ * reservado por otro admin.
+ *
+ * Los archivos de un pendiente viven en staging: en lugar de metadatos
+ * permanentes (siempre vacíos) se devuelven sus previews de staging.
+ */
+@Service
+public class ReviewQueueService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReviewQueueService.class);
+
+    private final ProductRepository repo;
+    private final ProductService products;
+    private final FileClient fileClient;
+    private final TransactionTemplate tx;
+    private final Duration lease;
+    private final int maxClaim;
+    private final int previewConcurrency;
+
+    public ReviewQueueService(ProductRepository repo,
+            ProductService products,
+            FileClient fileClient,
+            PlatformTransactionManager txManager,
+            @Value("${review-queue.lease:15m}") Duration lease,
+            @Value("${review-queue.max-claim:20}") int maxClaim,
+            @Value("${file-service.meta-concurrency:8}") int previewConcurrency) {
+        this.repo = repo;
+        this.products = products;
+        this.fileClient = fileClient;
+        this.tx = new TransactionTemplate(txManager);
+        this.lease = lease;
+        this.maxClaim = maxClaim;
+        this.previewConcurrency = previewConcurrency;
+    }
+
+    /**
+     * Reserva (o renueva) hasta {@code limit} pendientes para el admin. La
+     * transacción termina antes de pedir los previews: las filas no quedan
+     * bloqueadas mientras se espera a file-service.
+     */
+    public List<ReviewItemDto> claim(String admin, int limit) {
+        int n = Math.max(1, Math.min(limit, maxClaim));
+        Instant now = Instant.now();
+        Instant until = now.plus(lease);
+
+        List<ProductDto> claimed = ServerTiming.time("db", () -> tx.execute(status -> {
+            List<Long> ids = repo.findClaimableIds(admin, now, n);
+            if (ids.isEmpty())
+                return List.<ProductDto>of();
+            repo.claim(ids, admin, until);
+            return repo.findAllById(ids).stream()
+                    .sorted(Comparator.comparing(Product::getIdProducto))
+                    .map(p -> products.toDto(p, List.of()))
+                    .toList();
+        }));
+        if (claimed.isEmpty())
+            return List.of();
+
+        Map<Long, List<FileClient.StagingInfoDto>> previews = fetchPreviews(
+                claimed.stream().map(ProductDto::getIdProducto).toList());
+        log.info("[REVIEW] {} reservó {} productos hasta {}", admin, claimed.size(), until);
+        return claimed.stream()
+                .map(dto -> new ReviewItemDto(dto, previews.getOrDefault(dto.getIdProducto(), List.of()), until))
+                .toList();
+    }
+
+    /** Libera la reserva si es de este admin; {@code false} si no lo era. */
+    public boolean release(Long id, String admin) {
+        return Boolean.TRUE.equals(tx.execute(status -> repo.release(id, admin) > 0));
+    }
+
+    /**
+     * Staging de todos los productos en un solo paso (hasta previewConcurrency
+     * en vuelo). Las llamadas se arman en el hilo del request para que lleven
+     * su token; un fallo deja ese producto sin previews en vez de tumbar la cola.
+     */
+    private Map<Long, List<FileClient.StagingInfoDto>> fetchPreviews(List<Long> ids) {
+        List<Mono<Map.Entry<Long, List<FileClient.StagingInfoDto>>>> calls = ids.stream()
+                .map(pid -> fileClient.listStagingReactive(pid)
+                        .collectList()
+                        .onErrorResume(e -> {
+                            log.warn("[REVIEW] Sin previews de staging para {}: {}", pid, e.toString());
+                            return Mono.just(List.of());
+                        })
+                        .map(list -> Map.entry(pid, list)))
+                .toList();
+        Map<Long, List<FileClient.StagingInfoDto>> out = ServerTiming.timed("staging", Flux.fromIterable(calls)
+                .flatMap(call -> call, previewConcurrency)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue))
+                .block();
+        return out != null ? out : Map.of();
+    }
+}
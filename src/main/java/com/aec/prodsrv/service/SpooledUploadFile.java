@@ -0,0 +1,94 @@
+package com.aec.prodsrv.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Archivo armado a partir de los trozos de una sesión de subida, visto como
+ * MultipartFile para reutilizar el camino normal (dedup, staging, FileClient).
+ * Los trozos se leen en orden y de a uno; nunca se concatenan en disco.
+ */
+final class SpooledUploadFile implements MultipartFile {
+
+    private final String originalFilename;
+    private final String contentType;
+    private final long size;
+    private final List<Path> chunks;
+
+    SpooledUploadFile(String originalFilename, String contentType, long size, List<Path> chunks) {
+        this.originalFilename = originalFilename;
+        this.contentType = contentType;
+        this.size = size;
+        this.chunks = List.copyOf(chunks);
+    }
+
+    @Override
+    public String getName() {
+        return "archivosAut";
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+        try (InputStream in = getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        Iterator<Path> it = chunks.iterator();
+        return new SequenceInputStream(new Enumeration<InputStream>() {
+            @Override
+            public boolean hasMoreElements() {
+                return it.hasNext();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                try {
+                    return Files.newInputStream(it.next());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void transferTo(File dest) throws IOException {
+        try (InputStream in = getInputStream(); OutputStream out = Files.newOutputStream(dest.toPath())) {
+            in.transferTo(out);
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.aec.prodsrv.service;
+
+import com.aec.prodsrv.dto.ProductDto;
+import com.aec.prodsrv.dto.UploadSessionDto;
+import com.aec.prodsrv.dto.UploadSessionRequest;
+import com.aec.prodsrv.model.Product;
+import com.aec.prodsrv.model.ProductStatus;
+import com.aec.prodsrv.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Sesiones de subida reanudable para archivos AUT grandes. El cliente crea la
+ * sesión, envía los trozos numerados (en paralelo y en cualquier orden),
+ * consulta qué rangos ya llegaron y reintenta sólo los que faltan. Cada trozo
+ * se guarda en {file.upload-dir}/sessions/{id}/chunk-{n} con escritura
+ * temporal + rename atómico, así un PUT cortado nunca deja un trozo a medias.
+ *
+ * file-service no tiene API de trozos: el archivo se le envía al confirmar
+ * (commit), leyendo los trozos en orden directamente desde disco.
+ *
+ * Las sesiones viven en el disco local de la instancia: con varias réplicas
+ * el gateway debe enrutar con afinidad o file.upload-dir ser un volumen compartido.
+ */
+@Service
+public class UploadSessionService {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadSessionService.class);
+    private static final String MANIFEST = "session.json";
+    private static final int MIN_CHUNK_SIZE = 256 * 1024;
+    private static final int COPY_BUFFER = 64 * 1024;
+
+    /** Datos de la sesión persistidos junto a los trozos. */
+    record Manifest(String sessionId, Long productId, String uploader, String filename,
+            String contentType, long size, int chunkSize, Instant createdAt) {
+
+        int totalChunks() {
+            return (int) Math.max(1, (size + chunkSize - 1) / chunkSize);
+        }
+
+        long chunkLength(int n) {
+            return Math.min(chunkSize, size - (long) n * chunkSize);
+        }
+    }
+
+    private final ProductRepository repo;
+    private final ProductService products;
+    private final ObjectMapper mapper;
+    private final Path root;
+    private final Set<String> committing = ConcurrentHashMap.newKeySet();
+
+    @Value("${upload-sessions.chunk-size:8388608}")
+    private int defaultChunkSize;
+
+    @Value("${upload-sessions.max-chunk-size:67108864}")
+    private int maxChunkSize;
+
+    @Value("${upload-sessions.max-file-size:1048576000}")
+    private long maxFileSize;
+
+    @Value("${upload-sessions.ttl:24h}")
+    private Duration ttl;
+
+    public UploadSessionService(ProductRepository repo,
+            ProductService products,
+            ObjectMapper mapper,
+            @Value("${file.upload-dir}") String uploadDir) {
+        this.repo = repo;
+        this.products = products;
+        this.mapper = mapper;
+        this.root = Paths.get(uploadDir, "sessions");
+    }
+
+    public UploadSessionDto create(Long productId, UploadSessionRequest req, String uploader) {
+        Product p = repo.findById(productId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Producto no encontrado"));
+        if (!Objects.equals(p.getUploaderUsername(), uploader))
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Sin permiso");
+        if (p.getEstado() == ProductStatus.APROBADO)
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Producto APROBADO: no admite cambios en archivos autorizados");
+        if (req.getSize() > maxFileSize)
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Archivo de " + req.getSize() + " bytes supera el máximo de " + maxFileSize);
+
+        int chunkSize = req.getChunkSize() != null ? req.getChunkSize() : defaultChunkSize;
+        if (chunkSize < MIN_CHUNK_SIZE || chunkSize > maxChunkSize)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "chunkSize debe estar entre " + MIN_CHUNK_SIZE + " y " + maxChunkSize);
+
+        Manifest m = new Manifest(UUID.randomUUID().toString(), productId, uploader, req.getFilename(),
+                req.getContentType(), req.getSize(), chunkSize, Instant.now());
+        try {
+            Path dir = Files.createDirectories(root.resolve(m.sessionId()));
+            Path tmp = dir.resolve(MANIFEST + ".tmp");
+            mapper.writeValue(tmp.toFile(), m);
+            Files.move(tmp, dir.resolve(MANIFEST), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo crear la sesión de subida", e);
+        }
+        log.info("[UPLOAD-SESSION] {} creada: producto={}, archivo={}, {} bytes en {} trozos",
+                m.sessionId(), productId, m.filename(), m.size(), m.totalChunks());
+        return toDto(m);
+    }
+
+    public UploadSessionDto putChunk(Long productId, String sessionId, int n, InputStream body, String uploader) {
+        Manifest m = load(productId, sessionId, uploader);
+        rejectIfCommitting(m.sessionId());
+        if (n < 0 || n >= m.totalChunks())
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Trozo " + n + " fuera de rango (0.." + (m.totalChunks() - 1) + ")");
+
+        long expected = m.chunkLength(n);
+        Path dir = root.resolve(m.sessionId());
+        Path tmp = dir.resolve("chunk-" + n + "." + UUID.randomUUID() + ".tmp");
+        try {
+            long written;
+            try (OutputStream out = Files.newOutputStream(tmp, StandardOpenOption.CREATE_NEW)) {
+                written = copyAtMost(body, out, expected + 1);
+            }
+            if (written != expected) {
+                Files.deleteIfExists(tmp);
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Trozo " + n + ": se esperaban " + expected + " bytes y llegaron " + written);
+            }
+            // Mismo monitor que commit al marcar la sesión: ningún trozo cambia una vez empezada
+            synchronized (committing) {
+                rejectIfCommitting(m.sessionId());
+                Files.move(tmp, chunkPath(dir, n), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (ResponseStatusException e) {
+            deleteQuietly(tmp);
+            throw e;
+        } catch (IOException e) {
+            deleteQuietly(tmp);
+            throw new UncheckedIOException("No se pudo guardar el trozo " + n + " de " + m.sessionId(), e);
+        }
+        return toDto(m);
+    }
+
+    public UploadSessionDto status(Long productId, String sessionId, String uploader) {
+        return toDto(load(productId, sessionId, uploader));
+    }
+
+    /** Envía el archivo a file-service y lo agrega a archivosAut del producto. */
+    public ProductDto commit(Long productId, String sessionId, String uploader) {
+        Manifest m = load(productId, sessionId, uploader);
+        synchronized (committing) {
+            rejectIfCommitting(m.sessionId());
+            committing.add(m.sessionId());
+        }
+        try {
+            Path dir = root.resolve(m.sessionId());
+            List<Path> chunks = new ArrayList<>(m.totalChunks());
+            List<Integer> missing = new ArrayList<>();
+            for (int n = 0; n < m.totalChunks(); n++) {
+                Path c = chunkPath(dir, n);
+                if (Files.exists(c))
+                    chunks.add(c);
+                else
+                    missing.add(n);
+            }
+            if (!missing.isEmpty())
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Faltan " + missing.size() + " trozo(s), p. ej. " + missing.get(0));
+
+            long t0 = System.nanoTime();
+            ProductDto dto = products.attachAutFile(productId,
+                    new SpooledUploadFile(m.filename(), m.contentType(), m.size(), chunks), uploader);
+            log.info("[UPLOAD-SESSION] {} confirmada: {} bytes enviados a file-service en {} ms",
+                    m.sessionId(), m.size(), (System.nanoTime() - t0) / 1_000_000);
+            deleteQuietly(dir);
+            return dto;
+        } finally {
+            committing.remove(m.sessionId());
+        }
+    }
+
+    private void rejectIfCommitting(String sid) {
+        if (committing.contains(sid))
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "La sesión ya se está confirmando");
+    }
+
+    public void abort(Long productId, String sessionId, String uploader) {
+        Manifest m = load(productId, sessionId, uploader);
+        deleteQuietly(root.resolve(m.sessionId()));
+    }
+
+    /** Borra las sesiones sin actividad (ningún trozo nuevo) durante upload-sessions.ttl. */
+    @Scheduled(initialDelayString = "${upload-sessions.cleanup-interval-ms:3600000}",
+            fixedDelayString = "${upload-sessions.cleanup-interval-ms:3600000}")
+    void purgeExpired() {
+        if (!Files.isDirectory(root))
+            return;
+        Instant limit = Instant.now().minus(ttl);
+        int purged = 0;
+        try (Stream<Path> dirs = Files.list(root)) {
+            for (Path dir : (Iterable<Path>) dirs::iterator) {
+                String sid = dir.getFileName().toString();
+                if (committing.contains(sid))
+                    continue;
+                if (Files.getLastModifiedTime(dir).toInstant().isBefore(limit)) {
+                    deleteQuietly(dir);
+                    purged++;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("[UPLOAD-SESSION] No se pudo recorrer {}: {}", root, e.getMessage());
+        }
+        if (purged > 0)
+            log.info("[UPLOAD-SESSION] {} sesión(es) vencida(s) eliminada(s)", purged);
+    }
+
+    /**
+     * Única entrada para un sessionId del cliente: se normaliza como UUID y a
+     * partir de aquí sólo se usa el del manifiesto para armar rutas.
+     */
+    private Manifest load(Long productId, String sessionId, String uploader) {
+        String sid;
+        try {
+            sid = UUID.fromString(sessionId).toString();
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Sesión no encontrada");
+        }
+        Manifest m;
+        try {
+            m = mapper.readValue(root.resolve(sid).resolve(MANIFEST).toFile(), Manifest.class);
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Sesión no encontrada");
+        }
+        if (!sid.equals(m.sessionId()) || !m.productId().equals(productId))
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Sesión no encontrada");
+        if (!Objects.equals(m.uploader(), uploader))
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Sin permiso");
+        return m;
+    }
+
+    private UploadSessionDto toDto(Manifest m) {
+        Path dir = root.resolve(m.sessionId());
+        List<long[]> ranges = new ArrayList<>();
+        List<Integer> missing = new ArrayList<>();
+        Instant lastActivity = m.createdAt();
+        for (int n = 0; n < m.totalChunks(); n++) {
+            if (!Files.exists(chunkPath(dir, n))) {
+                missing.add(n);
+                continue;
+            }
+            long start = (long) n * m.chunkSize();
+            long end = start + m.chunkLength(n);
+            long[] last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+            if (last != null && last[1] == start)
+                last[1] = end;
+            else
+                ranges.add(new long[] { start, end });
+        }
+        try {
+            lastActivity = Files.getLastModifiedTime(dir).toInstant();
+        } catch (IOException ignored) {
+            // se usa la fecha de creación
+        }
+        return UploadSessionDto.builder()
+                .sessionId(m.sessionId())
+                .productId(m.productId())
+                .filename(m.filename())
+                .size(m.size())
+                .chunkSize(m.chunkSize())
+                .totalChunks(m.totalChunks())
+                .receivedRanges(ranges)
+                .missingChunks(missing)
+                .expiresAt(lastActivity.plus(ttl))
+                .build();
+    }
+
+    private static Path chunkPath(Path dir, int n) {
+        return dir.resolve("chunk-" + n);
+    }
+
+    /** Copia como máximo {@code limit} bytes; devuelve cuántos copió. */
+    private static long copyAtMost(InputStream in, OutputStream out, long limit) throws IOException {
+        byte[] buf = new byte[COPY_BUFFER];
+        long total = 0;
+        int r;
+        while (total < limit && (r = in.read(buf, 0, (int) Math.min(buf.length, limit - total))) != -1) {
+            out.write(buf, 0, r);
+            total += r;
+        }
+        return total;
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            FileSystemUtils.deleteRecursively(path);
+        } catch (IOException e) {
+            log.warn("[UPLOAD-SESSION] No se pudo borrar {}: {}", path, e.getMessage());
+        }
+    }
+}
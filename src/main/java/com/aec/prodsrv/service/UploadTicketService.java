@@ -0,0 +1,183 @@
+package com.aec.prodsrv.service;
+
+import com.aec.prodsrv.client.FileClient;
+import com.aec.prodsrv.client.dto.FileInfoDto;
+import com.aec.prodsrv.dto.ProductDto;
+import com.aec.prodsrv.dto.UploadTicketDto;
+import com.aec.prodsrv.model.Product;
+import com.aec.prodsrv.model.ProductStatus;
+import com.aec.prodsrv.repository.ProductRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Tickets de subida directa: el cliente sube a file-service (vía gateway) con
+ * un JWT de vida corta en lugar de mandar los bytes a prod-service.
+ *
+ * El ticket se firma con jwt.secret y lleva el claim "role", así file-service
+ * lo acepta como cualquier JWT de usuario; además declara producto, tipo y
+ * destino (claims pid/kind/target). file-service sólo valida firma y
+ * expiración, por eso el alcance se hace cumplir aquí, en confirm: el ticket
+ * debe ser de este producto y este usuario, y cada driveFileId tiene que
+ * aparecer en los metadatos del producto en file-service. En prod-service el
+ * ticket no sirve como token de acceso: SecurityConfig rechaza typ=upload-ticket.
+ *
+ * La subida vale hasta exp (upload-tickets.ttl); confirmar, hasta el claim
+ * confirm_until (exp + confirm-grace). La tolerancia de reloj es de segundos.
+ */
+@Service
+public class UploadTicketService {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadTicketService.class);
+    public static final String TYPE = "upload-ticket";
+    private static final String CONFIRM_UNTIL = "confirm_until";
+    private static final long CLOCK_SKEW_SECONDS = 30;
+
+    private final ProductRepository repo;
+    private final ProductService products;
+    private final FileClient fileClient;
+    private final SecretKey key;
+
+    @Value("${upload-tickets.ttl:10m}")
+    private Duration ttl;
+
+    /** Margen extra para confirmar (claim confirm_until): la subida pudo empezar justo antes de expirar. */
+    @Value("${upload-tickets.confirm-grace:30m}")
+    private Duration confirmGrace;
+
+    @Value("${gateway.public-base-url}")
+    private String gatewayBaseUrl;
+
+    public UploadTicketService(ProductRepository repo,
+            ProductService products,
+            FileClient fileClient,
+            @Value("${jwt.secret}") String secret) {
+        this.repo = repo;
+        this.products = products;
+        this.fileClient = fileClient;
+        this.key = new SecretKeySpec(Base64.getDecoder().decode(secret), "HmacSHA256");
+    }
+
+    public UploadTicketDto issue(Long productId, String kind, String uploader) {
+        boolean aut = parseKind(kind);
+        Product p = repo.findById(productId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Producto no encontrado"));
+        if (!Objects.equals(p.getUploaderUsername(), uploader))
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Sin permiso");
+        if (aut && p.getEstado() == ProductStatus.APROBADO)
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Producto APROBADO: no admite cambios en archivos autorizados");
+
+        // Igual que update(): un producto PENDIENTE sólo recibe en staging
+        boolean staging = p.getEstado() == ProductStatus.PENDIENTE;
+        Instant now = Instant.now();
+        Instant exp = now.plus(ttl);
+        String ticket = Jwts.builder()
+                .setSubject(uploader)
+                .setId(UUID.randomUUID().toString())
+                .claim("role", "ROL_COLABORADOR")
+                .claim("typ", TYPE)
+                .claim("pid", productId)
+                .claim("kind", aut ? "aut" : "foto")
+                .claim("target", staging ? "staging" : "product")
+                .claim(CONFIRM_UNTIL, exp.plus(confirmGrace).getEpochSecond())
+                .setIssuedAt(Date.from(now))
+                .setExpiration(Date.from(exp))
+                .signWith(key, SignatureAlgorithm.HS256)
+                .compact();
+
+        String uploadUrl = staging
+                ? gatewayBaseUrl + "/api/files/staging/" + productId
+                : gatewayBaseUrl + "/api/files/public/" + productId + "?type=product";
+        log.info("[TICKET] Emitido para producto {} ({}, {}) a {}", productId, aut ? "aut" : "foto",
+                staging ? "staging" : "permanente", uploader);
+
+        return UploadTicketDto.builder()
+                .ticket(ticket)
+                .uploadUrl(uploadUrl)
+                .kind(aut ? "aut" : "foto")
+                .staging(staging)
+                .confirmRequired(!staging)
+                .expiresAt(exp)
+                .build();
+    }
+
+    /**
+     * Registra en el producto los archivos subidos con el ticket. Idempotente:
+     * confirmar dos veces los mismos IDs no los duplica.
+     */
+    public ProductDto confirm(Long productId, String ticket, List<String> driveFileIds, String uploader) {
+        Claims claims = verify(ticket);
+        if (!Objects.equals(claims.get("pid", Long.class), productId) || !Objects.equals(claims.getSubject(), uploader))
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "El ticket no corresponde a este producto o usuario");
+
+        boolean aut = "aut".equals(claims.get("kind", String.class));
+        String target = claims.get("target", String.class);
+        if (!"staging".equals(target) && !"product".equals(target))
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Destino de ticket desconocido");
+        if ("staging".equals(target)) {
+            // lo de staging entra al producto al promoverse en decidir()
+            return products.getById(productId);
+        }
+
+        Set<String> known = fileClient.getProductFilesMeta(productId).stream()
+                .map(FileInfoDto::getDriveFileId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        List<String> ids = driveFileIds.stream().distinct().toList();
+        List<String> foreign = ids.stream().filter(id -> !known.contains(id)).toList();
+        if (!foreign.isEmpty())
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Archivos que no pertenecen al producto " + productId + ": " + foreign);
+
+        log.info("[TICKET] Producto {}: confirmados {} archivo(s) {}", productId, ids.size(), aut ? "aut" : "foto");
+        return products.attachUploadedIds(productId, aut, ids, uploader);
+    }
+
+    private Claims verify(String ticket) {
+        Claims claims;
+        try {
+            claims = Jwts.parserBuilder()
+                    .setSigningKey(key)
+                    .setAllowedClockSkewSeconds(CLOCK_SKEW_SECONDS)
+                    .build()
+                    .parseClaimsJws(ticket)
+                    .getBody();
+        } catch (ExpiredJwtException e) {
+            claims = e.getClaims(); // firma ya verificada: ya no sirve para subir, quizá aún para confirmar
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Ticket inválido o vencido");
+        }
+        if (!TYPE.equals(claims.get("typ", String.class)))
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "No es un ticket de subida");
+        Long confirmUntil = claims.get(CONFIRM_UNTIL, Long.class);
+        if (confirmUntil == null
+                || Instant.now().isAfter(Instant.ofEpochSecond(confirmUntil).plusSeconds(CLOCK_SKEW_SECONDS)))
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Ticket inválido o vencido");
+        return claims;
+    }
+
+    private static boolean parseKind(String kind) {
+        if ("aut".equalsIgnoreCase(kind))
+            return true;
+        if (kind == null || "foto".equalsIgnoreCase(kind))
+            return false;
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "kind debe ser 'foto' o 'aut'");
+    }
+}
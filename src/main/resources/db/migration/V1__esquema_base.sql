@@ -0,0 +1,49 @@
+-- Esquema base: el mismo que generaba ddl-auto: update a partir de las entidades.
+-- IF NOT EXISTS: en bases ya creadas por Hibernate, Flyway parte de la línea
+-- base 0 y este script no cambia nada.
+
+CREATE TABLE IF NOT EXISTS categories (
+    id     BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    nombre VARCHAR(100) NOT NULL,
+    CONSTRAINT uk_categories_nombre UNIQUE (nombre)
+);
+
+CREATE TABLE IF NOT EXISTS products (
+    id_producto       BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    nombre            VARCHAR(255),
+    descripcion_prod  VARCHAR(5000),
+    precio_individual DOUBLE PRECISION,
+    fotografia_prod   VARCHAR(50000),
+    archivos_aut      VARCHAR(50000),
+    pais              VARCHAR(255),
+    estado            VARCHAR(255) CHECK (estado IN ('PENDIENTE', 'APROBADO', 'RECHAZADO')),
+    uploader_username VARCHAR(255),
+    usuario_decision  VARCHAR(255),
+    comentario        VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS product_categories (
+    product_id  BIGINT NOT NULL REFERENCES products (id_producto),
+    category_id BIGINT NOT NULL REFERENCES categories (id),
+    PRIMARY KEY (product_id, category_id)
+);
+
+CREATE TABLE IF NOT EXISTS product_specialties (
+    product_id   BIGINT NOT NULL REFERENCES products (id_producto),
+    specialty_id BIGINT NOT NULL REFERENCES categories (id),
+    PRIMARY KEY (product_id, specialty_id)
+);
+
+CREATE TABLE IF NOT EXISTS file_digests (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    sha256        VARCHAR(64)  NOT NULL,
+    product_id    BIGINT       NOT NULL,
+    drive_file_id VARCHAR(255) NOT NULL,
+    size          BIGINT,
+    file_type     VARCHAR(255),
+    created_at    TIMESTAMP(6) WITH TIME ZONE,
+    CONSTRAINT uk_file_digests_product_drive UNIQUE (product_id, drive_file_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_file_digests_sha_product ON file_digests (sha256, product_id);
+CREATE INDEX IF NOT EXISTS idx_file_digests_drive ON file_digests (drive_file_id);
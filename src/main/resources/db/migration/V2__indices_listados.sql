@@ -0,0 +1,8 @@
+-- Listados paginados (ProductService.NEWEST_FIRST = id_producto DESC):
+-- filtro + orden + LIMIT salen del índice, sin ordenar ni recorrer la tabla.
+CREATE INDEX IF NOT EXISTS idx_products_estado_id ON products (estado, id_producto DESC);
+CREATE INDEX IF NOT EXISTS idx_products_uploader_id ON products (uploader_username, id_producto DESC);
+
+-- Lado inverso de las tablas puente (la PK empieza por product_id)
+CREATE INDEX IF NOT EXISTS idx_product_categories_category ON product_categories (category_id, product_id);
+CREATE INDEX IF NOT EXISTS idx_product_specialties_specialty ON product_specialties (specialty_id, product_id);
@@ -0,0 +1,4 @@
+-- Reserva de productos PENDIENTE en la cola de revisión (ReviewQueueService).
+-- La búsqueda de libres usa idx_products_estado_id; vencidas = claimed_until pasado.
+ALTER TABLE products ADD COLUMN IF NOT EXISTS claimed_by VARCHAR(255);
+ALTER TABLE products ADD COLUMN IF NOT EXISTS claimed_until TIMESTAMP(6) WITH TIME ZONE;
@@ -0,0 +1,15 @@
+-- Claves Idempotency-Key de POST /api/products y PUT /{id}/decision (IdempotencyService).
+-- Una fila por (usuario, clave); status NULL = petición aún en curso.
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    owner         VARCHAR(255) NOT NULL,
+    idem_key      VARCHAR(255) NOT NULL,
+    fingerprint   VARCHAR(64)  NOT NULL,
+    status        INTEGER,
+    response_body TEXT,
+    created_at    TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    expires_at    TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    CONSTRAINT uk_idempotency_owner_key UNIQUE (owner, idem_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_expires ON idempotency_keys (expires_at);
@@ -0,0 +1,7 @@
+-- Avance persistido de procesos en segundo plano (p. ej. OrphanFileReconciler:
+-- hasta qué id las carpetas sin producto ya se verificaron vacías).
+CREATE TABLE IF NOT EXISTS job_checkpoints (
+    name       VARCHAR(64) PRIMARY KEY,
+    position   BIGINT NOT NULL,
+    updated_at TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
@@ -0,0 +1,48 @@
+package com.aec.prodsrv.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ClientMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ClientMetrics metrics = new ClientMetrics(registry, "file.client");
+
+    @Test
+    void recordsOneSamplePerCallTaggedByOutcome() {
+        metrics.timed("file-meta", Mono.just(1)).block();
+        metrics.timed("file-meta", Mono.just(2)).block();
+        assertThatThrownBy(() -> metrics.timed("file-meta", Mono.error(
+                WebClientResponseException.create(503, "x", null, null, null))).block());
+
+        assertThat(count("file-meta", "success")).isEqualTo(2);
+        assertThat(count("file-meta", "server_error")).isEqualTo(1);
+    }
+
+    @Test
+    void blockingCallsAreTimedToo() {
+        assertThatThrownBy(() -> metrics.timed("/{username}", () -> {
+            throw new HttpClientErrorException(HttpStatus.NOT_FOUND);
+        }));
+        assertThat(count("/{username}", "client_error")).isEqualTo(1);
+    }
+
+    @Test
+    void rejectionsAndDeadlinesHaveTheirOwnOutcome() {
+        assertThat(ClientMetrics.outcome(new FileServiceUnavailableException("file-meta", new RuntimeException())))
+                .isEqualTo("rejected");
+        assertThat(ClientMetrics.outcome(new DeadlineExceededException("file-meta"))).isEqualTo("timeout");
+        assertThat(ClientMetrics.outcome(new IllegalStateException())).isEqualTo("error");
+    }
+
+    private long count(String op, String outcome) {
+        return registry.get("file.client").tag("op", op).tag("outcome", outcome).timer().count();
+    }
+}
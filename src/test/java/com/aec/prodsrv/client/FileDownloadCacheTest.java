@@ -0,0 +1,117 @@
+package com.aec.prodsrv.client;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FileDownloadCacheTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void evictsLeastRecentlyUsedWhenFull() throws Exception {
+        FileDownloadCache cache = new FileDownloadCache(dir.toString(), DataSize.ofBytes(300), DataSize.ofBytes(300));
+        cache.getOrFill("a", t -> Files.write(t, new byte[100]));
+        cache.getOrFill("b", t -> Files.write(t, new byte[100]));
+        cache.getOrFill("c", t -> Files.write(t, new byte[100]));
+        cache.get("a"); // "b" pasa a ser el menos usado
+
+        cache.getOrFill("d", t -> Files.write(t, new byte[100]));
+
+        assertThat(cache.get("b")).isEmpty();
+        assertThat(cache.get("a")).isPresent();
+        assertThat(cache.get("d")).isPresent();
+    }
+
+    @Test
+    void concurrentMissesShareOneDownload() throws Exception {
+        FileDownloadCache cache = new FileDownloadCache(dir.toString(), DataSize.ofMegabytes(1), DataSize.ofMegabytes(1));
+        AtomicInteger downloads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Path>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(pool.submit(() -> cache.getOrFill("x", t -> {
+                    downloads.incrementAndGet();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    Files.write(t, new byte[10]);
+                })));
+            }
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<Path> f : results)
+                assertThat(Files.size(f.get(5, TimeUnit.SECONDS))).isEqualTo(10);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(downloads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void failedFillLeavesNothingBehind() throws Exception {
+        FileDownloadCache cache = new FileDownloadCache(dir.toString(), DataSize.ofMegabytes(1), DataSize.ofMegabytes(1));
+        try {
+            cache.getOrFill("x", t -> {
+                Files.write(t, new byte[10]);
+                throw new java.io.IOException("corte");
+            });
+        } catch (java.io.IOException expected) {
+            // esperado
+        }
+        assertThat(cache.get("x")).isEmpty();
+        try (var files = Files.walk(dir)) {
+            assertThat(files.filter(Files::isRegularFile)).isEmpty();
+        }
+    }
+
+    @Test
+    void invalidatesByFileIdsAndRebuildsFromDisk() throws Exception {
+        Files.createDirectories(dir.resolve("cache").resolve("_"));
+        Files.write(dir.resolve("cache").resolve("_").resolve("viejo"), new byte[10]); // formato anterior
+        FileDownloadCache cache = new FileDownloadCache(dir.toString(), DataSize.ofMegabytes(1), DataSize.ofMegabytes(1));
+        assertThat(cache.get("viejo")).isEmpty();
+        cache.getOrFill("a", t -> Files.write(t, new byte[10]));
+        cache.getOrFill("b", t -> Files.write(t, new byte[10]));
+
+        cache.invalidateAll(List.of("a"));
+        assertThat(cache.get("a")).isEmpty();
+
+        FileDownloadCache restarted = new FileDownloadCache(dir.toString(), DataSize.ofMegabytes(1), DataSize.ofMegabytes(1));
+        assertThat(restarted.get("b")).isPresent();
+        assertThat(restarted.get("a")).isEmpty();
+        assertThat(dir.resolve("cache").resolve("_")).doesNotExist();
+    }
+
+    @Test
+    void oversizeFillIsRejectedAndNeverExceedsMaxSize() throws Exception {
+        FileDownloadCache cache = new FileDownloadCache(dir.toString(), DataSize.ofBytes(300), DataSize.ofBytes(1000));
+        cache.getOrFill("a", t -> Files.write(t, new byte[200]));
+
+        assertThatThrownBy(() -> cache.getOrFill("grande", t -> Files.write(t, new byte[301])))
+                .isInstanceOf(FileDownloadCache.EntryTooLargeException.class);
+
+        assertThat(cache.get("grande")).isEmpty();
+        assertThat(cache.get("a")).isPresent(); // el rechazado no expulsó a nadie
+        cache.getOrFill("b", t -> Files.write(t, new byte[300]));
+        try (var files = Files.walk(dir)) {
+            assertThat(files.filter(Files::isRegularFile).mapToLong(p -> p.toFile().length()).sum())
+                    .isLessThanOrEqualTo(300);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.aec.prodsrv.config;
+
+import com.aec.prodsrv.client.FileClient;
+import com.aec.prodsrv.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.data.projection.TargetAware;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NativeHintsTest {
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    @Test
+    void coversReflectionOutsideSpringsView() {
+        new NativeHints().registerHints(hints, getClass().getClassLoader());
+
+        assertThat(RuntimeHintsPredicates.reflection().onType(FileClient.StagingInfoDto.class)
+                .withMemberCategory(MemberCategory.INVOKE_DECLARED_CONSTRUCTORS)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.proxies().forInterfaces(
+                AopProxyUtils.completeJdkProxyInterfaces(ProductRepository.StatsRow.class, TargetAware.class)))
+                .accepts(hints);
+        assertThat(RuntimeHintsPredicates.resource().forResource("META-INF/services/io.jsonwebtoken.io.Serializer"))
+                .accepts(hints);
+    }
+
+    @Test
+    void jjwtTypesExistOnTheRuntimeClasspath() throws Exception {
+        new NativeHints().registerHints(hints, getClass().getClassLoader());
+
+        for (String type : NativeHints.JJWT_TYPES) {
+            Class.forName(type); // un nombre mal escrito sólo fallaría en la imagen nativa
+            assertThat(RuntimeHintsPredicates.reflection().onType(TypeReference.of(type))
+                    .withMemberCategory(MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS)).accepts(hints);
+        }
+    }
+}
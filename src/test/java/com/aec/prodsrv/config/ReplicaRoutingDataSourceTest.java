@@ -0,0 +1,128 @@
+package com.aec.prodsrv.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Dos bases H2 independientes hacen de primario y réplica: cada una responde
+ * con su propio nombre, así se ve a cuál fue cada transacción.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private final JdbcTemplate primaryDb = new JdbcTemplate(h2("primary"));
+    private final JdbcTemplate replicaDb = new JdbcTemplate(h2("replica"));
+
+    private ReadYourWrites pins;
+    private ReplicaRoutingDataSource routing;
+    private JdbcTemplate jdbc;
+    private TransactionTemplate writeTx;
+    private TransactionTemplate readTx;
+
+    @BeforeEach
+    void setUp() {
+        for (JdbcTemplate db : List.of(primaryDb, replicaDb)) {
+            db.execute("CREATE TABLE IF NOT EXISTS origin(name VARCHAR(16))");
+            db.execute("CREATE TABLE IF NOT EXISTS lag(seconds DOUBLE)");
+            db.execute("DELETE FROM origin");
+            db.execute("DELETE FROM lag");
+            db.execute("INSERT INTO lag VALUES (0)");
+        }
+        primaryDb.update("INSERT INTO origin VALUES ('primary')");
+        replicaDb.update("INSERT INTO origin VALUES ('replica')");
+        build(replicaDb.getDataSource());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        SecurityContextHolder.clearContext();
+        routing.close();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToTheReplicaAndWritesToThePrimary() {
+        assertThat(origin(readTx)).isEqualTo("replica");
+        assertThat(origin(writeTx)).isEqualTo("primary");
+        assertThat(jdbc.queryForObject("SELECT name FROM origin", String.class))
+                .as("sin transacción: primario").isEqualTo("primary");
+    }
+
+    @Test
+    void pinnedUserReadsFromThePrimaryUntilTheWindowExpires() throws InterruptedException {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("colab", "t"));
+        pins.pin("colab");
+        assertThat(origin(readTx)).isEqualTo("primary");
+
+        Thread.sleep(400); // pin-window del test: 300 ms
+        assertThat(origin(readTx)).isEqualTo("replica");
+    }
+
+    @Test
+    void laggingReplicaIsSkippedUntilItCatchesUp() {
+        replicaDb.update("UPDATE lag SET seconds = 30");
+        routing.checkReplicas();
+        assertThat(origin(readTx)).isEqualTo("primary");
+
+        replicaDb.update("UPDATE lag SET seconds = 0.5");
+        routing.checkReplicas();
+        assertThat(origin(readTx)).isEqualTo("replica");
+    }
+
+    @Test
+    void replicasAreCheckedOnTheirOwnThread() throws Exception {
+        replicaDb.update("UPDATE lag SET seconds = 30");
+        routing.start(20);
+
+        for (int i = 0; i < 100 && !"primary".equals(origin(readTx)); i++)
+            Thread.sleep(20);
+        assertThat(origin(readTx)).as("sin llamar a checkReplicas: lo hizo el hilo propio").isEqualTo("primary");
+        assertThat(Thread.getAllStackTraces().keySet()).anyMatch(t -> t.getName().equals("replica-check"));
+    }
+
+    @Test
+    void unreachableReplicaFallsBackToThePrimary() {
+        JdbcDataSource down = new JdbcDataSource();
+        down.setURL("jdbc:h2:tcp://127.0.0.1:1/nadie");
+        build(down);
+
+        assertThat(origin(readTx)).isEqualTo("primary");
+        assertThat(origin(readTx)).isEqualTo("primary");
+    }
+
+    private void build(DataSource replica) {
+        ReadReplicaProperties props = new ReadReplicaProperties();
+        props.setPinWindow(Duration.ofMillis(300));
+        pins = new ReadYourWrites(props);
+        routing = new ReplicaRoutingDataSource(primaryDb.getDataSource(), List.of(replica), pins,
+                "SELECT seconds FROM lag", Duration.ofSeconds(5));
+        DataSource ds = new LazyConnectionDataSourceProxy(routing);
+        jdbc = new JdbcTemplate(ds);
+        DataSourceTransactionManager tm = new DataSourceTransactionManager(ds);
+        writeTx = new TransactionTemplate(tm);
+        readTx = new TransactionTemplate(tm);
+        readTx.setReadOnly(true);
+    }
+
+    private String origin(TransactionTemplate tx) {
+        return tx.execute(status -> jdbc.queryForObject("SELECT name FROM origin", String.class));
+    }
+
+    private static DataSource h2(String name) {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        return ds;
+    }
+}
@@ -0,0 +1,155 @@
+package com.aec.prodsrv.controller;
+
+import com.aec.prodsrv.client.dto.FileInfoDto;
+import com.aec.prodsrv.support.FileServiceStub;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Rangos e If-Range tanto desde la caché de disco como reenviando el cuerpo
+ * de file-service (que aquí ignora Range y siempre responde 200 completo).
+ */
+class FileStreamerTest {
+
+    private static final byte[] CONTENT = new byte[300_000];
+
+    static {
+        for (int i = 0; i < CONTENT.length; i++)
+            CONTENT[i] = (byte) (i % 251);
+    }
+
+    @TempDir
+    Path tmp;
+
+    private FileServiceStub fileService;
+    private final AtomicInteger downloads = new AtomicInteger();
+    private final AtomicBoolean denied = new AtomicBoolean();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        fileService = FileServiceStub.start().on("/api/files/", ex -> {
+            if (ex.getRequestMethod().equals("HEAD")) {
+                ex.sendResponseHeaders(denied.get() ? 403 : 200, -1);
+                ex.close();
+                return;
+            }
+            downloads.incrementAndGet();
+            ex.getResponseHeaders().add("Content-Type", "application/pdf");
+            ex.sendResponseHeaders(200, CONTENT.length);
+            try (OutputStream out = ex.getResponseBody()) {
+                out.write(CONTENT);
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        fileService.close();
+    }
+
+    private FileStreamer streamer(boolean cached) {
+        DataSize max = cached ? DataSize.ofMegabytes(10) : DataSize.ofBytes(0);
+        return new FileStreamer(fileService.fileClient(tmp, max, max));
+    }
+
+    private static FileInfoDto meta() {
+        FileInfoDto m = new FileInfoDto();
+        m.setDriveFileId("drv1");
+        m.setOriginalName("manual.pdf");
+        m.setFileType("application/pdf");
+        m.setSize((long) CONTENT.length);
+        return m;
+    }
+
+    private MockHttpServletResponse get(FileStreamer s, String range, String ifRange) throws IOException {
+        MockHttpServletRequest req = new MockHttpServletRequest("GET", "/api/products/1/files/drv1");
+        if (range != null)
+            req.addHeader("Range", range);
+        if (ifRange != null)
+            req.addHeader("If-Range", ifRange);
+        MockHttpServletResponse resp = new MockHttpServletResponse();
+        s.stream(1L, meta(), true, req, resp);
+        return resp;
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void servesSingleRange(boolean cached) throws IOException {
+        MockHttpServletResponse resp = get(streamer(cached), "bytes=1000-1999", null);
+
+        assertThat(resp.getStatus()).isEqualTo(206);
+        assertThat(resp.getHeader("Content-Range")).isEqualTo("bytes 1000-1999/" + CONTENT.length);
+        assertThat(resp.getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(CONTENT, 1000, 2000));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void suffixRangeAndFullBody(boolean cached) throws IOException {
+        FileStreamer s = streamer(cached);
+        MockHttpServletResponse tail = get(s, "bytes=-10", null);
+        assertThat(tail.getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(CONTENT, CONTENT.length - 10, CONTENT.length));
+
+        MockHttpServletResponse full = get(s, null, null);
+        assertThat(full.getStatus()).isEqualTo(200);
+        assertThat(full.getHeader("ETag")).isEqualTo("\"drv1\"");
+        assertThat(full.getContentAsByteArray()).isEqualTo(CONTENT);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void staleIfRangeSendsWholeFile(boolean cached) throws IOException {
+        MockHttpServletResponse resp = get(streamer(cached), "bytes=0-9", "\"otro\"");
+
+        assertThat(resp.getStatus()).isEqualTo(200);
+        assertThat(resp.getContentAsByteArray()).hasSize(CONTENT.length);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void rangePastEndIsUnsatisfiable(boolean cached) throws IOException {
+        MockHttpServletResponse resp = get(streamer(cached), "bytes=400000-", "\"drv1\"");
+
+        assertThat(resp.getStatus()).isEqualTo(416);
+        assertThat(resp.getHeader("Content-Range")).isEqualTo("bytes */" + CONTENT.length);
+    }
+
+    @Test
+    void cachedFileIsDownloadedOnce() throws IOException {
+        FileStreamer s = streamer(true);
+        get(s, "bytes=0-9", null);
+        get(s, "bytes=10-19", null);
+        get(s, null, null);
+
+        assertThat(downloads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void cachedAutFileStillNeedsFileServiceAuthorization() throws IOException {
+        FileStreamer s = streamer(true);
+        get(s, null, null); // otro usuario ya lo dejó en la caché
+
+        denied.set(true);
+        assertThatThrownBy(() -> get(s, null, null))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode().value()).isEqualTo(403));
+        assertThat(downloads.get()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,141 @@
+package com.aec.prodsrv.controller;
+
+import com.aec.prodsrv.model.Product;
+import com.aec.prodsrv.model.ProductStatus;
+import com.aec.prodsrv.repository.ProductRepository;
+import com.aec.prodsrv.service.ApprovedCatalogSnapshots;
+import com.aec.prodsrv.service.IdempotencyService;
+import com.aec.prodsrv.service.ProductBundleWriter;
+import com.aec.prodsrv.service.ProductDtoCache;
+import com.aec.prodsrv.service.ReviewQueueService;
+import com.aec.prodsrv.support.FileServiceStub;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.aec.prodsrv.support.FileServiceStub.drain;
+import static com.aec.prodsrv.support.FileServiceStub.respond;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Descargas de archivos de un producto: mientras no esté APROBADO sólo lo ven
+ * su autor y los admins, igual que el ZIP de archivos AUT.
+ */
+class ProductControllerDownloadTest {
+
+    private static final byte[] CONTENT = "PNG".getBytes();
+
+    @TempDir
+    Path tmp;
+
+    private FileServiceStub fileService;
+    private ProductRepository repo;
+    private ProductController controller;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        fileService = FileServiceStub.start()
+                .on("/api/files/meta/", ex -> {
+                    drain(ex);
+                    respond(ex, 200, "[{\"driveFileId\":\"drv-foto\",\"fileType\":\"image/png\",\"size\":3}]");
+                })
+                .on("/api/files/", ex -> {
+                    if (ex.getRequestMethod().equals("HEAD")) {
+                        ex.sendResponseHeaders(200, -1);
+                        ex.close();
+                        return;
+                    }
+                    ex.sendResponseHeaders(200, CONTENT.length);
+                    try (OutputStream out = ex.getResponseBody()) {
+                        out.write(CONTENT);
+                    }
+                });
+
+        repo = mock(ProductRepository.class);
+        var fileClient = fileService.fileClient(tmp);
+        controller = new ProductController(FileServiceStub.productService(repo, fileClient, "off"),
+                new ObjectMapper(), new FileStreamer(fileClient), mock(ProductBundleWriter.class),
+                mock(ProductDtoCache.class), mock(ApprovedCatalogSnapshots.class),
+                mock(ReviewQueueService.class), mock(IdempotencyService.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        fileService.close();
+    }
+
+    @Test
+    void photoOfPendingProductIsHiddenFromOthers() {
+        product(ProductStatus.PENDIENTE);
+
+        assertThatThrownBy(() -> download(null))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode().value()).isEqualTo(404));
+        assertThatThrownBy(() -> download(user("otro", "ROL_COLABORADOR")))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode().value()).isEqualTo(404));
+    }
+
+    @Test
+    void photoOfPendingProductIsServedToUploaderAndAdmin() throws IOException {
+        product(ProductStatus.PENDIENTE);
+
+        assertThat(download(user("colab", "ROL_COLABORADOR")).getContentAsByteArray()).isEqualTo(CONTENT);
+        assertThat(download(user("admin", "ROL_ADMIN")).getContentAsByteArray()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void photoOfApprovedProductIsPublic() throws IOException {
+        product(ProductStatus.APROBADO);
+
+        MockHttpServletResponse resp = download(null);
+        assertThat(resp.getStatus()).isEqualTo(200);
+        assertThat(resp.getContentAsByteArray()).isEqualTo(CONTENT);
+    }
+
+    private void product(ProductStatus estado) {
+        Product p = Product.builder()
+                .idProducto(7L)
+                .nombre("Puente")
+                .estado(estado)
+                .uploaderUsername("colab")
+                .fotografiaProd(List.of("drv-foto"))
+                .categorias(Set.of())
+                .especialidades(Set.of())
+                .build();
+        when(repo.findById(7L)).thenReturn(Optional.of(p));
+    }
+
+    private static Authentication user(String name, String role) {
+        return new UsernamePasswordAuthenticationToken(name, "token-" + name,
+                List.of(new SimpleGrantedAuthority(role)));
+    }
+
+    private MockHttpServletResponse download(Authentication auth) throws IOException {
+        SecurityContextHolder.getContext().setAuthentication(auth);
+        MockHttpServletResponse resp = new MockHttpServletResponse();
+        controller.download(7L, "drv-foto", auth,
+                new MockHttpServletRequest("GET", "/api/products/7/files/drv-foto"), resp);
+        return resp;
+    }
+}
@@ -0,0 +1,318 @@
+package com.aec.prodsrv.load;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * file-service, users-service y SMTP en proceso para la prueba de carga.
+ * Cada uno responde tras {@link Behaviour#latencyMs} (+ jitter) y falla con
+ * probabilidad {@link Behaviour#errorRate} (503 en HTTP, 451 en SMTP).
+ */
+final class DownstreamStubs implements AutoCloseable {
+
+    /** Latencia y tasa de error inyectadas en un stub. */
+    record Behaviour(long latencyMs, long jitterMs, double errorRate) {
+
+        static Behaviour fromSystemProperties(String prefix, long defaultLatencyMs) {
+            return new Behaviour(
+                    Long.getLong("load." + prefix + ".latency-ms", defaultLatencyMs),
+                    Long.getLong("load." + prefix + ".jitter-ms", defaultLatencyMs / 2),
+                    Double.parseDouble(System.getProperty("load." + prefix + ".error-rate", "0")));
+        }
+
+        /** Espera la latencia configurada; true si esta llamada debe fallar. */
+        boolean apply() {
+            ThreadLocalRandom rnd = ThreadLocalRandom.current();
+            long ms = latencyMs + (jitterMs > 0 ? rnd.nextLong(jitterMs + 1) : 0);
+            if (ms > 0) {
+                try {
+                    Thread.sleep(ms);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return errorRate > 0 && rnd.nextDouble() < errorRate;
+        }
+    }
+
+    private static final Pattern UPLOAD = Pattern.compile("/api/files/public/(\\d+)");
+    private static final Pattern META = Pattern.compile("/api/files/meta/product/(\\d+)");
+    private static final Pattern STAGING = Pattern.compile("/api/files/staging/(\\d+)(/promote)?");
+    private static final Pattern USER = Pattern.compile("/api/users/(?:by-username/)?([^/]+)");
+    private static final Pattern FILENAME = Pattern.compile("filename=\"([^\"]*)\"");
+    /** Foto de tamaño realista para que el pipeline de variantes haga trabajo de verdad. */
+    private static final byte[] SAMPLE_PNG = samplePng();
+
+    private final Behaviour files;
+    private final Behaviour users;
+    private final Behaviour smtp;
+
+    private final HttpServer fileService;
+    private final HttpServer usersService;
+    private final ServerSocket smtpSocket;
+    private final ExecutorService pool = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "load-stub");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final AtomicLong driveIds = new AtomicLong();
+    private final Map<Long, List<String>> metas = new ConcurrentHashMap<>(); // productId -> JSON de cada FileInfoDto
+    final AtomicLong mailsReceived = new AtomicLong();
+
+    private DownstreamStubs(Behaviour files, Behaviour users, Behaviour smtp) throws IOException {
+        this.files = files;
+        this.users = users;
+        this.smtp = smtp;
+
+        fileService = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 256);
+        fileService.createContext("/", this::fileService);
+        fileService.setExecutor(pool);
+        fileService.start();
+
+        usersService = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 256);
+        usersService.createContext("/", this::usersService);
+        usersService.setExecutor(pool);
+        usersService.start();
+
+        smtpSocket = new ServerSocket(0, 256, java.net.InetAddress.getLoopbackAddress());
+        pool.execute(this::acceptSmtp);
+    }
+
+    static DownstreamStubs start() {
+        try {
+            return new DownstreamStubs(
+                    Behaviour.fromSystemProperties("files", 20),
+                    Behaviour.fromSystemProperties("users", 10),
+                    Behaviour.fromSystemProperties("smtp", 50));
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudieron levantar los stubs", e);
+        }
+    }
+
+    String fileServiceUrl() {
+        return "http://127.0.0.1:" + fileService.getAddress().getPort();
+    }
+
+    String usersServiceUrl() {
+        return "http://127.0.0.1:" + usersService.getAddress().getPort() + "/api/users";
+    }
+
+    int smtpPort() {
+        return smtpSocket.getLocalPort();
+    }
+
+    Behaviour files() {
+        return files;
+    }
+
+    Behaviour users() {
+        return users;
+    }
+
+    Behaviour smtp() {
+        return smtp;
+    }
+
+    // ------------------------------------------------------------------ file-service
+
+    private void fileService(HttpExchange ex) throws IOException {
+        String path = ex.getRequestURI().getPath();
+        String method = ex.getRequestMethod();
+        byte[] head = drain(ex);
+        if (files.apply()) {
+            respond(ex, 503, "{\"error\":\"stub\"}");
+            return;
+        }
+        Matcher m;
+        if ("POST".equals(method) && (m = UPLOAD.matcher(path)).matches()) {
+            respond(ex, 200, registerUpload(Long.parseLong(m.group(1)), new String(head, StandardCharsets.ISO_8859_1)));
+        } else if ("GET".equals(method) && (m = META.matcher(path)).matches()) {
+            respond(ex, 200, "[" + String.join(",", metas.getOrDefault(Long.parseLong(m.group(1)), List.of())) + "]");
+        } else if ((m = STAGING.matcher(path)).matches()) {
+            // create sube directo a permanente: no queda nada en staging que promover
+            if ("DELETE".equals(method))
+                respond(ex, 204, null);
+            else
+                respond(ex, 200, "[]");
+        } else if ("GET".equals(method) && path.startsWith("/api/files/")) {
+            respondBytes(ex, "image/png", SAMPLE_PNG); // descargas (variantes de fotos, ZIP)
+        } else if ("DELETE".equals(method)) {
+            respond(ex, 204, null);
+        } else {
+            respond(ex, 404, "{}");
+        }
+    }
+
+    private String registerUpload(long productId, String head) {
+        String driveId = "drv-" + driveIds.incrementAndGet();
+        Matcher name = FILENAME.matcher(head);
+        String original = name.find() ? name.group(1) : driveId;
+        String type = head.contains("Content-Type: image/") ? "image/png" : "application/octet-stream";
+        String json = "{\"driveFileId\":\"" + driveId + "\",\"originalName\":\"" + original
+                + "\",\"fileType\":\"" + type + "\"}";
+        metas.computeIfAbsent(productId, k -> new CopyOnWriteArrayList<>()).add(json);
+        return json;
+    }
+
+    // ------------------------------------------------------------------ users-service
+
+    private void usersService(HttpExchange ex) throws IOException {
+        drain(ex);
+        if (users.apply()) {
+            respond(ex, 503, "{}");
+            return;
+        }
+        Matcher m = USER.matcher(ex.getRequestURI().getPath());
+        if (m.matches())
+            respond(ex, 200, "{\"username\":\"" + m.group(1) + "\",\"email\":\"" + m.group(1) + "@example.com\"}");
+        else
+            respond(ex, 404, "{}");
+    }
+
+    // ------------------------------------------------------------------ SMTP
+
+    private void acceptSmtp() {
+        while (!smtpSocket.isClosed()) {
+            try {
+                Socket s = smtpSocket.accept();
+                pool.execute(() -> smtpSession(s));
+            } catch (IOException e) {
+                return; // cerrado
+            }
+        }
+    }
+
+    /** Lo justo de SMTP para que JavaMail entregue un mensaje sin TLS ni AUTH. */
+    private void smtpSession(Socket socket) {
+        try (socket;
+                BufferedReader in = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+                PrintWriter out = new PrintWriter(socket.getOutputStream(), false, StandardCharsets.ISO_8859_1)) {
+            reply(out, "220 stub ESMTP");
+            String line;
+            while ((line = in.readLine()) != null) {
+                String cmd = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+                switch (cmd) {
+                    case "EHLO" -> reply(out, "250-stub\r\n250 8BITMIME");
+                    case "DATA" -> {
+                        reply(out, "354 fin con <CRLF>.<CRLF>");
+                        while ((line = in.readLine()) != null && !line.equals("."))
+                            ; // descartamos el cuerpo
+                        if (smtp.apply()) {
+                            reply(out, "451 stub: fallo inyectado");
+                        } else {
+                            mailsReceived.incrementAndGet();
+                            reply(out, "250 OK");
+                        }
+                    }
+                    case "QUIT" -> {
+                        reply(out, "221 bye");
+                        return;
+                    }
+                    default -> reply(out, "250 OK"); // HELO, MAIL, RCPT, RSET, NOOP
+                }
+            }
+        } catch (IOException ignored) {
+            // el cliente cerró la conexión
+        }
+    }
+
+    private static void reply(PrintWriter out, String text) {
+        out.print(text + "\r\n");
+        out.flush();
+    }
+
+    // ------------------------------------------------------------------ util
+
+    /** Consume el cuerpo y devuelve sus primeros bytes (cabeceras de la parte multipart). */
+    private static byte[] drain(HttpExchange ex) throws IOException {
+        byte[] head = new byte[2048];
+        int kept = 0;
+        try (InputStream in = ex.getRequestBody()) {
+            byte[] buf = new byte[16384];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                if (kept < head.length) {
+                    int c = Math.min(n, head.length - kept);
+                    System.arraycopy(buf, 0, head, kept, c);
+                    kept += c;
+                }
+            }
+        }
+        return java.util.Arrays.copyOf(head, kept);
+    }
+
+    private static void respondBytes(HttpExchange ex, String type, byte[] body) throws IOException {
+        ex.getResponseHeaders().add("Content-Type", type);
+        ex.sendResponseHeaders(200, body.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static byte[] samplePng() {
+        BufferedImage img = new BufferedImage(1600, 1200, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, Color.ORANGE, 1600, 1200, Color.BLUE));
+        g.fillRect(0, 0, 1600, 1200);
+        g.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(img, "png", out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static void respond(HttpExchange ex, int status, String json) throws IOException {
+        if (json == null) {
+            ex.sendResponseHeaders(status, -1);
+            ex.close();
+            return;
+        }
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().add("Content-Type", "application/json");
+        ex.sendResponseHeaders(status, body.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        fileService.stop(0);
+        usersService.stop(0);
+        smtpSocket.close();
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,74 @@
+package com.aec.prodsrv.load;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Latencias por endpoint (todas las respuestas) y conteo de errores (no 2xx o excepción). */
+final class LoadRecorder {
+
+    private static final class Series {
+        private long[] nanos = new long[4096];
+        private int size;
+        final AtomicLong errors = new AtomicLong();
+
+        synchronized void add(long value) {
+            if (size == nanos.length)
+                nanos = Arrays.copyOf(nanos, size * 2);
+            nanos[size++] = value;
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(nanos, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+
+    private final Map<String, Series> series = new ConcurrentSkipListMap<>();
+
+    void record(String endpoint, long nanos, boolean ok) {
+        Series s = series.computeIfAbsent(endpoint, k -> new Series());
+        s.add(nanos);
+        if (!ok)
+            s.errors.incrementAndGet();
+    }
+
+    long count(String endpoint) {
+        Series s = series.get(endpoint);
+        return s == null ? 0 : s.sorted().length;
+    }
+
+    long errors(String endpoint) {
+        Series s = series.get(endpoint);
+        return s == null ? 0 : s.errors.get();
+    }
+
+    /** Tabla de throughput y p50/p95/p99 (ms) por endpoint sobre la ventana medida. */
+    String report(long windowNanos) {
+        double seconds = windowNanos / 1e9;
+        StringBuilder out = new StringBuilder(String.format(Locale.ROOT,
+                "%-34s %8s %8s %7s %9s %9s %9s %9s%n",
+                "endpoint", "count", "req/s", "errors", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+        series.forEach((endpoint, s) -> {
+            long[] v = s.sorted();
+            if (v.length == 0)
+                return;
+            out.append(String.format(Locale.ROOT, "%-34s %8d %8.1f %7d %9.1f %9.1f %9.1f %9.1f%n",
+                    endpoint, v.length, v.length / seconds, s.errors.get(),
+                    ms(percentile(v, 0.50)), ms(percentile(v, 0.95)), ms(percentile(v, 0.99)), ms(v[v.length - 1])));
+        });
+        return out.toString();
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int idx = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(idx, sorted.length - 1))];
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1e6;
+    }
+}
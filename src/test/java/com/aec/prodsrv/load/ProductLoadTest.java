@@ -0,0 +1,289 @@
+package com.aec.prodsrv.load;
+
+import com.aec.prodsrv.ProdServiceApplication;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Carga mixta de lectura / creación / decisión contra la app completa sobre
+ * H2 (modo PostgreSQL) y stubs en proceso de file-service, users-service y SMTP.
+ * Excluida del build normal; se ejecuta con {@code mvn -Ploadtest test}.
+ *
+ * <p>Parámetros (-D): load.users (16), load.warmup (5s), load.duration (30s),
+ * load.mix.create / load.mix.decide (% del tráfico, 10 / 10), load.photo-kb (64),
+ * load.aut-kb (128) y, por stub (files, users, smtp),
+ * load.&lt;stub&gt;.latency-ms / .jitter-ms / .error-rate.
+ * El informe se escribe en target/load-report.txt y se registra con el logger
+ * "load-report" (fuera de com.aec.prodsrv, así no lo silencia load.log-level).
+ */
+@Tag("load")
+@SpringBootTest(classes = ProdServiceApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        // los niveles de log se fijan antes de que corra @DynamicPropertySource
+        properties = "logging.level.com.aec.prodsrv=${load.log-level:WARN}")
+class ProductLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger("load-report");
+    private static final DownstreamStubs STUBS = DownstreamStubs.start();
+    private static final byte[] JWT_KEY = new SecureRandom().generateSeed(32);
+    private static final Pattern PRODUCT_ID = Pattern.compile("\"idProducto\"\\s*:\\s*(\\d+)");
+
+    private static final int USERS = Integer.getInteger("load.users", 16);
+    private static final Duration WARMUP = Duration.parse("PT" + System.getProperty("load.warmup", "5s"));
+    private static final Duration DURATION = Duration.parse("PT" + System.getProperty("load.duration", "30s"));
+    private static final int MIX_CREATE = Integer.getInteger("load.mix.create", 10);
+    private static final int MIX_DECIDE = Integer.getInteger("load.mix.decide", 10);
+    private static final int PHOTO_KB = Integer.getInteger("load.photo-kb", 64);
+    private static final int AUT_KB = Integer.getInteger("load.aut-kb", 128);
+
+    @LocalServerPort
+    int port;
+
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final List<Long> products = new CopyOnWriteArrayList<>();
+    private final ConcurrentLinkedQueue<Long> pending = new ConcurrentLinkedQueue<>();
+    private final String colabToken = token("colab-load", "ROL_COLABORADOR");
+    private final String adminToken = token("admin-load", "ROL_ADMIN");
+
+    @DynamicPropertySource
+    static void downstream(DynamicPropertyRegistry r) throws IOException {
+        Path uploads = Files.createTempDirectory("prod-load");
+        r.add("spring.datasource.url", () -> "jdbc:h2:mem:load;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        r.add("spring.datasource.driver-class-name", () -> "org.h2.Driver");
+        r.add("spring.datasource.username", () -> "sa");
+        r.add("spring.datasource.password", () -> "");
+        r.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+        r.add("spring.flyway.enabled", () -> "false"); // migraciones escritas para PostgreSQL
+        r.add("spring.mail.host", () -> "127.0.0.1");
+        r.add("spring.mail.port", STUBS::smtpPort);
+        r.add("spring.mail.username", () -> "noreply@example.com");
+        r.add("spring.mail.password", () -> "stub");
+        r.add("spring.mail.properties.mail.smtp.auth", () -> "false");
+        r.add("spring.mail.properties.mail.smtp.starttls.enable", () -> "false");
+        r.add("admin.email", () -> "admin@example.com");
+        r.add("jwt.secret", () -> Base64.getEncoder().encodeToString(JWT_KEY));
+        r.add("file-service.base-url", STUBS::fileServiceUrl);
+        r.add("users.service.url", STUBS::usersServiceUrl);
+        r.add("gateway.public-base-url", () -> "http://localhost");
+        r.add("file.upload-dir", uploads::toString);
+    }
+
+    @AfterAll
+    static void stopStubs() throws IOException {
+        STUBS.close();
+    }
+
+    @Test
+    void mixedReadCreateDecideTraffic() throws Exception {
+        // semilla: algunos productos para leer y decidir desde el inicio
+        LoadRecorder seed = new LoadRecorder();
+        for (int i = 0; i < USERS; i++)
+            create(seed);
+        assertThat(products).as("la semilla debe crear productos").isNotEmpty();
+
+        LoadRecorder warm = new LoadRecorder();
+        run(warm, WARMUP);
+
+        LoadRecorder measured = new LoadRecorder();
+        long window = run(measured, DURATION);
+
+        String report = String.format(Locale.ROOT,
+                "usuarios=%d duración=%s mezcla create=%d%% decide=%d%%%n"
+                        + "stubs files=%s users=%s smtp=%s%n%n%s",
+                USERS, DURATION, MIX_CREATE, MIX_DECIDE, STUBS.files(), STUBS.users(), STUBS.smtp(),
+                measured.report(window));
+        Path file = Files.createDirectories(Path.of("target")).resolve("load-report.txt");
+        Files.writeString(file, report);
+        log.info("Informe de carga ({}):\n{}", file.toAbsolutePath(), report);
+
+        assertThat(measured.count("GET /api/products")).isPositive();
+        assertThat(measured.count("GET /api/products/{id}")).isPositive();
+        if (STUBS.files().errorRate() == 0 && STUBS.users().errorRate() == 0) {
+            assertThat(measured.errors("GET /api/products")).isZero();
+            assertThat(measured.errors("GET /api/products/{id}")).isZero();
+        }
+    }
+
+    /** USERS hilos en lazo cerrado durante {@code duration}; devuelve la ventana real. */
+    private long run(LoadRecorder rec, Duration duration) throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(USERS);
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        List<Future<?>> running = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            running.add(workers.submit(() -> {
+                while (System.nanoTime() < end)
+                    step(rec);
+                return null;
+            }));
+        }
+        for (Future<?> f : running)
+            f.get();
+        workers.shutdown();
+        return System.nanoTime() - start;
+    }
+
+    private void step(LoadRecorder rec) {
+        int dice = ThreadLocalRandom.current().nextInt(100);
+        if (dice < MIX_CREATE) {
+            create(rec);
+        } else if (dice < MIX_CREATE + MIX_DECIDE && !pending.isEmpty()) {
+            decide(rec);
+        } else if (dice % 3 == 0 && dice % 2 == 0) {
+            call(rec, "GET /api/products?estado=APROBADO", get("/api/products?estado=APROBADO&page=0&size=50", null));
+        } else if (dice % 3 == 0) {
+            call(rec, "GET /api/products", get("/api/products?page=0&size=20", null));
+        } else if (dice % 3 == 1) {
+            call(rec, "GET /api/products/{id}", get("/api/products/" + randomProduct(), null));
+        } else if (dice % 2 == 0) {
+            call(rec, "GET /api/products/pending", get("/api/products/pending?page=0&size=20", adminToken));
+        } else {
+            HttpRequest req = HttpRequest.newBuilder(uri("/api/products/review-queue/claim?limit=10"))
+                    .header("Authorization", "Bearer " + adminToken)
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build();
+            call(rec, "POST /api/products/review-queue/claim", req);
+        }
+    }
+
+    private void create(LoadRecorder rec) {
+        String boundary = "load" + System.nanoTime();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        part(body, boundary, "dto", null, "application/json",
+                ("{\"nombre\":\"Carga " + System.nanoTime() + "\",\"descripcionProd\":\"generado\","
+                        + "\"precioIndividual\":10.0,\"pais\":\"EC\",\"categorias\":[\"Estructuras\"],"
+                        + "\"especialidades\":[\"BIM\"]}").getBytes(StandardCharsets.UTF_8));
+        part(body, boundary, "fotos", "portada.png", "image/png", new byte[PHOTO_KB * 1024]);
+        part(body, boundary, "archivosAut", "modelo.rvt", "application/octet-stream", new byte[AUT_KB * 1024]);
+        body.writeBytes(("--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+
+        HttpRequest req = HttpRequest.newBuilder(uri("/api/products"))
+                .header("Authorization", "Bearer " + colabToken)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .header("Idempotency-Key", boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+        HttpResponse<String> resp = call(rec, "POST /api/products", req);
+        Long id = createdId(resp);
+        if (id != null) {
+            products.add(id);
+            pending.add(id);
+            // Reintento del cliente tras un timeout: misma clave, mismo producto
+            if (ThreadLocalRandom.current().nextInt(10) == 0) {
+                long t0 = System.nanoTime();
+                HttpResponse<String> retry = call(rec, "POST /api/products (reintento)", req);
+                if (retry != null && !id.equals(createdId(retry)))
+                    rec.record("POST /api/products (reintento)", System.nanoTime() - t0, false);
+            }
+        }
+    }
+
+    private static Long createdId(HttpResponse<String> resp) {
+        if (resp == null || resp.statusCode() != 201)
+            return null;
+        Matcher m = PRODUCT_ID.matcher(resp.body());
+        return m.find() ? Long.parseLong(m.group(1)) : null;
+    }
+
+    private void decide(LoadRecorder rec) {
+        Long id = pending.poll();
+        if (id == null)
+            return;
+        boolean aprobar = ThreadLocalRandom.current().nextInt(4) != 0;
+        HttpRequest req = HttpRequest.newBuilder(uri("/api/products/" + id + "/decision"))
+                .header("Authorization", "Bearer " + adminToken)
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString("{\"aprobar\":" + aprobar + ",\"comentario\":\"carga\"}"))
+                .build();
+        call(rec, "PUT /api/products/{id}/decision", req);
+    }
+
+    private HttpResponse<String> call(LoadRecorder rec, String endpoint, HttpRequest req) {
+        long t0 = System.nanoTime();
+        try {
+            HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString());
+            rec.record(endpoint, System.nanoTime() - t0, resp.statusCode() / 100 == 2);
+            return resp;
+        } catch (IOException e) {
+            rec.record(endpoint, System.nanoTime() - t0, false);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private HttpRequest get(String path, String token) {
+        HttpRequest.Builder b = HttpRequest.newBuilder(uri(path)).GET();
+        if (token != null)
+            b.header("Authorization", "Bearer " + token);
+        return b.build();
+    }
+
+    private long randomProduct() {
+        return products.get(ThreadLocalRandom.current().nextInt(products.size()));
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + port + path);
+    }
+
+    private static void part(ByteArrayOutputStream out, String boundary, String name, String filename,
+            String type, byte[] content) {
+        String header = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"" + name + "\""
+                + (filename != null ? "; filename=\"" + filename + "\"" : "") + "\r\n"
+                + "Content-Type: " + type + "\r\n\r\n";
+        out.writeBytes(header.getBytes(StandardCharsets.UTF_8));
+        out.writeBytes(content);
+        out.writeBytes("\r\n".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /** Mismo formato que emite el auth-service: HS256 con jwt.secret y claim "role". */
+    private static String token(String subject, String role) {
+        Date now = new Date();
+        return Jwts.builder()
+                .setSubject(subject)
+                .claim("role", role)
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + Duration.ofHours(2).toMillis()))
+                .signWith(new SecretKeySpec(JWT_KEY, "HmacSHA256"), SignatureAlgorithm.HS256)
+                .compact();
+    }
+}
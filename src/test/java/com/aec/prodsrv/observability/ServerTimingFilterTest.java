@@ -0,0 +1,85 @@
+package com.aec.prodsrv.observability;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ServerTimingFilterTest {
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void enabledByConfigEmitsAggregatedPhasesAndTotal() throws Exception {
+        MockHttpServletResponse resp = run(new ServerTimingFilter(true, 0), new MockHttpServletRequest());
+
+        String header = resp.getHeader("Server-Timing");
+        assertThat(header).startsWith("db;dur=").contains("file-upload;dur=").contains("desc=\"x2\"")
+                .contains("total;dur=");
+    }
+
+    @Test
+    void requestHeaderOnlyHonouredForAdmins() throws Exception {
+        MockHttpServletRequest req = new MockHttpServletRequest();
+        req.addHeader("X-Server-Timing", "1");
+        authenticate("ROL_COLABORADOR");
+        assertThat(run(new ServerTimingFilter(false, 0), req).getHeader("Server-Timing")).isNull();
+
+        authenticate("ROL_ADMIN");
+        assertThat(run(new ServerTimingFilter(false, 0), req).getHeader("Server-Timing")).contains("db;dur=");
+    }
+
+    @Test
+    void disabledLeavesNoCollectorBehind() throws Exception {
+        assertThat(run(new ServerTimingFilter(false, 0), new MockHttpServletRequest()).getHeader("Server-Timing"))
+                .isNull();
+        assertThat(ServerTiming.current()).isNull();
+    }
+
+    private static MockHttpServletResponse run(ServerTimingFilter filter, MockHttpServletRequest req)
+            throws Exception {
+        MockHttpServletResponse resp = new MockHttpServletResponse();
+        filter.doFilter(req, resp, new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest r, HttpServletResponse s) {
+                ServerTiming.time("db", () -> sleep(2));
+                // armado en el hilo del request, ejecutado en otro hilo
+                Mono<Void> upload = ServerTiming.timed("file-upload",
+                        Mono.delay(Duration.ofMillis(2)).then().subscribeOn(Schedulers.parallel()));
+                upload.block();
+                upload.block();
+            }
+        }));
+        return resp;
+    }
+
+    private static void authenticate(String role) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "u", null, List.of(new SimpleGrantedAuthority(role))));
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
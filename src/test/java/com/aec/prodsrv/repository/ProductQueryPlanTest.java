@@ -0,0 +1,172 @@
+package com.aec.prodsrv.repository;
+
+import com.aec.prodsrv.model.ProductStatus;
+import com.aec.prodsrv.service.ProductService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Migra con Flyway una base PostgreSQL, la siembra y corre EXPLAIN ANALYZE
+ * sobre el SQL que Hibernate genera para cada consulta de ProductRepository:
+ * ninguna puede recorrer products entera ni filtrarla fuera de un índice.
+ *
+ * Usa Testcontainers (postgres:16) o, sin Docker, una base externa vacía:
+ * {@code -Dexplain.jdbc-url=jdbc:postgresql://host:5432/db -Dexplain.username=... }
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.aec.prodsrv.repository.ProductQueryPlanTest$SqlCapture"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@EnabledIf("postgresAvailable")
+class ProductQueryPlanTest {
+
+    private static final String EXTERNAL_URL = System.getProperty("explain.jdbc-url");
+    private static final Pattern PRODUCTS = Pattern.compile("\\bproducts\\b");
+
+    private static PostgreSQLContainer<?> postgres;
+
+    /** SQL tal como Hibernate lo envía, con parámetros '?'. */
+    public static class SqlCapture implements StatementInspector {
+        static final List<String> SQL = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            SQL.add(sql);
+            return sql;
+        }
+    }
+
+    static boolean postgresAvailable() {
+        return EXTERNAL_URL != null || DockerClientFactory.instance().isDockerAvailable();
+    }
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry r) {
+        if (EXTERNAL_URL != null) {
+            r.add("spring.datasource.url", () -> EXTERNAL_URL);
+            r.add("spring.datasource.username", () -> System.getProperty("explain.username", "postgres"));
+            r.add("spring.datasource.password", () -> System.getProperty("explain.password", ""));
+            return;
+        }
+        if (postgres == null) {
+            postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+            postgres.start();
+        }
+        r.add("spring.datasource.url", postgres::getJdbcUrl);
+        r.add("spring.datasource.username", postgres::getUsername);
+        r.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    ProductRepository repo;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final List<Map.Entry<String, List<String>>> queries = new ArrayList<>();
+
+    @Test
+    void everyProductQueryIsServedByAnIndex() throws Exception {
+        // 5% PENDIENTE, 10% RECHAZADO, 85% APROBADO; 50 colaboradores
+        jdbc.update("""
+                INSERT INTO products (nombre, estado, uploader_username)
+                SELECT 'p' || g,
+                       CASE WHEN g % 20 = 0 THEN 'PENDIENTE' WHEN g % 20 < 3 THEN 'RECHAZADO' ELSE 'APROBADO' END,
+                       'colab-' || (g % 50)
+                FROM generate_series(1, 5000) g""");
+        jdbc.execute("ANALYZE products");
+
+        Pageable pg = PageRequest.of(1, 20, ProductService.NEWEST_FIRST);
+        capture(() -> repo.findByEstado(ProductStatus.PENDIENTE, pg), "'PENDIENTE'", "20", "20");
+        capture(() -> repo.findSliceByEstado(ProductStatus.APROBADO, pg), "'APROBADO'", "20", "21");
+        capture(() -> repo.countByEstado(ProductStatus.APROBADO), "'APROBADO'");
+        capture(() -> repo.findByUploaderUsername("colab-7", pg), "'colab-7'", "20", "20");
+        capture(() -> repo.findByUploaderUsername("colab-7"), "'colab-7'");
+        capture(() -> repo.findByIdProductoGreaterThan(100L, PageRequest.of(0, 50, Sort.by("idProducto"))),
+                "100", "0", "50");
+        capture(() -> repo.findById(42L), "42");
+        capture(() -> repo.findClaimableIds("admin-1", Instant.now(), 10), "now()", "'admin-1'", "10");
+        capture(() -> repo.claim(List.of(40L, 60L), "admin-1", Instant.now()), "'admin-1'", "now()", "40", "60");
+        capture(() -> repo.findByIdForUpdate(40L), "40");
+
+        // Con 5000 filas el planificador podría preferir recorrer la tabla
+        // aunque haya índice; lo que se mide es si un índice sirve la consulta.
+        jdbc.execute("SET LOCAL enable_seqscan = off");
+        List<String> violations = new ArrayList<>();
+        for (Map.Entry<String, List<String>> q : queries) {
+            JsonNode plan = mapper.readTree(jdbc.queryForObject(
+                    "EXPLAIN (ANALYZE, FORMAT JSON) " + bind(q.getKey(), q.getValue()), String.class));
+            collectViolations(plan.get(0).get("Plan"), q.getKey(), violations);
+        }
+        assertThat(violations).isEmpty();
+    }
+
+    /** Registra el SQL sobre products que emite la llamada, con los valores a usar en EXPLAIN. */
+    private void capture(Runnable call, String... literals) {
+        SqlCapture.SQL.clear();
+        call.run();
+        List<String> sqls = SqlCapture.SQL.stream().filter(sql -> PRODUCTS.matcher(sql).find()).toList();
+        assertThat(sqls).isNotEmpty();
+        for (String sql : sqls) {
+            Map.Entry<String, List<String>> q = Map.entry(sql, List.of(literals));
+            if (!queries.contains(q))
+                queries.add(q);
+        }
+    }
+
+    /**
+     * Nodos sobre products que la recorren entera o que descartan por filtro
+     * más filas de las que devuelven (el índice no sirve al WHERE).
+     */
+    private static void collectViolations(JsonNode node, String sql, List<String> out) {
+        if ("products".equals(node.path("Relation Name").asText())) {
+            String type = node.path("Node Type").asText();
+            long removed = node.path("Rows Removed by Filter").asLong();
+            if (type.equals("Seq Scan") || removed > node.path("Actual Rows").asLong())
+                out.add(type + " (descartadas " + removed + ") <- " + sql);
+        }
+        for (JsonNode child : node.path("Plans"))
+            collectViolations(child, sql, out);
+    }
+
+    /** Sustituye los '?' por literales; la consulta de COUNT usa sólo los primeros. */
+    private static String bind(String sql, List<String> literals) {
+        StringBuilder sb = new StringBuilder(sql.length() + 32);
+        int n = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '?')
+                sb.append(literals.get(n++));
+            else
+                sb.append(c);
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.aec.prodsrv.service;
+
+import com.aec.prodsrv.dto.ProductDto;
+import com.aec.prodsrv.model.ProductStatus;
+import com.aec.prodsrv.repository.ProductRepository;
+import com.aec.prodsrv.security.ServiceTokenProvider;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Un cambio reconstruye sólo su página (y las siguientes si se desplazan);
+ * las demás se re-serializan sin consultar productos.
+ */
+class ApprovedCatalogSnapshotsTest {
+
+    private static final int SIZE = 3;
+
+    private final TreeSet<Long> approved = new TreeSet<>(Comparator.reverseOrder());
+    private final List<Integer> builtPages = new ArrayList<>();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private ProductService svc;
+    private ApprovedCatalogSnapshots catalog;
+
+    @BeforeEach
+    void setUp() {
+        for (long id = 1; id <= 10; id++)
+            approved.add(id * 10); // 100..10: páginas [100,90,80] [70,60,50] [40,30,20]
+
+        svc = mock(ProductService.class);
+        when(svc.findContentByEstado(eq(ProductStatus.APROBADO), any(Pageable.class))).thenAnswer(inv -> {
+            Pageable pg = inv.getArgument(1);
+            builtPages.add(pg.getPageNumber());
+            return approved.stream().skip(pg.getOffset()).limit(pg.getPageSize())
+                    .map(id -> ProductDto.builder().idProducto(id).nombre("p" + id).build())
+                    .toList();
+        });
+        ProductRepository repo = mock(ProductRepository.class);
+        when(repo.countByEstado(ProductStatus.APROBADO)).thenAnswer(inv -> (long) approved.size());
+        ServiceTokenProvider token = mock(ServiceTokenProvider.class);
+        when(token.runAsService(any())).thenAnswer(inv -> ((Supplier<?>) inv.getArgument(0)).get());
+
+        catalog = new ApprovedCatalogSnapshots(svc, repo, mapper, token,
+                mock(PlatformTransactionManager.class), 3, SIZE);
+        catalog.rebuild();
+        builtPages.clear();
+        clearInvocations(svc);
+    }
+
+    @Test
+    void servesPreSerializedGzipPages() throws IOException {
+        ApprovedCatalogSnapshots.Snapshot snap = catalog.find(1, SIZE).orElseThrow();
+
+        JsonNode page = mapper.readTree(new GZIPInputStream(new ByteArrayInputStream(snap.gzip())));
+        assertThat(page.get("content").findValuesAsText("idProducto")).containsExactly("70", "60", "50");
+        assertThat(page.get("totalElements").asLong()).isEqualTo(10);
+        assertThat(mapper.readTree(snap.json())).isEqualTo(page);
+        assertThat(snap.etag()).startsWith("W/\"");
+        assertThat(catalog.find(1, 50)).isEmpty();
+        assertThat(catalog.find(3, SIZE)).isEmpty();
+    }
+
+    @Test
+    void editOfApprovedProductRebuildsOnlyItsPage() {
+        String before = catalog.find(1, SIZE).orElseThrow().etag();
+
+        catalog.markChanged(60L);
+        catalog.rebuild();
+
+        assertThat(builtPages).containsExactly(1);
+        assertThat(catalog.find(1, SIZE).orElseThrow().etag()).isEqualTo(before); // mismo contenido, mismo ETag
+    }
+
+    @Test
+    void approvalShiftsFollowingPagesOnly() throws IOException {
+        String first = catalog.find(0, SIZE).orElseThrow().etag();
+        approved.add(55L);
+
+        catalog.markChanged(55L);
+        catalog.rebuild();
+
+        assertThat(builtPages).containsExactly(1, 2);
+        ApprovedCatalogSnapshots.Snapshot page0 = catalog.find(0, SIZE).orElseThrow();
+        assertThat(page0.etag()).isNotEqualTo(first); // sólo cambió totalElements
+        assertThat(mapper.readTree(page0.json()).get("totalElements").asLong()).isEqualTo(11);
+        assertThat(mapper.readTree(catalog.find(2, SIZE).orElseThrow().json())
+                .get("content").findValuesAsText("idProducto")).containsExactly("50", "40", "30");
+    }
+
+    @Test
+    void changeBeyondSnapshotsOnlyUpdatesTotals() throws IOException {
+        approved.remove(10L);
+
+        catalog.markChanged(10L);
+        catalog.rebuild();
+
+        verify(svc, never()).findContentByEstado(any(), any());
+        assertThat(mapper.readTree(catalog.find(2, SIZE).orElseThrow().json())
+                .get("totalElements").asLong()).isEqualTo(9);
+    }
+}
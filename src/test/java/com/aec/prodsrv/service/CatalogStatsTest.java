@@ -0,0 +1,117 @@
+package com.aec.prodsrv.service;
+
+import com.aec.prodsrv.dto.CatalogStatsDto;
+import com.aec.prodsrv.model.ProductStatus;
+import com.aec.prodsrv.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static com.aec.prodsrv.model.ProductStatus.APROBADO;
+import static com.aec.prodsrv.model.ProductStatus.PENDIENTE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CatalogStatsTest {
+
+    record Row(Long getId, ProductStatus getEstado, String getUploader, String getPais, Set<String> cats)
+            implements ProductRepository.StatsRow {
+    }
+
+    record Cat(Long getId, String getCategoria) implements ProductRepository.CategoryRow {
+    }
+
+    private final TreeMap<Long, Row> db = new TreeMap<>();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private CatalogStats stats;
+
+    @BeforeEach
+    void setUp() {
+        put(1L, APROBADO, "ana", "Ecuador", "Puentes");
+        put(2L, APROBADO, "ana", "Perú", "Puentes", "Vías");
+        put(3L, PENDIENTE, "luis", "Ecuador", "Vías");
+
+        ProductRepository repo = mock(ProductRepository.class);
+        when(repo.findStatsRows(anyLong(), any(Pageable.class))).thenAnswer(inv -> {
+            long after = inv.getArgument(0);
+            Pageable pg = inv.getArgument(1);
+            return db.tailMap(after, false).values().stream().limit(pg.getPageSize())
+                    .map(ProductRepository.StatsRow.class::cast).toList();
+        });
+        when(repo.findStatsRowsByIds(any())).thenAnswer(inv -> inv.<Collection<Long>>getArgument(0).stream()
+                .filter(db::containsKey).map(db::get).map(ProductRepository.StatsRow.class::cast).toList());
+        when(repo.findCategoryRows(any())).thenAnswer(inv -> inv.<Collection<Long>>getArgument(0).stream()
+                .filter(db::containsKey)
+                .flatMap(id -> db.get(id).cats().stream().map(c -> (ProductRepository.CategoryRow) new Cat(id, c)))
+                .toList());
+
+        stats = new CatalogStats(repo, mock(PlatformTransactionManager.class), registry, 2);
+    }
+
+    @Test
+    void unavailableUntilFirstCount() {
+        assertThatThrownBy(stats::current).isInstanceOf(ResponseStatusException.class);
+    }
+
+    @Test
+    void fullCountAcrossBatches() {
+        stats.check();
+
+        CatalogStatsDto s = stats.current();
+        assertThat(s.total()).isEqualTo(3);
+        assertThat(s.porEstado()).containsExactlyInAnyOrderEntriesOf(Map.of(APROBADO, 2L, PENDIENTE, 1L));
+        assertThat(s.porCategoria().get("Vías")).containsExactlyInAnyOrderEntriesOf(Map.of(APROBADO, 1L, PENDIENTE, 1L));
+        assertThat(s.porPais().get("Ecuador")).containsExactlyInAnyOrderEntriesOf(Map.of(APROBADO, 1L, PENDIENTE, 1L));
+        assertThat(s.colaboradores()).isEqualTo(2);
+        assertThat(stats.forUploader("ana")).containsEntry(APROBADO, 2L).containsEntry(PENDIENTE, 0L);
+    }
+
+    @Test
+    void changesAreAppliedByDifference() {
+        stats.check();
+
+        put(3L, APROBADO, "luis", "Chile", "Vías"); // decidir + edición de país
+        db.remove(1L);                              // borrado
+        put(4L, PENDIENTE, "eva", "Perú");          // alta
+        List.of(1L, 3L, 4L).forEach(stats::markChanged);
+        stats.applyChanges();
+
+        CatalogStatsDto s = stats.current();
+        assertThat(s.total()).isEqualTo(3);
+        assertThat(s.porEstado()).containsExactlyInAnyOrderEntriesOf(Map.of(APROBADO, 2L, PENDIENTE, 1L));
+        assertThat(s.porPais()).containsOnlyKeys("Perú", "Chile");
+        assertThat(s.porCategoria().get("Puentes")).containsExactlyInAnyOrderEntriesOf(Map.of(APROBADO, 1L));
+        assertThat(stats.forUploader("luis")).containsEntry(APROBADO, 1L).containsEntry(PENDIENTE, 0L);
+
+        stats.check();
+        assertThat(registry.counter("catalog.stats.drift").count()).isZero();
+    }
+
+    @Test
+    void periodicCheckCorrectsMissedChanges() {
+        stats.check();
+
+        put(3L, APROBADO, "luis", "Ecuador", "Vías"); // sin aviso
+        stats.check();
+
+        assertThat(registry.counter("catalog.stats.drift").count()).isEqualTo(1);
+        assertThat(stats.current().porEstado()).containsExactlyInAnyOrderEntriesOf(Map.of(APROBADO, 3L));
+    }
+
+    private void put(Long id, ProductStatus estado, String uploader, String pais, String... cats) {
+        db.put(id, new Row(id, estado, uploader, pais, Set.of(cats)));
+    }
+}
@@ -0,0 +1,134 @@
+package com.aec.prodsrv.service;
+
+import com.aec.prodsrv.client.FileClient;
+import com.aec.prodsrv.client.dto.FileInfoDto;
+import com.aec.prodsrv.model.FileDigest;
+import com.aec.prodsrv.repository.FileDigestRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FileDedupServiceTest {
+
+    private final List<FileDigest> table = new CopyOnWriteArrayList<>();
+    private final AtomicInteger uploads = new AtomicInteger();
+    private FileClient files;
+    private FileDedupService dedup;
+
+    @BeforeEach
+    void setUp() {
+        FileDigestRepository repo = mock(FileDigestRepository.class);
+        when(repo.existsByProductIdAndSize(anyLong(), anyLong())).thenAnswer(inv -> table.stream()
+                .anyMatch(d -> d.getProductId().equals(inv.getArgument(0)) && d.getSize().equals(inv.getArgument(1))));
+        when(repo.findFirstBySha256AndProductId(anyString(), anyLong())).thenAnswer(inv -> table.stream()
+                .filter(d -> d.getSha256().equals(inv.getArgument(0)) && d.getProductId().equals(inv.getArgument(1)))
+                .findFirst());
+        when(repo.save(any())).thenAnswer(inv -> {
+            table.add(inv.getArgument(0));
+            return inv.getArgument(0);
+        });
+
+        files = mock(FileClient.class);
+        // Simula la subida: consume el stream completo como lo hace el cuerpo multipart
+        when(files.uploadProductFile(any(), anyString(), anyLong())).thenAnswer(inv -> {
+            MultipartFile f = inv.getArgument(0);
+            try (InputStream in = f.getInputStream()) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            FileInfoDto dto = new FileInfoDto();
+            dto.setDriveFileId("drive-" + uploads.incrementAndGet());
+            return dto;
+        });
+        dedup = new FileDedupService(files, repo, "product");
+    }
+
+    @Test
+    void firstUploadIsHashedFromTheUploadStreamItself() throws Exception {
+        CountingFile file = new CountingFile("plano.pdf", "contenido A");
+
+        FileInfoDto res = dedup.uploadProductFile(file, "ana", 1L);
+
+        assertThat(res.getDriveFileId()).isEqualTo("drive-1");
+        assertThat(file.reads).hasValue(1); // sin pre-lectura
+        assertThat(table).singleElement().satisfies(d -> {
+            assertThat(d.getSha256()).isEqualTo(sha256("contenido A"));
+            assertThat(d.getProductId()).isEqualTo(1L);
+        });
+    }
+
+    @Test
+    void sameContentInSameProductReusesTheFile() {
+        dedup.uploadProductFile(new CountingFile("a.pdf", "contenido A"), "ana", 1L);
+
+        FileInfoDto again = dedup.uploadProductFile(new CountingFile("copia.pdf", "contenido A"), "ana", 1L);
+        FileInfoDto other = dedup.uploadProductFile(new CountingFile("b.pdf", "contenido B"), "ana", 1L);
+
+        assertThat(again.getDriveFileId()).isEqualTo("drive-1");
+        assertThat(other.getDriveFileId()).isEqualTo("drive-2"); // mismo tamaño, otro contenido: se sube
+        assertThat(uploads).hasValue(2);
+    }
+
+    @Test
+    void sameContentInAnotherProductIsUploadedToItsOwnFolder() {
+        dedup.uploadProductFile(new CountingFile("a.pdf", "contenido A"), "ana", 1L);
+
+        FileInfoDto res = dedup.uploadProductFile(new CountingFile("a.pdf", "contenido A"), "luis", 2L);
+
+        assertThat(res.getDriveFileId()).isEqualTo("drive-2");
+        verify(files).uploadProductFile(any(), eq("luis"), eq(2L));
+        assertThat(table).extracting(FileDigest::getProductId).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void scopeOffNeverHashes() {
+        FileDigestRepository repo = mock(FileDigestRepository.class);
+        FileDedupService off = new FileDedupService(files, repo, "off");
+        CountingFile file = new CountingFile("a.pdf", "contenido A");
+
+        off.uploadProductFile(file, "ana", 1L);
+
+        verify(repo, never()).save(any());
+        assertThat(file.reads).hasValue(1);
+    }
+
+    private static String sha256(String s) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                .digest(s.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /** Multipart que cuenta cuántas veces se abre su contenido. */
+    private static final class CountingFile extends MockMultipartFile {
+        final AtomicInteger reads = new AtomicInteger();
+
+        CountingFile(String name, String content) {
+            super("archivosAut", name, "application/pdf", content.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            reads.incrementAndGet();
+            return super.getInputStream();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.aec.prodsrv.service;
+
+import com.aec.prodsrv.dto.ProductDto;
+import com.aec.prodsrv.model.IdempotencyRecord;
+import com.aec.prodsrv.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IdempotencyServiceTest {
+
+    private final Map<Long, IdempotencyRecord> table = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final AtomicInteger creates = new AtomicInteger();
+    private IdempotencyService idempotency;
+
+    @BeforeEach
+    void setUp() {
+        IdempotencyRecordRepository repo = mock(IdempotencyRecordRepository.class);
+        when(repo.findByOwnerAndIdemKey(anyString(), anyString())).thenAnswer(inv -> table.values().stream()
+                .filter(r -> r.getOwner().equals(inv.getArgument(0)) && r.getIdemKey().equals(inv.getArgument(1)))
+                .findFirst());
+        when(repo.saveAndFlush(any())).thenAnswer(inv -> {
+            IdempotencyRecord r = inv.getArgument(0);
+            if (table.values().stream().anyMatch(o -> o.getOwner().equals(r.getOwner())
+                    && o.getIdemKey().equals(r.getIdemKey())))
+                throw new DataIntegrityViolationException("uk_idempotency_owner_key");
+            r.setId(ids.incrementAndGet());
+            table.put(r.getId(), r);
+            return r;
+        });
+        when(repo.complete(anyLong(), anyInt(), any(), any())).thenAnswer(inv -> {
+            IdempotencyRecord r = table.get(inv.<Long>getArgument(0));
+            r.setStatus(inv.getArgument(1));
+            r.setResponseBody(inv.getArgument(2));
+            r.setExpiresAt(inv.getArgument(3));
+            return 1;
+        });
+        doAnswer(inv -> table.remove(inv.<Long>getArgument(0))).when(repo).deleteById(anyLong());
+
+        idempotency = new IdempotencyService(repo, new ObjectMapper().registerModule(new JavaTimeModule()),
+                mock(PlatformTransactionManager.class), Duration.ofHours(24), Duration.ofMinutes(15));
+    }
+
+    @Test
+    void retryGetsStoredResponseWithoutRunningAgain() {
+        ResponseEntity<ProductDto> first = create("k-1", "Puente");
+        ResponseEntity<ProductDto> retry = create("k-1", "Puente");
+
+        assertThat(creates).hasValue(1);
+        assertThat(retry.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(retry.getBody().getIdProducto()).isEqualTo(first.getBody().getIdProducto());
+        assertThat(retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(first.getHeaders().containsKey(IdempotencyService.REPLAYED_HEADER)).isFalse();
+    }
+
+    @Test
+    void keyReusedForAnotherRequestIsRejected() {
+        create("k-1", "Puente");
+
+        assertThatThrownBy(() -> create("k-1", "Vía"))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY));
+        assertThat(creates).hasValue(1);
+    }
+
+    @Test
+    void retryWhileOriginalRunsIsAConflict() {
+        ProductDto dto = ProductDto.builder().nombre("Puente").build();
+        idempotency.execute("ana", "k-1", () -> idempotency.fingerprint("POST /api/products", dto),
+                ProductDto.class, () -> {
+                    assertThatThrownBy(() -> create("k-1", "Puente"))
+                            .isInstanceOfSatisfying(ResponseStatusException.class,
+                                    e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+                    return ResponseEntity.ok(new ProductDto());
+                });
+    }
+
+    @Test
+    void failedOrExpiredKeysCanBeUsedAgain() {
+        assertThatThrownBy(() -> idempotency.execute("ana", "k-1", () -> "huella", ProductDto.class, () -> {
+            throw new IllegalStateException("file-service caído");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(table).isEmpty();
+
+        create("k-2", "Puente");
+        table.values().forEach(r -> r.setExpiresAt(Instant.now().minusSeconds(1)));
+        create("k-2", "Puente");
+        assertThat(creates).hasValue(2);
+    }
+
+    @Test
+    void fingerprintCoversFileContent() {
+        MockMultipartFile a = new MockMultipartFile("fotos", "a.png", "image/png", new byte[] { 1, 2 });
+        MockMultipartFile b = new MockMultipartFile("fotos", "a.png", "image/png", new byte[] { 1, 3 });
+
+        assertThat(idempotency.fingerprint("POST /api/products", "dto", a))
+                .isEqualTo(idempotency.fingerprint("POST /api/products", "dto", a))
+                .isNotEqualTo(idempotency.fingerprint("POST /api/products", "dto", b));
+    }
+
+    private ResponseEntity<ProductDto> create(String key, String nombre) {
+        ProductDto dto = ProductDto.builder().nombre(nombre).build();
+        return idempotency.execute("ana", key, () -> idempotency.fingerprint("POST /api/products", dto),
+                ProductDto.class, () -> {
+                    ProductDto created = ProductDto.builder().idProducto((long) creates.incrementAndGet())
+                            .nombre(nombre).build();
+                    return ResponseEntity.status(HttpStatus.CREATED).body(created);
+                });
+    }
+}
@@ -0,0 +1,145 @@
+package com.aec.prodsrv.service;
+
+import com.aec.prodsrv.client.FileClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class ImageDerivativeServiceTest {
+
+    @TempDir
+    Path uploadDir;
+
+    private final Map<String, byte[]> originals = new ConcurrentHashMap<>();
+    private final AtomicInteger downloads = new AtomicInteger();
+    private FileClient files;
+    private ImageDerivativeService derivatives;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        originals.put("foto-1", png(2400, 1200));
+        originals.put("plano-1", "%PDF-1.7 no es una imagen".getBytes());
+
+        files = mock(FileClient.class);
+        // file-service simulado: escribe el original en el destino, como DataBufferUtils.write
+        doAnswer(inv -> {
+            downloads.incrementAndGet();
+            Path target = inv.getArgument(1);
+            try (OutputStream out = Files.newOutputStream(target)) {
+                out.write(originals.get(inv.<String>getArgument(0)));
+            }
+            return null;
+        }).when(files).downloadTo(anyString(), any(Path.class));
+
+        derivatives = new ImageDerivativeService(files, uploadDir.toString(), 1, 10);
+        ReflectionTestUtils.setField(derivatives, "quality", 0.8f);
+        ReflectionTestUtils.setField(derivatives, "maxSourcePixels", 60_000_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        derivatives.shutdown();
+    }
+
+    @Test
+    void generatesEveryVariantFromAStreamedOriginal() throws Exception {
+        derivatives.enqueue("foto-1");
+        awaitVariants("foto-1");
+
+        for (ImageDerivativeService.Variant v : ImageDerivativeService.Variant.values()) {
+            BufferedImage img = ImageIO.read(derivatives.find("foto-1", v).orElseThrow().toFile());
+            assertThat(Math.max(img.getWidth(), img.getHeight())).isEqualTo(v.maxSide);
+            assertThat(img.getWidth()).isEqualTo(2 * img.getHeight()); // conserva la proporción
+        }
+        try (Stream<Path> left = Files.list(uploadDir.resolve("derivatives").resolve("foto-1"))) {
+            assertThat(left.map(p -> p.getFileName().toString())).noneMatch(n -> n.endsWith(".tmp"));
+        }
+        verify(files, never()).downloadFile(anyString());
+
+        derivatives.enqueue("foto-1"); // ya están: no se vuelve a descargar
+        assertThat(downloads).hasValue(1);
+    }
+
+    @Test
+    void nonImagesAreMarkedAndNotRetried() throws Exception {
+        derivatives.enqueue("plano-1");
+        awaitIdle();
+        derivatives.enqueue("plano-1");
+        awaitIdle();
+
+        assertThat(downloads).hasValue(1);
+        assertThat(derivatives.find("plano-1", ImageDerivativeService.Variant.THUMB)).isEmpty();
+    }
+
+    @Test
+    void evictDropsVariantsAndTheyAreRebuiltOnDemand() throws Exception {
+        derivatives.enqueue("foto-1");
+        awaitVariants("foto-1");
+        awaitIdle();
+
+        derivatives.evict("foto-1");
+        assertThat(uploadDir.resolve("derivatives").resolve("foto-1")).doesNotExist();
+        assertThat(derivatives.find("foto-1", ImageDerivativeService.Variant.CARD)).isEmpty();
+
+        derivatives.enqueue("foto-1");
+        awaitVariants("foto-1");
+        assertThat(downloads).hasValue(2);
+    }
+
+    @Test
+    void unsafeIdsNeverTouchTheDisk() {
+        derivatives.enqueue("../foto-1");
+        derivatives.evict("../../etc");
+
+        assertThat(downloads).hasValue(0);
+        assertThat(uploadDir.resolve("derivatives")).doesNotExist();
+    }
+
+    private void awaitVariants(String id) throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            if (Arrays.stream(ImageDerivativeService.Variant.values())
+                    .allMatch(v -> derivatives.find(id, v).isPresent()))
+                return;
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Variantes de " + id + " no generadas");
+    }
+
+    @SuppressWarnings("unchecked")
+    private void awaitIdle() throws InterruptedException {
+        Set<String> inFlight = (Set<String>) ReflectionTestUtils.getField(derivatives, "inFlight");
+        for (int i = 0; i < 200 && !inFlight.isEmpty(); i++)
+            Thread.sleep(50);
+    }
+
+    private static byte[] png(int w, int h) throws IOException {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(img, "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,220 @@
+package com.aec.prodsrv.service;
+
+import com.aec.prodsrv.client.FileClient;
+import com.aec.prodsrv.client.dto.FileInfoDto;
+import com.aec.prodsrv.dto.ReconcileReport;
+import com.aec.prodsrv.model.JobCheckpoint;
+import com.aec.prodsrv.model.Product;
+import com.aec.prodsrv.repository.JobCheckpointRepository;
+import com.aec.prodsrv.repository.ProductRepository;
+import com.aec.prodsrv.security.ServiceTokenProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Productos 1 y 3 con sus archivos y uno sobrante; el 2 es un create revertido
+ * y el 5 el último id entregado (también revertido): sus carpetas son huérfanas.
+ */
+class OrphanFileReconcilerTest {
+
+    private static final Instant T0 = Instant.parse("2026-01-10T08:00:00Z");
+
+    private final Map<Long, List<String>> folders = new HashMap<>();
+    private final List<String> deleted = new ArrayList<>();
+    private final Set<Long> metaDown = new HashSet<>();
+    private FileDedupService dedup;
+    private ImageDerivativeService derivatives;
+    private ProductRepository repo;
+    private JobCheckpointRepository checkpoints;
+    private final Map<String, JobCheckpoint> checkpointTable = new HashMap<>();
+    private FileClient files;
+    private ServiceTokenProvider token;
+
+    @BeforeEach
+    void setUp() {
+        folders.put(1L, new ArrayList<>(List.of("f1", "o1")));
+        folders.put(2L, new ArrayList<>(List.of("g2")));
+        folders.put(3L, new ArrayList<>(List.of("f3")));
+        folders.put(5L, new ArrayList<>(List.of("t5")));
+
+        repo = mock(ProductRepository.class);
+        List<Product> products = List.of(
+                Product.builder().idProducto(1L).fotografiaProd(List.of("f1")).build(),
+                Product.builder().idProducto(3L).archivosAut(List.of("f3")).build());
+        when(repo.findByIdProductoGreaterThan(anyLong(), any(Pageable.class))).thenAnswer(inv -> {
+            long after = inv.getArgument(0);
+            return new SliceImpl<>(products.stream().filter(p -> p.getIdProducto() > after).toList(),
+                    inv.getArgument(1), false);
+        });
+        when(repo.lastIssuedId()).thenReturn(5L);
+
+        checkpoints = mock(JobCheckpointRepository.class);
+        when(checkpoints.findById(anyString())).thenAnswer(inv -> Optional.ofNullable(checkpointTable.get(inv.getArgument(0))));
+        when(checkpoints.save(any())).thenAnswer(inv -> {
+            JobCheckpoint c = inv.getArgument(0);
+            checkpointTable.put(c.getName(), c);
+            return c;
+        });
+
+        files = mock(FileClient.class);
+        when(files.getProductFilesMetaReactive(anyLong())).thenAnswer(inv -> {
+            Long id = inv.getArgument(0);
+            if (metaDown.contains(id))
+                return Flux.error(new IllegalStateException("file-service caído"));
+            return Flux.fromIterable(folders.getOrDefault(id, List.of())).map(OrphanFileReconcilerTest::meta);
+        });
+        doAnswer(inv -> {
+            String id = inv.getArgument(0);
+            deleted.add(id);
+            folders.values().forEach(f -> f.remove(id));
+            return null;
+        }).when(files).deleteFile(anyString());
+
+        dedup = mock(FileDedupService.class);
+        derivatives = mock(ImageDerivativeService.class);
+    }
+
+    @Test
+    void deletesOnlyAfterMinimumAgeEvenOnBackToBackRuns() {
+        OrphanFileReconciler reconciler = reconciler(Duration.ofHours(2));
+
+        ReconcileReport first = runAt(reconciler, T0);
+        ReconcileReport again = runAt(reconciler, T0.plusSeconds(5)); // dos POST manuales seguidos
+
+        assertThat(first.orphansFound()).isEqualTo(3);
+        assertThat(first.foldersWithoutProduct()).isEqualTo(3); // 2, 4 y 5
+        assertThat(again.pendingConfirmation()).isEqualTo(3);
+        assertThat(deleted).isEmpty();
+
+        ReconcileReport later = runAt(reconciler, T0.plus(Duration.ofHours(2)));
+
+        assertThat(deleted).containsExactlyInAnyOrder("o1", "g2", "t5");
+        assertThat(later.deleted()).isEqualTo(3);
+        verify(dedup).forget(2L, "g2");
+        verify(derivatives).evict("o1");
+        // token nuevo por lote de metadatos (2 por pasada) y por borrado (3), nunca uno por pasada
+        verify(token, times(3 * 2 + 3)).runAsService(any());
+    }
+
+    @Test
+    void emptyFoldersWithoutProductAreCheckedOnceAfterMinimumAge() {
+        OrphanFileReconciler reconciler = reconciler(Duration.ofHours(2));
+        runAt(reconciler, T0);
+        runAt(reconciler, T0.plus(Duration.ofHours(2))); // borra g2 y t5; ids ≤ 5 entregados hace 2h
+        assertThat(checkpointTable.get(OrphanFileReconciler.GAP_CHECKPOINT).getPosition()).isEqualTo(5L);
+
+        ReconcileReport next = runAt(reconciler, T0.plus(Duration.ofHours(3)));
+        // tras un reinicio el punto de control sigue en la base
+        ReconcileReport restarted = runAt(reconciler(Duration.ofHours(2)), T0.plus(Duration.ofHours(4)));
+
+        assertThat(next.foldersWithoutProduct()).isZero();
+        assertThat(restarted.foldersWithoutProduct()).isZero();
+        verify(files, times(2)).getProductFilesMetaReactive(4L);
+    }
+
+    @Test
+    void folderWithPendingOrphansOrRecentIdsIsNotCheckpointed() {
+        OrphanFileReconciler reconciler = reconciler(Duration.ofHours(2));
+        runAt(reconciler, T0);
+        when(repo.lastIssuedId()).thenReturn(7L); // 6 y 7 entregados después de T0
+        folders.put(6L, new ArrayList<>(List.of("t6")));
+        runAt(reconciler, T0.plus(Duration.ofHours(2)));
+
+        assertThat(checkpointTable.get(OrphanFileReconciler.GAP_CHECKPOINT).getPosition()).isEqualTo(5L);
+        ReconcileReport next = runAt(reconciler, T0.plus(Duration.ofHours(3)));
+        assertThat(next.foldersWithoutProduct()).isEqualTo(2); // 6 y 7 siguen en revisión
+    }
+
+    @Test
+    void orphanThatReappearsStartsAgingFromScratch() {
+        OrphanFileReconciler reconciler = reconciler(Duration.ofHours(2));
+        runAt(reconciler, T0);
+
+        folders.get(5L).remove("t5"); // una pasada sin verlo (p. ej. fallo de metadatos)
+        runAt(reconciler, T0.plus(Duration.ofHours(1)));
+        folders.get(5L).add("t5");
+        runAt(reconciler, T0.plus(Duration.ofHours(2)));
+
+        assertThat(deleted).containsExactlyInAnyOrder("o1", "g2");
+    }
+
+    @Test
+    void productWithoutFreshMetadataIsSkippedAndKeepsItsAge() {
+        OrphanFileReconciler reconciler = reconciler(Duration.ofHours(2));
+        runAt(reconciler, T0);
+
+        metaDown.add(1L); // ni respaldo ni lista vacía: se salta
+        ReconcileReport skipped = runAt(reconciler, T0.plus(Duration.ofHours(2)));
+        assertThat(skipped.metaFailures()).isEqualTo(1);
+        assertThat(deleted).containsExactlyInAnyOrder("g2", "t5");
+        verify(files, never()).getMetaByProductReactive(anyLong());
+
+        metaDown.clear();
+        runAt(reconciler, T0.plus(Duration.ofHours(2)).plusSeconds(5));
+        assertThat(deleted).contains("o1"); // conservó su edad mientras se saltaba
+    }
+
+    @Test
+    void minimumAgeNeverBelowUploadDeadlinePlusTicketGrace() {
+        // 10m de subida + 10m de ticket + 30m de gracia: se exige al menos 55m aunque se configuren 10m
+        OrphanFileReconciler reconciler = reconciler(Duration.ofMinutes(10));
+
+        runAt(reconciler, T0);
+        runAt(reconciler, T0.plus(Duration.ofMinutes(54)));
+        assertThat(deleted).isEmpty();
+
+        runAt(reconciler, T0.plus(Duration.ofMinutes(55)));
+        assertThat(deleted).hasSize(3);
+    }
+
+    private OrphanFileReconciler reconciler(Duration minAge) {
+        token = mock(ServiceTokenProvider.class);
+        when(token.runAsService(any())).thenAnswer(inv -> ((Supplier<?>) inv.getArgument(0)).get());
+        OrphanFileReconciler r = new OrphanFileReconciler(repo, checkpoints, files, dedup, derivatives, token, 1000,
+                minAge, Duration.ofMinutes(10), Duration.ofMinutes(10), Duration.ofMinutes(30));
+        ReflectionTestUtils.setField(r, "pageSize", 100);
+        ReflectionTestUtils.setField(r, "metaConcurrency", 2);
+        ReflectionTestUtils.setField(r, "maxDeletesPerRun", 500);
+        return r;
+    }
+
+    private static ReconcileReport runAt(OrphanFileReconciler reconciler, Instant now) {
+        reconciler.clock = Clock.fixed(now, ZoneOffset.UTC);
+        return reconciler.run();
+    }
+
+    private static FileInfoDto meta(String driveId) {
+        FileInfoDto m = new FileInfoDto();
+        m.setDriveFileId(driveId);
+        m.setSize(10L);
+        return m;
+    }
+}
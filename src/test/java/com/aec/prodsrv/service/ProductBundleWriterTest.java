@@ -0,0 +1,136 @@
+package com.aec.prodsrv.service;
+
+import com.aec.prodsrv.client.FileClient;
+import com.aec.prodsrv.client.dto.FileInfoDto;
+import com.aec.prodsrv.support.FileServiceStub;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductBundleWriterTest {
+
+    @TempDir
+    Path tmp;
+
+    private FileServiceStub fileService;
+    private final Map<String, byte[]> files = new HashMap<>();
+    private final Set<String> denied = new HashSet<>();
+    private final Map<String, Integer> downloads = new ConcurrentHashMap<>();
+    private ProductBundleWriter writer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        files.put("img", bytes(50_000, 7));
+        files.put("txt", "hola ".repeat(10_000).getBytes());
+        files.put("big", bytes(200_000, 3));
+        files.put("txt2", "otro".getBytes());
+
+        fileService = FileServiceStub.start().on("/api/files/", ex -> {
+            String id = ex.getRequestURI().getPath().substring("/api/files/".length());
+            byte[] body = files.get(id);
+            if (body == null || denied.contains(id)) {
+                ex.sendResponseHeaders(body == null ? 404 : 403, -1);
+                ex.close();
+                return;
+            }
+            if (ex.getRequestMethod().equals("HEAD")) { // autorización previa
+                ex.sendResponseHeaders(200, -1);
+                ex.close();
+                return;
+            }
+            downloads.merge(id, 1, Integer::sum);
+            ex.sendResponseHeaders(200, body.length);
+            try (OutputStream out = ex.getResponseBody()) {
+                out.write(body);
+            }
+        });
+
+        // caché de 128 KB por entrada: "big" se lee directo de file-service
+        FileClient client = fileService.fileClient(tmp, DataSize.ofMegabytes(10), DataSize.ofKilobytes(128));
+        writer = new ProductBundleWriter(client);
+        ReflectionTestUtils.setField(writer, "prefetch", 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fileService.close();
+    }
+
+    @Test
+    void zipsEveryFileWithUniqueNamesAndStoresCompressedFormats() throws IOException {
+        List<FileInfoDto> metas = List.of(
+                meta("img", "foto.jpg"),
+                meta("txt", "memoria.txt"),
+                meta("big", "modelo.zip"),
+                meta("txt2", "memoria.txt"),
+                meta("perdido", "plano.dwg"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(1L, metas, out);
+
+        Map<String, ZipEntry> entries = new LinkedHashMap<>();
+        Map<String, byte[]> contents = new HashMap<>();
+        try (ZipInputStream zin = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            for (ZipEntry e; (e = zin.getNextEntry()) != null;) {
+                entries.put(e.getName(), e);
+                contents.put(e.getName(), zin.readAllBytes());
+            }
+        }
+
+        assertThat(entries.keySet()).containsExactly(
+                "foto.jpg", "memoria.txt", "modelo.zip", "memoria (2).txt", "LEEME-archivos-faltantes.txt");
+        assertThat(entries.get("foto.jpg").getMethod()).isEqualTo(ZipEntry.STORED);
+        assertThat(entries.get("modelo.zip").getMethod()).isEqualTo(ZipEntry.DEFLATED); // sin CRC previo: nivel 0
+        assertThat(entries.get("memoria.txt").getMethod()).isEqualTo(ZipEntry.DEFLATED);
+        assertThat(contents.get("foto.jpg")).isEqualTo(files.get("img"));
+        assertThat(contents.get("memoria.txt")).isEqualTo(files.get("txt"));
+        assertThat(contents.get("modelo.zip")).isEqualTo(files.get("big"));
+        assertThat(contents.get("memoria (2).txt")).isEqualTo(files.get("txt2"));
+        assertThat(new String(contents.get("LEEME-archivos-faltantes.txt"))).contains("plano.dwg");
+    }
+
+    @Test
+    void deniedFilesAbortBeforeAnythingIsWrittenEvenWhenCached() throws IOException {
+        List<FileInfoDto> metas = List.of(meta("img", "foto.jpg"), meta("txt", "memoria.txt"));
+        writer.write(1L, metas, new ByteArrayOutputStream()); // quedan en la caché
+
+        denied.addAll(List.of("img", "txt"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThatThrownBy(() -> writer.write(1L, metas, out))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode().value()).isEqualTo(403));
+        assertThat(out.size()).isZero();
+        assertThat(downloads).containsEntry("img", 1).containsEntry("txt", 1);
+    }
+
+    private FileInfoDto meta(String id, String name) {
+        FileInfoDto m = new FileInfoDto();
+        m.setDriveFileId(id);
+        m.setOriginalName(name);
+        m.setSize(files.containsKey(id) ? (long) files.get(id).length : null);
+        return m;
+    }
+
+    private static byte[] bytes(int n, int seed) {
+        byte[] b = new byte[n];
+        new Random(seed).nextBytes(b);
+        return b;
+    }
+}
@@ -0,0 +1,106 @@
+package com.aec.prodsrv.service;
+
+import com.aec.prodsrv.dto.ProductDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductDtoCacheTest {
+
+    @Configuration
+    @EnableTransactionManagement
+    static class Config {
+        @Bean
+        PlatformTransactionManager transactionManager() {
+            JdbcDataSource ds = new JdbcDataSource();
+            ds.setURL("jdbc:h2:mem:dtocache;DB_CLOSE_DELAY=-1");
+            return new DataSourceTransactionManager(ds);
+        }
+
+        @Bean
+        ProductDtoCache productDtoCache() {
+            return new ProductDtoCache(100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+        }
+    }
+
+    private AnnotationConfigApplicationContext ctx;
+    private ProductDtoCache cache;
+    private ApplicationEventPublisher events;
+    private TransactionTemplate tx;
+    private final AtomicInteger builds = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        ctx = new AnnotationConfigApplicationContext(Config.class);
+        cache = ctx.getBean(ProductDtoCache.class);
+        events = ctx;
+        tx = new TransactionTemplate(ctx.getBean(PlatformTransactionManager.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        ctx.close();
+    }
+
+    @Test
+    void hitsDoNotRebuild() {
+        load(1L);
+        load(1L);
+        assertThat(builds).hasValue(1);
+    }
+
+    @Test
+    void changeEvictsOnlyAfterCommit() {
+        load(1L);
+        tx.executeWithoutResult(status -> {
+            events.publishEvent(new ProductChangedEvent(1L));
+            load(1L); // dentro de la transacción todavía se ve el DTO anterior
+            assertThat(builds).hasValue(1);
+        });
+        load(1L);
+        assertThat(builds).hasValue(2);
+    }
+
+    @Test
+    void rolledBackChangeKeepsTheEntry() {
+        load(1L);
+        tx.executeWithoutResult(status -> {
+            events.publishEvent(new ProductChangedEvent(1L));
+            status.setRollbackOnly();
+        });
+        load(1L);
+        assertThat(builds).hasValue(1);
+    }
+
+    @Test
+    void changeOutsideTransactionEvictsImmediately() {
+        load(1L);
+        load(2L);
+        events.publishEvent(new ProductChangedEvent(1L));
+        load(1L);
+        load(2L);
+        assertThat(builds).hasValue(3);
+    }
+
+    private ProductDto load(Long id) {
+        return cache.get(id, k -> {
+            builds.incrementAndGet();
+            return ProductDto.builder().idProducto(k).build();
+        });
+    }
+}
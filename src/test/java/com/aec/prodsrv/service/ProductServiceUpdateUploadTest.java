@@ -0,0 +1,121 @@
+package com.aec.prodsrv.service;
+
+import com.aec.prodsrv.dto.ProductDto;
+import com.aec.prodsrv.model.Product;
+import com.aec.prodsrv.model.ProductStatus;
+import com.aec.prodsrv.repository.ProductRepository;
+import com.aec.prodsrv.support.FileServiceStub;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.aec.prodsrv.support.FileServiceStub.drain;
+import static com.aec.prodsrv.support.FileServiceStub.respond;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cada archivo de una edición debe viajar a file-service una sola vez:
+ * a staging si el producto está PENDIENTE, a permanente en otro caso.
+ */
+class ProductServiceUpdateUploadTest {
+
+    private static final int PHOTO_BYTES = 256 * 1024;
+    private static final int AUT_BYTES = 512 * 1024;
+
+    @TempDir
+    Path tmp;
+
+    private FileServiceStub fileService;
+    private final AtomicLong stagingBytes = new AtomicLong();
+    private final AtomicLong permanentBytes = new AtomicLong();
+    private final AtomicInteger uploads = new AtomicInteger();
+
+    private ProductRepository repo;
+    private ProductService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        fileService = FileServiceStub.start()
+                .on("/api/files/staging/", ex -> {
+                    stagingBytes.addAndGet(drain(ex));
+                    uploads.incrementAndGet();
+                    respond(ex, 200, "{\"stagingId\":\"stg-" + uploads.get() + "\",\"filename\":\"f\"}");
+                })
+                .on("/api/files/public/", ex -> {
+                    permanentBytes.addAndGet(drain(ex));
+                    uploads.incrementAndGet();
+                    respond(ex, 200, "{\"driveFileId\":\"drv-" + uploads.get() + "\",\"fileType\":\"image/png\"}");
+                })
+                .on("/api/files/meta/", ex -> {
+                    drain(ex);
+                    respond(ex, 200, "[]");
+                });
+
+        repo = mock(ProductRepository.class);
+        when(repo.save(any(Product.class))).thenAnswer(inv -> inv.getArgument(0));
+        service = FileServiceStub.productService(repo, fileService.fileClient(tmp), "product");
+
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("colab", "token-colab"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        fileService.close();
+    }
+
+    @ParameterizedTest
+    @EnumSource(ProductStatus.class)
+    void eachIncomingFileIsTransferredOnce(ProductStatus estado) {
+        Product p = Product.builder()
+                .idProducto(7L)
+                .nombre("Puente")
+                .estado(estado)
+                .uploaderUsername("colab")
+                .categorias(Set.of())
+                .especialidades(Set.of())
+                .build();
+        when(repo.findById(7L)).thenReturn(Optional.of(p));
+
+        List<MultipartFile> fotos = List.of(file("a.png", PHOTO_BYTES), file("b.png", PHOTO_BYTES));
+        List<MultipartFile> aut = List.of(file("manual.pdf", AUT_BYTES));
+        ProductDto dto = ProductDto.builder().nombre("Puente").build();
+
+        service.update(7L, dto, null, fotos, aut, List.of(), List.of(), "colab");
+
+        boolean autAllowed = estado != ProductStatus.APROBADO; // en APROBADO se ignoran los AUT
+        long payload = 2L * PHOTO_BYTES + (autAllowed ? AUT_BYTES : 0);
+        long transferred = stagingBytes.get() + permanentBytes.get();
+
+        assertThat(uploads.get()).isEqualTo(autAllowed ? 3 : 2);
+        // cuerpo multipart = contenido + cabeceras de parte: nunca el doble
+        assertThat(transferred).isGreaterThanOrEqualTo(payload).isLessThan(payload + 8 * 1024);
+        if (estado == ProductStatus.PENDIENTE) {
+            assertThat(permanentBytes.get()).isZero();
+        } else {
+            assertThat(stagingBytes.get()).isZero();
+        }
+    }
+
+    private static MockMultipartFile file(String name, int size) {
+        return new MockMultipartFile(name, name, "application/octet-stream", new byte[size]);
+    }
+}
@@ -0,0 +1,80 @@
+package com.aec.prodsrv.service;
+
+import com.aec.prodsrv.client.FileClient;
+import com.aec.prodsrv.dto.ProductDto;
+import com.aec.prodsrv.dto.ReviewItemDto;
+import com.aec.prodsrv.model.Product;
+import com.aec.prodsrv.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReviewQueueServiceTest {
+
+    private ProductRepository repo;
+    private FileClient fileClient;
+    private ReviewQueueService queue;
+
+    @BeforeEach
+    void setUp() {
+        repo = mock(ProductRepository.class);
+        fileClient = mock(FileClient.class);
+        ProductService products = mock(ProductService.class);
+        when(products.toDto(any(), any())).thenAnswer(inv -> {
+            Product p = inv.getArgument(0);
+            return ProductDto.builder().idProducto(p.getIdProducto()).build();
+        });
+        queue = new ReviewQueueService(repo, products, fileClient, mock(PlatformTransactionManager.class),
+                Duration.ofMinutes(15), 20, 4);
+    }
+
+    @Test
+    void claimedItemsCarryTheirStagingPreviews() {
+        when(repo.findClaimableIds(eq("ana"), any(), eq(5))).thenReturn(List.of(3L, 1L));
+        when(repo.findAllById(List.of(3L, 1L))).thenReturn(List.of(product(3L), product(1L)));
+        FileClient.StagingInfoDto preview = new FileClient.StagingInfoDto();
+        preview.setStagingId("stg-1");
+        when(fileClient.listStagingReactive(1L)).thenReturn(Flux.just(preview));
+        when(fileClient.listStagingReactive(3L)).thenReturn(Flux.error(new IllegalStateException("caído")));
+
+        Instant before = Instant.now();
+        List<ReviewItemDto> items = queue.claim("ana", 5);
+
+        assertThat(items).extracting(i -> i.producto().getIdProducto()).containsExactly(1L, 3L);
+        assertThat(items.get(0).previews()).containsExactly(preview);
+        assertThat(items.get(1).previews()).isEmpty(); // sin previews, pero sigue en la cola
+        Instant until = items.get(0).reservadoHasta();
+        assertThat(until).isAfterOrEqualTo(before.plus(Duration.ofMinutes(15)));
+        verify(repo).claim(List.of(3L, 1L), "ana", until);
+    }
+
+    @Test
+    void limitIsCappedAndEmptyQueueSkipsFileService() {
+        when(repo.findClaimableIds(any(), any(), eq(20))).thenReturn(List.of());
+
+        assertThat(queue.claim("ana", 500)).isEmpty();
+
+        verify(repo, never()).claim(any(), any(), any());
+        verify(fileClient, never()).listStagingReactive(anyLong());
+    }
+
+    private static Product product(Long id) {
+        Product p = new Product();
+        p.setIdProducto(id);
+        return p;
+    }
+}
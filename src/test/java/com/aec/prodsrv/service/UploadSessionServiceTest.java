@@ -0,0 +1,190 @@
+package com.aec.prodsrv.service;
+
+import com.aec.prodsrv.dto.ProductDto;
+import com.aec.prodsrv.dto.UploadSessionDto;
+import com.aec.prodsrv.dto.UploadSessionRequest;
+import com.aec.prodsrv.model.Product;
+import com.aec.prodsrv.model.ProductStatus;
+import com.aec.prodsrv.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UploadSessionServiceTest {
+
+    private static final int CHUNK = 256 * 1024;
+    private static final Long PID = 7L;
+
+    @TempDir
+    Path uploadDir;
+
+    private final byte[] content = new byte[CHUNK * 2 + 1000]; // 3 trozos, el último corto
+    private final AtomicReference<byte[]> attached = new AtomicReference<>();
+    private UploadSessionService sessions;
+    private ProductService products;
+
+    @BeforeEach
+    void setUp() {
+        new Random(42).nextBytes(content);
+        ProductRepository repo = mock(ProductRepository.class);
+        when(repo.findById(PID)).thenReturn(Optional.of(Product.builder()
+                .idProducto(PID).uploaderUsername("ana").estado(ProductStatus.PENDIENTE).build()));
+        products = mock(ProductService.class);
+        when(products.attachAutFile(eq(PID), any(), eq("ana"))).thenAnswer(inv -> {
+            MultipartFile f = inv.getArgument(1);
+            try (InputStream in = f.getInputStream()) {
+                attached.set(in.readAllBytes());
+            }
+            return ProductDto.builder().idProducto(PID).build();
+        });
+
+        sessions = new UploadSessionService(repo, products, new ObjectMapper().registerModule(new JavaTimeModule()),
+                uploadDir.toString());
+        ReflectionTestUtils.setField(sessions, "defaultChunkSize", CHUNK);
+        ReflectionTestUtils.setField(sessions, "maxChunkSize", 4 * CHUNK);
+        ReflectionTestUtils.setField(sessions, "maxFileSize", 10L * CHUNK);
+        ReflectionTestUtils.setField(sessions, "ttl", Duration.ofHours(24));
+    }
+
+    @Test
+    void outOfOrderAndDuplicateChunksAssembleInOrder() {
+        String sid = create();
+
+        put(sid, 2);
+        put(sid, 0);
+        put(sid, 0); // reintento del mismo trozo
+        UploadSessionDto done = put(sid, 1);
+
+        assertThat(done.getMissingChunks()).isEmpty();
+        assertThat(done.getReceivedRanges()).singleElement()
+                .satisfies(r -> assertThat(r).containsExactly(0L, (long) content.length));
+
+        sessions.commit(PID, sid, "ana");
+
+        assertThat(attached.get()).isEqualTo(content);
+        assertThat(uploadDir.resolve("sessions").resolve(sid)).doesNotExist();
+    }
+
+    @Test
+    void resumeReportsOnlyWhatIsMissing() {
+        String sid = create();
+        put(sid, 0);
+        put(sid, 2);
+
+        assertThatThrownBy(() -> sessions.putChunk(PID, sid, 1,
+                new ByteArrayInputStream(new byte[CHUNK - 1]), "ana")) // PUT cortado
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        assertThatThrownBy(() -> sessions.commit(PID, sid, "ana"))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+
+        UploadSessionDto status = sessions.status(PID, sid, "ana");
+        assertThat(status.getMissingChunks()).containsExactly(1);
+        assertThat(status.getReceivedRanges()).hasSize(2);
+
+        put(sid, 1);
+        sessions.commit(PID, sid, "ana");
+        assertThat(attached.get()).isEqualTo(content);
+    }
+
+    @Test
+    void expiredSessionsArePurged() throws Exception {
+        String stale = create();
+        String active = create();
+        put(active, 0);
+        Files.setLastModifiedTime(uploadDir.resolve("sessions").resolve(stale),
+                FileTime.from(Instant.now().minus(Duration.ofHours(25))));
+
+        sessions.purgeExpired();
+
+        assertThatThrownBy(() -> sessions.status(PID, stale, "ana"))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
+        assertThat(sessions.status(PID, active, "ana").getMissingChunks()).containsExactly(1, 2);
+    }
+
+    @Test
+    void sessionIdIsValidatedOnEveryEntryPoint() {
+        String sid = create();
+
+        for (String bad : new String[] { "../" + sid, sid + "/..", "x" }) {
+            assertThatThrownBy(() -> sessions.putChunk(PID, bad, 0, new ByteArrayInputStream(new byte[0]), "ana"))
+                    .isInstanceOfSatisfying(ResponseStatusException.class,
+                            e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
+            assertThatThrownBy(() -> sessions.abort(PID, bad, "ana"))
+                    .isInstanceOf(ResponseStatusException.class);
+        }
+        // Misma sesión escrita en otra forma: se normaliza y cae en el mismo directorio
+        put(sid.toUpperCase(), 0);
+        assertThat(sessions.status(PID, sid, "ana").getMissingChunks()).containsExactly(1, 2);
+        assertThatThrownBy(() -> sessions.status(PID, sid, "luis"))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN));
+    }
+
+    @Test
+    void chunksCannotChangeWhileCommitting() {
+        String sid = create();
+        put(sid, 0);
+        put(sid, 1);
+        put(sid, 2);
+        AtomicReference<Throwable> duringCommit = new AtomicReference<>();
+        when(products.attachAutFile(eq(PID), any(), eq("ana"))).thenAnswer(inv -> {
+            try { // reintento tardío del cliente mientras se envía a file-service
+                sessions.putChunk(PID, sid, 2, new ByteArrayInputStream(new byte[1000]), "ana");
+            } catch (Throwable t) {
+                duringCommit.set(t);
+            }
+            try (InputStream in = inv.<MultipartFile>getArgument(1).getInputStream()) {
+                attached.set(in.readAllBytes());
+            }
+            return ProductDto.builder().idProducto(PID).build();
+        });
+
+        sessions.commit(PID, sid, "ana");
+
+        assertThat(duringCommit.get()).isInstanceOfSatisfying(ResponseStatusException.class,
+                e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+        assertThat(attached.get()).isEqualTo(content);
+    }
+
+    private String create() {
+        UploadSessionRequest req = new UploadSessionRequest();
+        req.setFilename("modelo.ifc");
+        req.setContentType("application/octet-stream");
+        req.setSize((long) content.length);
+        return sessions.create(PID, req, "ana").getSessionId();
+    }
+
+    private UploadSessionDto put(String sid, int n) {
+        int from = n * CHUNK;
+        byte[] chunk = Arrays.copyOfRange(content, from, Math.min(from + CHUNK, content.length));
+        return sessions.putChunk(PID, sid, n, new ByteArrayInputStream(chunk), "ana");
+    }
+}
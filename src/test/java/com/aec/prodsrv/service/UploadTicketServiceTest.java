@@ -0,0 +1,235 @@
+package com.aec.prodsrv.service;
+
+import com.aec.prodsrv.client.FileClient;
+import com.aec.prodsrv.config.SecurityConfig;
+import com.aec.prodsrv.dto.UploadTicketDto;
+import com.aec.prodsrv.model.Product;
+import com.aec.prodsrv.model.ProductStatus;
+import com.aec.prodsrv.repository.ProductRepository;
+import com.aec.prodsrv.security.ServiceTokenProvider;
+import com.aec.prodsrv.support.FileServiceStub;
+import com.sun.net.httpserver.HttpExchange;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.aec.prodsrv.support.FileServiceStub.drain;
+import static com.aec.prodsrv.support.FileServiceStub.respond;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Flujo completo de subida directa contra un file-service local: emitir
+ * ticket, subir con él (el stub valida la firma como lo haría file-service)
+ * y confirmar los driveFileId en el producto.
+ */
+class UploadTicketServiceTest {
+
+    private static final String SECRET = Base64.getEncoder()
+            .encodeToString("clave-de-prueba-de-32-bytes-min!".getBytes(StandardCharsets.UTF_8));
+
+    @TempDir
+    Path tmp;
+
+    private FileServiceStub fileService;
+    private final List<String> storedIds = new CopyOnWriteArrayList<>();
+    private final List<String> stagingUploads = new CopyOnWriteArrayList<>();
+
+    private ProductRepository repo;
+    private UploadTicketService tickets;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        fileService = FileServiceStub.start()
+                .on("/api/files/public/", ex -> {
+                    Claims c = authorize(ex);
+                    if (c == null)
+                        return;
+                    String id = "drv-" + UUID.randomUUID();
+                    storedIds.add(id);
+                    respond(ex, 200, "{\"driveFileId\":\"" + id + "\",\"fileType\":\"image/png\"}");
+                })
+                .on("/api/files/staging/", ex -> {
+                    if (authorize(ex) == null)
+                        return;
+                    stagingUploads.add(ex.getRequestURI().getPath());
+                    respond(ex, 200, "{\"stagingId\":\"stg-1\",\"filename\":\"f\"}");
+                })
+                .on("/api/files/meta/product/", ex -> {
+                    drain(ex);
+                    StringJoiner json = new StringJoiner(",", "[", "]");
+                    storedIds.forEach(id -> json.add("{\"driveFileId\":\"" + id + "\"}"));
+                    respond(ex, 200, json.toString());
+                });
+
+        FileClient fileClient = fileService.fileClient(tmp);
+        repo = mock(ProductRepository.class);
+        when(repo.save(any(Product.class))).thenAnswer(inv -> inv.getArgument(0));
+        ProductService products = FileServiceStub.productService(repo, fileClient, "off");
+
+        tickets = new UploadTicketService(repo, products, fileClient, SECRET);
+        ReflectionTestUtils.setField(tickets, "ttl", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(tickets, "confirmGrace", Duration.ofMinutes(30));
+        ReflectionTestUtils.setField(tickets, "gatewayBaseUrl", fileService.baseUrl());
+
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("colab", "token-colab"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        fileService.close();
+    }
+
+    @Test
+    void directUploadIsRecordedOnConfirm() throws Exception {
+        Product p = product(7L, ProductStatus.APROBADO);
+
+        UploadTicketDto t = tickets.issue(7L, "foto", "colab");
+        assertThat(t.isConfirmRequired()).isTrue();
+
+        String driveId = uploadWith(t);
+        tickets.confirm(7L, t.getTicket(), List.of(driveId, driveId), "colab");
+
+        assertThat(p.getFotografiaProd()).containsExactly(driveId);
+    }
+
+    @Test
+    void confirmRejectsFilesOutsideTheProduct() throws Exception {
+        product(7L, ProductStatus.RECHAZADO);
+        UploadTicketDto t = tickets.issue(7L, "aut", "colab");
+        uploadWith(t);
+
+        assertThatThrownBy(() -> tickets.confirm(7L, t.getTicket(), List.of("drv-ajeno"), "colab"))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY));
+    }
+
+    @Test
+    void ticketIsScopedToProductAndUser() {
+        product(7L, ProductStatus.APROBADO);
+        product(8L, ProductStatus.APROBADO);
+        UploadTicketDto t = tickets.issue(7L, "foto", "colab");
+
+        assertThatThrownBy(() -> tickets.confirm(8L, t.getTicket(), List.of("x"), "colab"))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN));
+        assertThatThrownBy(() -> tickets.confirm(7L, t.getTicket(), List.of("x"), "otro"))
+                .isInstanceOf(ResponseStatusException.class);
+        assertThatThrownBy(() -> tickets.confirm(7L, t.getTicket() + "x", List.of("x"), "colab"))
+                .isInstanceOf(ResponseStatusException.class);
+    }
+
+    @Test
+    void ticketIsNotAnAccessTokenForThisService() {
+        product(7L, ProductStatus.APROBADO);
+        UploadTicketDto t = tickets.issue(7L, "foto", "colab");
+        SecurityConfig security = new SecurityConfig();
+        ReflectionTestUtils.setField(security, "jwtSecret", SECRET);
+        JwtDecoder decoder = security.jwtDecoder();
+
+        assertThatThrownBy(() -> decoder.decode(t.getTicket())).isInstanceOf(JwtValidationException.class);
+        String service = new ServiceTokenProvider(SECRET, "prod-service", "ROL_SERVICIO", 60_000).issue();
+        assertThat(decoder.decode(service).getSubject()).isEqualTo("prod-service");
+    }
+
+    @Test
+    void confirmGraceIsAClaimNotClockSkew() {
+        Product p = product(7L, ProductStatus.APROBADO);
+        storedIds.add("drv-tarde");
+        ReflectionTestUtils.setField(tickets, "ttl", Duration.ofMinutes(-5)); // vencido para subir
+
+        UploadTicketDto late = tickets.issue(7L, "foto", "colab");
+        tickets.confirm(7L, late.getTicket(), List.of("drv-tarde"), "colab");
+        assertThat(p.getFotografiaProd()).containsExactly("drv-tarde");
+
+        ReflectionTestUtils.setField(tickets, "confirmGrace", Duration.ofMinutes(2));
+        UploadTicketDto expired = tickets.issue(7L, "foto", "colab");
+        assertThatThrownBy(() -> tickets.confirm(7L, expired.getTicket(), List.of("drv-tarde"), "colab"))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN));
+    }
+
+    @Test
+    void pendingProductsUploadToStaging() throws Exception {
+        product(7L, ProductStatus.PENDIENTE);
+        UploadTicketDto t = tickets.issue(7L, "aut", "colab");
+
+        assertThat(t.isStaging()).isTrue();
+        assertThat(t.isConfirmRequired()).isFalse();
+        uploadWith(t);
+        assertThat(stagingUploads).containsExactly("/api/files/staging/7");
+    }
+
+    private Product product(Long id, ProductStatus estado) {
+        Product p = Product.builder()
+                .idProducto(id)
+                .nombre("Puente")
+                .estado(estado)
+                .uploaderUsername("colab")
+                .categorias(Set.of())
+                .especialidades(Set.of())
+                .build();
+        when(repo.findById(id)).thenReturn(Optional.of(p));
+        return p;
+    }
+
+    /** Lo que haría el navegador: POST multipart a uploadUrl con el ticket. */
+    private String uploadWith(UploadTicketDto t) throws Exception {
+        String boundary = "b" + UUID.randomUUID();
+        String body = "--" + boundary + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\"a.png\"\r\n"
+                + "Content-Type: image/png\r\n\r\nPNG\r\n--" + boundary + "--\r\n";
+        HttpResponse<String> resp = HttpClient.newHttpClient().send(HttpRequest.newBuilder(URI.create(t.getUploadUrl()))
+                .header("Authorization", "Bearer " + t.getTicket())
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertThat(resp.statusCode()).isEqualTo(200);
+        return t.isStaging() ? null : resp.body().replaceAll(".*\"driveFileId\":\"([^\"]+)\".*", "$1");
+    }
+
+    /** Validación que hace file-service: firma, expiración y rol. */
+    private static Claims authorize(HttpExchange ex) throws IOException {
+        drain(ex);
+        String auth = ex.getRequestHeaders().getFirst("Authorization");
+        try {
+            Claims c = Jwts.parserBuilder()
+                    .setSigningKey(new SecretKeySpec(Base64.getDecoder().decode(SECRET), "HmacSHA256"))
+                    .build()
+                    .parseClaimsJws(auth.substring("Bearer ".length()))
+                    .getBody();
+            if ("ROL_COLABORADOR".equals(c.get("role", String.class)))
+                return c;
+        } catch (Exception ignored) {
+            // cae al 401
+        }
+        respond(ex, 401, "{}");
+        return null;
+    }
+}
@@ -0,0 +1,116 @@
+package com.aec.prodsrv.support;
+
+import com.aec.prodsrv.client.FileClient;
+import com.aec.prodsrv.client.FileDownloadCache;
+import com.aec.prodsrv.client.FileMetaCache;
+import com.aec.prodsrv.client.UsersClient;
+import com.aec.prodsrv.config.ReadYourWrites;
+import com.aec.prodsrv.repository.CategoryRepository;
+import com.aec.prodsrv.repository.FileDigestRepository;
+import com.aec.prodsrv.repository.ProductRepository;
+import com.aec.prodsrv.service.EmailService;
+import com.aec.prodsrv.service.FileDedupService;
+import com.aec.prodsrv.service.ImageDerivativeService;
+import com.aec.prodsrv.service.ProductService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * file-service en proceso para las pruebas unitarias, más el {@link FileClient}
+ * y el {@link ProductService} que hablan con él. Cada prueba registra solo las
+ * rutas que necesita con {@link #on}; el resto responde 404.
+ */
+public final class FileServiceStub implements AutoCloseable {
+
+    private final HttpServer server;
+
+    private FileServiceStub(HttpServer server) {
+        this.server = server;
+    }
+
+    /** Arranca el stub en un puerto libre de 127.0.0.1. */
+    public static FileServiceStub start() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.start();
+        return new FileServiceStub(server);
+    }
+
+    /** Atiende con {@code handler} todo lo que empiece por {@code pathPrefix}. */
+    public FileServiceStub on(String pathPrefix, HttpHandler handler) {
+        server.createContext(pathPrefix, handler);
+        return this;
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /** Cliente sin caché de descargas. */
+    public FileClient fileClient(Path cacheDir) {
+        return fileClient(cacheDir, DataSize.ofBytes(0), DataSize.ofBytes(0));
+    }
+
+    /** Cliente con caché de descargas en {@code cacheDir}. */
+    public FileClient fileClient(Path cacheDir, DataSize maxSize, DataSize maxEntrySize) {
+        return new FileClient(WebClient.builder().baseUrl(baseUrl()).build(),
+                CircuitBreakerRegistry.ofDefaults(), BulkheadRegistry.ofDefaults(),
+                new FileMetaCache(100, Duration.ofMinutes(1)),
+                new FileDownloadCache(cacheDir.toString(), maxSize, maxEntrySize),
+                new SimpleMeterRegistry(), 64, 10);
+    }
+
+    /**
+     * ProductService real sobre {@code fileClient}; el resto de colaboradores
+     * son mocks. {@code dedupScope} es el de {@code files.dedup.scope}.
+     */
+    public static ProductService productService(ProductRepository repo, FileClient fileClient, String dedupScope) {
+        return new ProductService(repo, mock(CategoryRepository.class), fileClient,
+                mock(EmailService.class), mock(UsersClient.class),
+                new FileDedupService(fileClient, mock(FileDigestRepository.class), dedupScope),
+                mock(ImageDerivativeService.class), mock(ReadYourWrites.class),
+                mock(ApplicationEventPublisher.class));
+    }
+
+    /** Consume el cuerpo de la petición y devuelve cuántos bytes traía. */
+    public static long drain(HttpExchange ex) throws IOException {
+        long total = 0;
+        try (InputStream in = ex.getRequestBody()) {
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) > 0)
+                total += n;
+        }
+        return total;
+    }
+
+    public static void respond(HttpExchange ex, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().add("Content-Type", "application/json");
+        ex.sendResponseHeaders(status, body.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}